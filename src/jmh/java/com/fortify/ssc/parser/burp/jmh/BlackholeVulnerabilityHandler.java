@@ -0,0 +1,43 @@
+package com.fortify.ssc.parser.burp.jmh;
+
+import java.lang.reflect.Proxy;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+
+/**
+ * {@link VulnerabilityHandler} implementation that feeds all vulnerability data
+ * into a JMH {@link Blackhole}, and counts the number of started vulnerabilities.
+ * A single proxy-based {@link StaticVulnerabilityBuilder} instance is shared by
+ * all vulnerabilities; the only per-call allocation is the argument array
+ * created by the proxy mechanism.
+ */
+public class BlackholeVulnerabilityHandler implements VulnerabilityHandler {
+	private final Blackhole blackhole;
+	private final StaticVulnerabilityBuilder builder;
+	private long count;
+
+	public BlackholeVulnerabilityHandler(Blackhole blackhole) {
+		this.blackhole = blackhole;
+		this.builder = (StaticVulnerabilityBuilder) Proxy.newProxyInstance(
+			BlackholeVulnerabilityHandler.class.getClassLoader(),
+			new Class[] { StaticVulnerabilityBuilder.class },
+			(proxy, method, args) -> {
+				blackhole.consume(args);
+				return null;
+			});
+	}
+
+	@Override
+	public StaticVulnerabilityBuilder startStaticVulnerability(String instanceId) {
+		blackhole.consume(instanceId);
+		count++;
+		return builder;
+	}
+
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,167 @@
+package com.fortify.ssc.parser.burp.jmh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates synthetic Burp XML exports by replicating the issues from
+ * sampleData/sample.xml. Each generated issue gets a unique serial number;
+ * optionally, the Base64-encoded request and response of every issue are
+ * replaced with synthetic HTTP messages of the given body size, allowing
+ * benchmarks to scale both the number of issues and the size of each issue.
+ *
+ * This class can also be run from the command line:
+ * <pre>BurpExportGenerator &lt;issueCount&gt; &lt;bodySize&gt; &lt;outputFile&gt;</pre>
+ * where a negative body size keeps the original requests and responses.
+ */
+public final class BurpExportGenerator {
+	private static final String SAMPLE_RESOURCE_NAME = "sample.xml";
+	private static final Pattern ISSUE_PATTERN = Pattern.compile("<issue>.*?</issue>", Pattern.DOTALL);
+	private static final Pattern SERIAL_NUMBER_PATTERN = Pattern.compile("<serialNumber>[^<]*</serialNumber>");
+	private static final Pattern REQUEST_PATTERN = Pattern.compile("(<request[^>]*>)<!\\[CDATA\\[[^\\]]*\\]\\]>(</request>)");
+	private static final Pattern RESPONSE_PATTERN = Pattern.compile("(<response[^>]*>)<!\\[CDATA\\[[^\\]]*\\]\\]>(</response>)");
+	private static final String LOREM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ";
+
+	private final String header;
+	private final List<String[]> issueTemplates;
+	private final String footer;
+
+	private BurpExportGenerator(String sample, int bodySize) {
+		Matcher m = ISSUE_PATTERN.matcher(sample);
+		List<String[]> templates = new ArrayList<>();
+		int firstStart = -1, lastEnd = -1;
+		while ( m.find() ) {
+			if ( firstStart<0 ) { firstStart = m.start(); }
+			lastEnd = m.end();
+			templates.add(createTemplate(m.group(), bodySize));
+		}
+		if ( templates.isEmpty() ) {
+			throw new IllegalStateException("No issues found in "+SAMPLE_RESOURCE_NAME);
+		}
+		this.header = sample.substring(0, firstStart);
+		this.issueTemplates = templates;
+		this.footer = sample.substring(lastEnd);
+	}
+
+	/**
+	 * Create a generator based on sampleData/sample.xml
+	 * @param bodySize Size in characters of the generated request and response
+	 *        bodies, or a negative value to keep the original requests and responses
+	 * @return {@link BurpExportGenerator} instance
+	 */
+	public static final BurpExportGenerator fromSample(int bodySize) {
+		try (InputStream is = BurpExportGenerator.class.getClassLoader().getResourceAsStream(SAMPLE_RESOURCE_NAME)) {
+			if ( is==null ) {
+				throw new IllegalStateException(SAMPLE_RESOURCE_NAME+" not found on class path");
+			}
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for ( int read ; (read = is.read(buffer))>0 ; ) {
+				bos.write(buffer, 0, read);
+			}
+			return new BurpExportGenerator(new String(bos.toByteArray(), StandardCharsets.UTF_8), bodySize);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Write an export containing the given number of issues to the given target file
+	 * @return Number of bytes written
+	 */
+	public final long generate(int issueCount, Path target) throws IOException {
+		return generate(issueCount, target, 0);
+	}
+
+	/**
+	 * Write an export containing the given number of issues to the given target
+	 * file, simulating a rescan in which every n-th issue has changed
+	 * @param changedEvery Interval of changed issues, or 0 if no issues have changed
+	 * @return Number of bytes written
+	 */
+	public final long generate(int issueCount, Path target, int changedEvery) throws IOException {
+		try ( Writer w = Files.newBufferedWriter(target, StandardCharsets.UTF_8) ) {
+			generate(issueCount, w, changedEvery);
+		}
+		return Files.size(target);
+	}
+
+	/**
+	 * Write an export containing the given number of issues to the given {@link Writer}
+	 */
+	public final void generate(int issueCount, Writer w) throws IOException {
+		generate(issueCount, w, 0);
+	}
+
+	private final void generate(int issueCount, Writer w, int changedEvery) throws IOException {
+		w.write(header);
+		for ( int i = 0 ; i < issueCount ; i++ ) {
+			String[] template = issueTemplates.get(i % issueTemplates.size());
+			w.write(template[0]);
+			w.write("<serialNumber>");
+			w.write(Long.toString(1_000_000_000_000L+i));
+			w.write("</serialNumber>");
+			w.write(changedEvery>0 && i%changedEvery==0 ? template[1].replaceFirst("</path>", "?rescan</path>") : template[1]);
+			w.write("\n  ");
+		}
+		w.write(footer);
+	}
+
+	/**
+	 * Create a temporary file containing an export with the given number of issues
+	 * and body size; the caller is responsible for deleting this file.
+	 */
+	public static final Path generateTempFile(int issueCount, int bodySize) throws IOException {
+		Path file = Files.createTempFile("burp-export-"+issueCount+"-", ".xml");
+		fromSample(bodySize).generate(issueCount, file);
+		return file;
+	}
+
+	private static final String[] createTemplate(String issue, int bodySize) {
+		if ( bodySize>=0 ) {
+			issue = replaceCData(REQUEST_PATTERN, issue, createHttpMessage("POST /generated HTTP/1.1\r\nHost: generated.example.com\r\nContent-Type: application/x-www-form-urlencoded", bodySize));
+			issue = replaceCData(RESPONSE_PATTERN, issue, createHttpMessage("HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=utf-8", bodySize));
+		}
+		Matcher m = SERIAL_NUMBER_PATTERN.matcher(issue);
+		if ( !m.find() ) {
+			throw new IllegalStateException("Issue without serialNumber: "+issue);
+		}
+		return new String[] {issue.substring(0, m.start()), issue.substring(m.end())};
+	}
+
+	private static final String replaceCData(Pattern pattern, String issue, String base64) {
+		return pattern.matcher(issue).replaceAll("$1<![CDATA["+base64+"]]>$2");
+	}
+
+	private static final String createHttpMessage(String headers, int bodySize) {
+		StringBuilder sb = new StringBuilder(headers.length()+bodySize+64)
+			.append(headers).append("\r\nContent-Length: ").append(bodySize).append("\r\n\r\n");
+		while ( bodySize>0 ) {
+			int length = Math.min(bodySize, LOREM.length());
+			sb.append(LOREM, 0, length);
+			bodySize -= length;
+		}
+		return Base64.getEncoder().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static void main(String[] args) throws IOException {
+		if ( args.length!=3 ) {
+			System.err.println("Usage: BurpExportGenerator <issueCount> <bodySize> <outputFile>");
+			System.exit(1);
+		}
+		long size = fromSample(Integer.parseInt(args[1])).generate(Integer.parseInt(args[0]), Paths.get(args[2]));
+		System.out.println("Generated "+args[2]+" ("+size+" bytes)");
+	}
+}
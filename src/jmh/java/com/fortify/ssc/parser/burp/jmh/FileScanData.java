@@ -0,0 +1,44 @@
+package com.fortify.ssc.parser.burp.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * Simple {@link ScanData} implementation that provides the contents of a single
+ * local file, similar to how SSC provides an uploaded artifact to parser plugins.
+ */
+public class FileScanData implements ScanData {
+	private final Path file;
+
+	public FileScanData(Path file) {
+		this.file = file;
+	}
+
+	@Override
+	public String getSessionId() {
+		return UUID.randomUUID().toString();
+	}
+
+	@Override
+	public List<ScanEntry> getScanEntries() {
+		return null;
+	}
+
+	@Override
+	public InputStream getInputStream(Predicate<String> matcher) throws IOException {
+		return Files.newInputStream(file);
+	}
+
+	@Override
+	public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+		return Files.newInputStream(file);
+	}
+}
@@ -0,0 +1,29 @@
+package com.fortify.ssc.parser.burp.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH auxiliary counters for end-to-end parser benchmarks; in throughput mode,
+ * JMH reports these as issues/sec and bytes/sec next to the primary ops/sec score.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ParseCounters {
+	public long issues;
+	public long bytes;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		issues = 0;
+		bytes = 0;
+	}
+
+	public void add(long issues, long bytes) {
+		this.issues += issues;
+		this.bytes += bytes;
+	}
+}
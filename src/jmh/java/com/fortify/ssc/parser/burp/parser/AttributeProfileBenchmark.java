@@ -0,0 +1,89 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Compares end-to-end parsing with all vulnerability attributes against the
+ * metadata-only profile intended for bulk historical imports, which disables
+ * all long string attributes through {@link BurpParserConfig#getAttributeMaxLengths()}.
+ * Besides skipping rendering, the metadata-only profile doesn't bind or decode
+ * any requests, responses or HTML texts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class AttributeProfileBenchmark {
+	@Param({"10000"})
+	private int issueCount;
+
+	/** Size of generated request/response bodies; -1 keeps the sample requests/responses */
+	@Param({"-1", "8192"})
+	private int bodySize;
+
+	@Param({"full", "metadataOnly"})
+	private String profile;
+
+	private Path file;
+	private long fileSize;
+	private ScanData scanData;
+	private BurpParserConfig config;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		file = BurpExportGenerator.generateTempFile(issueCount, bodySize);
+		fileSize = Files.size(file);
+		scanData = new FileScanData(file);
+		Map<CustomVulnAttribute, Integer> attributeMaxLengths = new EnumMap<>(CustomVulnAttribute.class);
+		if ( "metadataOnly".equals(profile) ) {
+			for ( CustomVulnAttribute attribute : CustomVulnAttribute.values() ) {
+				if ( attribute.attributeType()==CustomVulnAttribute.AttrType.LONG_STRING ) {
+					attributeMaxLengths.put(attribute, 0);
+				}
+			}
+		}
+		config = BurpParserConfig.builder().attributeMaxLengths(attributeMaxLengths).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(scanData, handler, config).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+}
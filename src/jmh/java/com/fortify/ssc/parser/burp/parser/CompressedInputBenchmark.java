@@ -0,0 +1,94 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Compares end-to-end parsing of plain, gzip-compressed and zip-compressed
+ * Burp exports. The bytes/sec counter reports the number of bytes read from
+ * disk, i.e. the size of the (compressed) input file, while issues/sec allows
+ * for comparing import times between the different input formats.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CompressedInputBenchmark {
+	@Param({"10000"})
+	private int issueCount;
+
+	@Param({"plain", "gzip", "zip"})
+	private String compression;
+
+	private Path file;
+	private long fileSize;
+	private ScanData scanData;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		Path plain = BurpExportGenerator.generateTempFile(issueCount, -1);
+		if ( "plain".equals(compression) ) {
+			file = plain;
+		} else {
+			file = Files.createTempFile("burp-", "."+compression);
+			try ( OutputStream os = open(file) ) {
+				Files.copy(plain, os);
+			}
+			Files.delete(plain);
+		}
+		fileSize = Files.size(file);
+		scanData = new FileScanData(file);
+	}
+
+	private OutputStream open(Path target) throws IOException {
+		OutputStream os = Files.newOutputStream(target);
+		if ( "gzip".equals(compression) ) {
+			return new GZIPOutputStream(os, 64*1024);
+		} else {
+			ZipOutputStream zos = new ZipOutputStream(os);
+			zos.putNextEntry(new ZipEntry("burp-export.xml"));
+			return zos;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(scanData, handler).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+}
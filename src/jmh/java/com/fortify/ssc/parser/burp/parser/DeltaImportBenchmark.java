@@ -0,0 +1,117 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Compares importing a rescan in which every n-th issue has changed, with and
+ * without delta import. For delta imports, the index is populated from the
+ * original scan during setup, and restored before every invocation, as every
+ * import replaces the index with the records of the imported scan.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class DeltaImportBenchmark {
+	@Param({"10000"})
+	private int issueCount;
+
+	/** Size of generated request/response bodies; -1 keeps the sample requests/responses */
+	@Param({"8192"})
+	private int bodySize;
+
+	/** Interval of changed issues in the rescan; 10 means 10% of issues have changed */
+	@Param({"10"})
+	private int changedEvery;
+
+	@Param({"false", "true"})
+	private boolean delta;
+
+	private Path rescan;
+	private long fileSize;
+	private Path initialIndex;
+	private Path index;
+	private BurpParserConfig config;
+
+	@Setup(Level.Trial)
+	public void generate(Blackhole blackhole) throws Exception {
+		BurpExportGenerator generator = BurpExportGenerator.fromSample(bodySize);
+		Path scan = Files.createTempFile("burp-export-"+issueCount+"-", ".xml");
+		rescan = Files.createTempFile("burp-export-"+issueCount+"-rescan-", ".xml");
+		generator.generate(issueCount, scan);
+		fileSize = generator.generate(issueCount, rescan, changedEvery);
+		config = BurpParserConfig.DEFAULT;
+		if ( delta ) {
+			initialIndex = Files.createTempDirectory("burp-delta-initial-");
+			index = Files.createTempDirectory("burp-delta-");
+			new VulnerabilitiesParser(new FileScanData(scan), new BlackholeVulnerabilityHandler(blackhole),
+					config.toBuilder().deltaIndexDirectory(initialIndex.toString()).build()).parse();
+			config = config.toBuilder().deltaIndexDirectory(index.toString()).build();
+		}
+		Files.delete(scan);
+	}
+
+	@Setup(Level.Invocation)
+	public void restoreIndex() throws IOException {
+		if ( delta ) {
+			try ( Stream<Path> files = Files.list(initialIndex) ) {
+				for ( Path file : (Iterable<Path>)files::iterator ) {
+					Files.copy(file, index.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(rescan);
+		deleteDirectory(initialIndex);
+		deleteDirectory(index);
+	}
+
+	private static final void deleteDirectory(Path directory) throws IOException {
+		if ( directory!=null ) {
+			try ( Stream<Path> files = Files.walk(directory) ) {
+				for ( Path file : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator ) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(new FileScanData(rescan), handler, config).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+}
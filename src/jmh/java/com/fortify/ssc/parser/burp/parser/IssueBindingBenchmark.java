@@ -0,0 +1,91 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+
+/**
+ * Compares binding all issue elements using Jackson (as done by previous plugin
+ * versions through ScanDataStreamingXmlParser) against projected binding using
+ * {@link IssueBinder}. Scores are per issue; run with the gc profiler (enabled by
+ * default in the Gradle configuration) and compare gc.alloc.rate.norm to see the
+ * number of bytes allocated per issue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OperationsPerInvocation(IssueBindingBenchmark.ISSUE_COUNT)
+public class IssueBindingBenchmark {
+	static final int ISSUE_COUNT = 5000;
+	private static final XmlMapper XML_MAPPER = (XmlMapper)new XmlMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/** Size of generated request/response bodies; -1 keeps the sample requests/responses */
+	@Param({"-1", "8192"})
+	private int bodySize;
+
+	private Path file;
+	private IssueXmlReader projectedReader;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		file = BurpExportGenerator.generateTempFile(ISSUE_COUNT, bodySize);
+		projectedReader = new IssueXmlReader(new IssueBinder(VulnerabilitiesParser.getProjection()));
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void jacksonFullBinding(Blackhole blackhole) throws Exception {
+		try ( InputStream is = Files.newInputStream(file) ) {
+			XMLInputFactory factory = XML_MAPPER.getFactory().getXMLInputFactory();
+			XMLStreamReader xsr = factory.createXMLStreamReader(is);
+			while ( xsr.hasNext() ) {
+				if ( xsr.next()==XMLStreamConstants.START_ELEMENT && "issue".equals(xsr.getLocalName()) ) {
+					blackhole.consume(XML_MAPPER.readValue(xsr, Issue.class));
+				}
+			}
+			xsr.close();
+		}
+	}
+
+	@Benchmark
+	public void projectedBinding(Blackhole blackhole) throws Exception {
+		try ( InputStream is = Files.newInputStream(file) ) {
+			projectedReader.read(is, blackhole::consume);
+		}
+	}
+}
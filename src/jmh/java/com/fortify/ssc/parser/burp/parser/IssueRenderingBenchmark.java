@@ -0,0 +1,73 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+
+/**
+ * Measures rendering a single bound issue into a {@link VulnerabilityRecord},
+ * excluding reading and emitting. Scores are per issue; run with the gc
+ * profiler and compare gc.alloc.rate.norm to see the number of bytes
+ * allocated for rendering each issue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class IssueRenderingBenchmark {
+	private static final int ISSUE_COUNT = 1000;
+
+	/** Size of generated request/response bodies; -1 keeps the sample requests/responses */
+	@Param({"-1", "65536"})
+	private int bodySize;
+
+	/** Render cache size; 0 renders remediation and references sections for every issue */
+	@Param({"0", "256"})
+	private int renderCacheSize;
+
+	private List<Issue> issues;
+	private VulnerabilitiesParser parser;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Path file = BurpExportGenerator.generateTempFile(ISSUE_COUNT, bodySize);
+		issues = new ArrayList<>(ISSUE_COUNT);
+		try ( InputStream is = Files.newInputStream(file) ) {
+			new IssueXmlReader(new IssueBinder(VulnerabilitiesParser.getProjection())).read(is, issues::add);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		BurpParserConfig config = BurpParserConfig.DEFAULT.toBuilder().renderCacheSize(renderCacheSize).build();
+		parser = new VulnerabilitiesParser(null, null, config);
+	}
+
+	@Benchmark
+	public VulnerabilityRecord render() {
+		Issue issue = issues.get(next);
+		next = (next+1)%ISSUE_COUNT;
+		return parser.renderVulnerability(issue);
+	}
+}
@@ -0,0 +1,168 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.domain.DynamicAnalysis;
+import com.fortify.ssc.parser.burp.domain.HttpMessage;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Compares end-to-end parsing of Burp XML exports against equivalent Burp
+ * REST API style JSON exports. The JSON export is generated from the XML
+ * export, with requests and responses provided as data segments. Note that
+ * both formats have different sizes for the same issues, so issues/sec is
+ * the relevant counter for comparing the two.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class JsonInputBenchmark {
+	@Param({"10000"})
+	private int issueCount;
+
+	@Param({"-1", "4096"})
+	private int bodySize;
+
+	@Param({"xml", "json"})
+	private String format;
+
+	private Path file;
+	private long fileSize;
+	private ScanData scanData;
+
+	@Setup(Level.Trial)
+	public void generate() throws Exception {
+		file = BurpExportGenerator.generateTempFile(issueCount, bodySize);
+		if ( "json".equals(format) ) {
+			Path xml = file;
+			file = Files.createTempFile("burp-", ".json");
+			convertToJson(xml, file);
+			Files.delete(xml);
+		}
+		fileSize = Files.size(file);
+		scanData = new FileScanData(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(scanData, handler).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+
+	private static final void convertToJson(Path xml, Path json) throws Exception {
+		Map<String, Integer> projection = new HashMap<>();
+		IssueBinder.ISSUE_FIELDS.keySet().forEach(name -> projection.put(name, Integer.MAX_VALUE));
+		IssueBinder.DYNAMIC_ANALYSIS_FIELDS.keySet().forEach(name -> projection.put("dynamicAnalysis/"+name, Integer.MAX_VALUE));
+		projection.put("requestresponse/request", Integer.MAX_VALUE);
+		projection.put("requestresponse/response", Integer.MAX_VALUE);
+		try ( InputStream is = Files.newInputStream(xml); OutputStream os = Files.newOutputStream(json);
+				JsonGenerator generator = IssueJsonReader.JSON_FACTORY.createGenerator(os) ) {
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("issue_events");
+			new IssueXmlReader(new IssueBinder(projection)).read(is, issue -> {
+				try {
+					writeIssueEvent(generator, issue);
+				} catch ( IOException e ) {
+					throw new IllegalStateException(e);
+				}
+			});
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+	}
+
+	private static final void writeIssueEvent(JsonGenerator generator, Issue issue) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("type", "issue_found");
+		generator.writeObjectFieldStart("issue");
+		generator.writeStringField("serial_number", issue.getSerialNumber());
+		generator.writeNumberField("type_index", Long.parseLong(issue.getType()));
+		generator.writeStringField("name", issue.getName());
+		generator.writeStringField("origin", issue.getHost());
+		generator.writeStringField("path", issue.getPath());
+		generator.writeStringField("severity", issue.getSeverity().toLowerCase());
+		generator.writeStringField("confidence", issue.getConfidence().toLowerCase());
+		generator.writeStringField("issue_background", issue.getIssueBackground());
+		generator.writeStringField("remediation_background", issue.getRemediationBackground());
+		generator.writeStringField("references", issue.getReferences());
+		generator.writeStringField("vulnerability_classifications", issue.getVulnerabilityClassifications());
+		generator.writeStringField("description", issue.getIssueDetail());
+		generator.writeStringField("remediation", issue.getRemediationDetail());
+		if ( issue.getRequestresponse()!=null ) {
+			generator.writeArrayFieldStart("evidence");
+			generator.writeStartObject();
+			generator.writeObjectFieldStart("request_response");
+			writeSegments(generator, "request", issue.getRequestresponse().getRequest());
+			writeSegments(generator, "response", issue.getRequestresponse().getResponse());
+			generator.writeEndObject();
+			generator.writeEndObject();
+			generator.writeEndArray();
+		}
+		if ( issue.getDynamicAnalysis()!=null ) {
+			generator.writeArrayFieldStart("dynamic_analysis");
+			for ( DynamicAnalysis da : issue.getDynamicAnalysis() ) {
+				generator.writeStartObject();
+				generator.writeStringField("source", da.getSource());
+				generator.writeStringField("sink", da.getSink());
+				generator.writeStringField("source_stack_trace", da.getSourceStackTrace());
+				generator.writeStringField("sink_stack_trace", da.getSinkStackTrace());
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+		generator.writeEndObject();
+	}
+
+	private static final void writeSegments(JsonGenerator generator, String name, HttpMessage message) throws IOException {
+		if ( message!=null && message.getContent()!=null ) {
+			byte[] data = Base64.getMimeDecoder().decode(message.getContent().toString());
+			generator.writeArrayFieldStart(name);
+			generator.writeStartObject();
+			generator.writeStringField("type", "DataSegment");
+			generator.writeFieldName("data");
+			generator.writeBinary(data);
+			generator.writeNumberField("length", data.length);
+			generator.writeEndObject();
+			generator.writeEndArray();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Compares sequential parsing (parallelism=1) against index-based parallel
+ * parsing using 2 to 16 threads. Note that speedup is bounded by the number
+ * of available cores, and by the sequential indexing pass over the input.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ParallelParseBenchmark {
+	@Param({"1", "2", "4", "8", "16"})
+	private int parallelism;
+
+	@Param({"20000"})
+	private int issueCount;
+
+	@Param({"4096"})
+	private int bodySize;
+
+	private Path file;
+	private long fileSize;
+	private ScanData scanData;
+	private BurpParserConfig config;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		file = BurpExportGenerator.generateTempFile(issueCount, bodySize);
+		fileSize = Files.size(file);
+		scanData = new FileScanData(file);
+		config = BurpParserConfig.builder().parallelism(parallelism).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(scanData, handler, config).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+}
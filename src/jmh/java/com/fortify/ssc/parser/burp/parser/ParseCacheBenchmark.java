@@ -0,0 +1,88 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Compares parsing an export without parse cache (cold) against replaying the
+ * records stored in the parse cache for the same export (hit). A hit still
+ * reads the full input once to compute the cache key.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ParseCacheBenchmark {
+	@Param({"10000"})
+	private int issueCount;
+
+	private Path file;
+	private Path cacheDirectory;
+	private long fileSize;
+	private BurpParserConfig coldConfig;
+	private BurpParserConfig cachedConfig;
+
+	@Setup(Level.Trial)
+	public void generate(Blackhole blackhole) throws Exception {
+		file = BurpExportGenerator.generateTempFile(issueCount, -1);
+		fileSize = Files.size(file);
+		cacheDirectory = Files.createTempDirectory("burp-parse-cache");
+		coldConfig = BurpParserConfig.DEFAULT;
+		cachedConfig = BurpParserConfig.builder().parseCacheDirectory(cacheDirectory.toString()).build();
+		// Populate the cache
+		new VulnerabilitiesParser(new FileScanData(file), new BlackholeVulnerabilityHandler(blackhole), cachedConfig).parse();
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+		try ( Stream<Path> files = Files.list(cacheDirectory) ) {
+			for ( Path cacheFile : (Iterable<Path>)files::iterator ) {
+				Files.deleteIfExists(cacheFile);
+			}
+		}
+		Files.deleteIfExists(cacheDirectory);
+	}
+
+	@Benchmark
+	public void cold(ParseCounters counters, Blackhole blackhole) throws Exception {
+		parse(coldConfig, counters, blackhole);
+	}
+
+	@Benchmark
+	public void hit(ParseCounters counters, Blackhole blackhole) throws Exception {
+		parse(cachedConfig, counters, blackhole);
+	}
+
+	private final void parse(BurpParserConfig config, ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(new FileScanData(file), handler, config).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+}
@@ -0,0 +1,138 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * Measures how much read-ahead overlaps I/O with parsing. Input is read from a
+ * local file, optionally throttled to the given number of megabytes per second
+ * to simulate slow network-backed storage; 0 reads the file through its
+ * {@link java.nio.channels.FileChannel} without throttling. Without read-ahead
+ * (readAheadBuffers=0), parse time is the sum of I/O and parsing time; with
+ * read-ahead, it approaches the maximum of both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ReadAheadBenchmark {
+	/** Maximum number of bytes returned by a single throttled read, like a network receive buffer */
+	private static final int MAX_THROTTLED_READ = 64*1024;
+
+	@Param({"10000"})
+	private int issueCount;
+
+	@Param({"0", "4"})
+	private int readAheadBuffers;
+
+	@Param({"0", "200"})
+	private int throttleMegabytesPerSecond;
+
+	private Path file;
+	private long fileSize;
+	private ScanData scanData;
+	private BurpParserConfig config;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		file = BurpExportGenerator.generateTempFile(issueCount, -1);
+		fileSize = Files.size(file);
+		scanData = new ThrottledScanData(file, throttleMegabytesPerSecond*1024L*1024L);
+		config = BurpParserConfig.builder().readAheadBuffers(readAheadBuffers).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(scanData, handler, config).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+
+	private static final class ThrottledScanData implements ScanData {
+		private final Path file;
+		private final long bytesPerSecond;
+
+		ThrottledScanData(Path file, long bytesPerSecond) {
+			this.file = file;
+			this.bytesPerSecond = bytesPerSecond;
+		}
+
+		@Override
+		public String getSessionId() {
+			return UUID.randomUUID().toString();
+		}
+
+		@Override
+		public List<ScanEntry> getScanEntries() {
+			return null;
+		}
+
+		@Override
+		public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+			return getInputStream(name -> true);
+		}
+
+		@Override
+		public InputStream getInputStream(Predicate<String> matcher) throws IOException {
+			InputStream is = new FileInputStream(file.toFile());
+			return bytesPerSecond<=0 ? is : new FilterInputStream(is) {
+				@Override
+				public int read() throws IOException {
+					throttle(1);
+					return super.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int result = super.read(b, off, Math.min(len, MAX_THROTTLED_READ));
+					throttle(result);
+					return result;
+				}
+			};
+		}
+
+		private final void throttle(int bytes) {
+			if ( bytes>0 ) {
+				LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(bytes)/bytesPerSecond);
+			}
+		}
+	}
+}
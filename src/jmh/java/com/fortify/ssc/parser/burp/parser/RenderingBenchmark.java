@@ -0,0 +1,106 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortify.ssc.parser.burp.domain.HttpMessage;
+import com.fortify.ssc.parser.burp.domain.RequestResponse;
+
+/**
+ * Micro-benchmarks for the per-issue helpers used by {@link VulnerabilitiesParser}:
+ * Base64 decoding of requests/responses and HTML rendering of code blocks
+ * and sections through {@link HtmlRenderer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RenderingBenchmark {
+	/** Size in bytes of the decoded request/response */
+	@Param({"1024", "65536", "1048576"})
+	private int messageSize;
+
+	/** Response content type; binary bodies are rendered as a summary rather than being decoded */
+	@Param({"text/html; charset=utf-8", "image/png"})
+	private String contentType;
+
+	private RequestResponse requestResponse;
+	private String decoded;
+	private String sectionText;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		StringBuilder sb = new StringBuilder(messageSize);
+		sb.append("HTTP/1.1 200 OK\r\nContent-Type: ").append(contentType).append("\r\n\r\n");
+		byte[] bytes;
+		if ( contentType.startsWith("image/") ) {
+			bytes = new byte[messageSize];
+			new Random(0).nextBytes(bytes);
+			byte[] headers = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+			System.arraycopy(headers, 0, bytes, 0, headers.length);
+			decoded = new String(bytes, StandardCharsets.ISO_8859_1);
+		} else {
+			while ( sb.length()<messageSize ) {
+				sb.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit</p>\n");
+			}
+			sb.setLength(messageSize);
+			decoded = sb.toString();
+			bytes = decoded.getBytes(StandardCharsets.UTF_8);
+		}
+		String encoded = Base64.getEncoder().encodeToString(bytes);
+		HttpMessage message = new HttpMessage();
+		message.setBase64(true);
+		message.setContent(encoded);
+		requestResponse = new RequestResponse();
+		requestResponse.setRequest(message);
+		requestResponse.setResponse(message);
+		sectionText = decoded.substring(0, Math.min(decoded.length(), 4096));
+	}
+
+	@Benchmark
+	public String getRequestDecoded() {
+		return requestResponse.getRequestDecoded();
+	}
+
+	@Benchmark
+	public String getResponseDecoded() {
+		return requestResponse.getResponseDecoded();
+	}
+
+	@Benchmark
+	public String getCodeAsHtml() {
+		return VulnerabilitiesParser.getCodeAsHtml(decoded, 20000);
+	}
+
+	@Benchmark
+	public String decodeAndGetCodeAsHtml() {
+		return VulnerabilitiesParser.getCodeAsHtml(requestResponse.getResponseDecoded(), 20000);
+	}
+
+	@Benchmark
+	public String decodeBoundedAndGetCodeAsHtml() {
+		return VulnerabilitiesParser.getCodeAsHtml(requestResponse.getResponse(), 20000);
+	}
+
+	@Benchmark
+	public String renderSection() {
+		return HtmlRenderer.get(20000).section("Details", sectionText).toString();
+	}
+}
@@ -0,0 +1,98 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
+
+/**
+ * Compares counting issues and distinct hosts in an XML export using the
+ * byte-level {@link XmlIssueScanner} against a StAX-based count using the
+ * given XML backend. Both read the input from a local file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ScanSummaryBenchmark {
+	@Param({"10000"})
+	private int issueCount;
+
+	@Param({XmlInputFactories.WOODSTOX, XmlInputFactories.AALTO})
+	private String xmlBackend;
+
+	private Path file;
+	private long fileSize;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		file = BurpExportGenerator.generateTempFile(issueCount, -1);
+		fileSize = Files.size(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void byteScan(ParseCounters counters, Blackhole blackhole) throws Exception {
+		try ( InputStream is = new FileInputStream(file.toFile()) ) {
+			XmlIssueScanner scanner = XmlIssueScanner.scan(is, ParseProgress.NOOP);
+			blackhole.consume(scanner.getHosts());
+			counters.add(scanner.getIssueCount(), fileSize);
+		}
+	}
+
+	@Benchmark
+	public void staxCount(ParseCounters counters, Blackhole blackhole) throws Exception {
+		long count = 0;
+		Set<String> hosts = new HashSet<>();
+		try ( InputStream is = new FileInputStream(file.toFile()) ) {
+			XMLStreamReader xsr = XmlInputFactories.get(xmlBackend).createXMLStreamReader(is);
+			try {
+				while ( xsr.hasNext() ) {
+					if ( xsr.next()==XMLStreamConstants.START_ELEMENT ) {
+						if ( "issue".equals(xsr.getLocalName()) ) {
+							count++;
+						} else if ( "host".equals(xsr.getLocalName()) ) {
+							hosts.add(xsr.getElementText());
+						}
+					}
+				}
+			} finally {
+				xsr.close();
+			}
+		}
+		blackhole.consume(hosts);
+		counters.add(count, fileSize);
+	}
+}
@@ -0,0 +1,78 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.jmh.BlackholeVulnerabilityHandler;
+import com.fortify.ssc.parser.burp.jmh.BurpExportGenerator;
+import com.fortify.ssc.parser.burp.jmh.FileScanData;
+import com.fortify.ssc.parser.burp.jmh.ParseCounters;
+
+/**
+ * End-to-end benchmark for {@link VulnerabilitiesParser#parse()} on generated
+ * Burp exports. Besides the number of parsed exports per second, this reports
+ * issues/sec and bytes/sec through {@link ParseCounters}. Use JMH parameter
+ * overrides to scale up, for example <code>-p issueCount=100000</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class VulnerabilitiesParserBenchmark {
+	@Param({"1000", "10000"})
+	private int issueCount;
+
+	/** Size of generated request/response bodies; -1 keeps the sample requests/responses */
+	@Param({"-1", "8192"})
+	private int bodySize;
+
+	/** Render cache size; use <code>-p renderCacheSize=0,1024</code> to compare against uncached rendering */
+	@Param({"1024"})
+	private int renderCacheSize;
+
+	private Path file;
+	private long fileSize;
+	private ScanData scanData;
+	private BurpParserConfig config;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		file = BurpExportGenerator.generateTempFile(issueCount, bodySize);
+		fileSize = Files.size(file);
+		scanData = new FileScanData(file);
+		config = BurpParserConfig.builder().renderCacheSize(renderCacheSize).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void parse(ParseCounters counters, Blackhole blackhole) throws Exception {
+		BlackholeVulnerabilityHandler handler = new BlackholeVulnerabilityHandler(blackhole);
+		new VulnerabilitiesParser(scanData, handler, config).parse();
+		counters.add(handler.getCount(), fileSize);
+	}
+}
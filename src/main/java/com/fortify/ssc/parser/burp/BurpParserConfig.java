@@ -0,0 +1,334 @@
+package com.fortify.ssc.parser.burp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.spi.VulnerabilityAttribute.AttrType;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable parser configuration. The plugin loads this configuration once
+ * in {@link BurpParserPlugin#start()} from system properties prefixed with
+ * {@value #PROPERTY_PREFIX}; properties that are not set use the defaults
+ * defined in this class, which match the behavior of previous plugin versions.
+ */
+@Getter @ToString
+@Builder(toBuilder = true)
+public final class BurpParserConfig {
+	private static final Logger LOG = LoggerFactory.getLogger(BurpParserConfig.class);
+	public static final String PROPERTY_PREFIX = "com.fortify.ssc.parser.burp.";
+	public static final BurpParserConfig DEFAULT = builder().build();
+	public static final List<String> AGGREGATION_KEY_FIELDS = Collections.unmodifiableList(Arrays.asList("name", "host", "path", "severity", "confidence"));
+	/** Default maximum length of long string attributes, as used by previous plugin versions */
+	public static final int DEFAULT_ATTRIBUTE_MAX_LENGTH = 20000;
+	/** Minimum configurable attribute length, leaving room for HTML markup and abbreviation */
+	public static final int MIN_ATTRIBUTE_MAX_LENGTH = 32;
+
+	/**
+	 * Number of threads used to bind issues in parallel. If larger than 1, the
+	 * input is first indexed by a fast byte-level scan, after which the individual
+	 * issues are bound in parallel and handed to SSC in their original order.
+	 */
+	@Builder.Default private final int parallelism = 1;
+
+	/**
+	 * Number of threads used to render issues into vulnerability attributes. If
+	 * larger than 0, issues are bound on a separate thread and rendered by this
+	 * number of worker threads, while the calling thread passes the rendered
+	 * vulnerabilities to SSC in their original order.
+	 */
+	@Builder.Default private final int pipelineThreads = 0;
+
+	/**
+	 * Maximum number of issues that may be bound but not yet passed to SSC when
+	 * using pipeline mode; this bounds the memory used by the pipeline.
+	 */
+	@Builder.Default private final int pipelineQueueSize = 256;
+
+	/**
+	 * Maximum number of rendered sections (like remediation and reference texts
+	 * shared by all issues of the same type) and short attribute values (like
+	 * issue name and host) to be cached during a single parse; 0 disables caching.
+	 */
+	@Builder.Default private final int renderCacheSize = 1024;
+
+	/**
+	 * Whether to collect parser metrics like bytes read, issues per second and
+	 * per-phase timings. If enabled, metrics are logged after every parse, and
+	 * exposed through JMX as {@value BurpParserPlugin#METRICS_OBJECT_NAME}.
+	 */
+	@Builder.Default private final boolean metricsEnabled = false;
+
+	/**
+	 * Fields by which to group issues into a single vulnerability, for example
+	 * 'name' and 'host' to report findings reported on many paths as a single
+	 * vulnerability listing all affected paths; supported fields are listed
+	 * in {@link #AGGREGATION_KEY_FIELDS}. If empty (the default), every issue
+	 * is reported as a separate vulnerability.
+	 */
+	@Builder.Default private final List<String> aggregationKey = Collections.emptyList();
+
+	/**
+	 * Maximum number of aggregation groups to keep in memory; once exceeded,
+	 * groups are spilled to temporary files.
+	 */
+	@Builder.Default private final int aggregationMaxGroups = 256;
+
+	/**
+	 * Directory holding the delta index; if set, vulnerabilities rendered during
+	 * an import are stored in this directory, and reused on the next import of the
+	 * same host for issues that haven't changed. If not set (the default), every
+	 * issue is rendered on every import.
+	 */
+	@Builder.Default private final String deltaIndexDirectory = null;
+
+	/**
+	 * Maximum size of the rendered vulnerability data stored in the delta index
+	 * for a single host, in megabytes.
+	 */
+	@Builder.Default private final int deltaIndexMaxMegabytesPerHost = 256;
+
+	/**
+	 * Directory holding the parse cache; if set, the vulnerabilities produced by
+	 * parsing an artifact are stored in this directory, keyed by a hash of the
+	 * artifact contents, and passed to SSC as-is if the same artifact is parsed
+	 * again. If not set (the default), every artifact is parsed in full.
+	 */
+	@Builder.Default private final String parseCacheDirectory = null;
+
+	/**
+	 * Maximum total size of the parse cache in megabytes; least recently used
+	 * artifacts are evicted once exceeded.
+	 */
+	@Builder.Default private final int parseCacheMaxMegabytes = 1024;
+
+	/**
+	 * Requests and responses longer than this number of characters are spilled
+	 * to a temporary file while parsing, and decoded from a memory-mapped view
+	 * of that file when rendering, keeping heap usage independent of payload
+	 * size and of the number of issues being processed concurrently; 0 (the
+	 * default) keeps all payloads on the heap.
+	 */
+	@Builder.Default private final int payloadSpillThreshold = 0;
+
+	/**
+	 * Request and response bodies with a declared Content-Length larger than this
+	 * number of bytes are rendered as a summary listing content type and size,
+	 * like binary bodies, rather than being decoded; 0 (the default) renders text
+	 * bodies regardless of their size, up to the attribute length limit.
+	 */
+	@Builder.Default private final int maxTextBodySize = 0;
+
+	/**
+	 * Number of threads used to parse uploads that bundle multiple Burp exports,
+	 * like one export per target host; each thread parses a single export. Note
+	 * that each export is parsed using the configured parallelism and pipeline
+	 * threads, so the total number of threads may be a multiple of this value.
+	 * 1 (the default) parses bundled exports one at a time, matching previous
+	 * versions. To assign unique instance ids, the serial numbers of all exports
+	 * are collected before parsing, so bundled exports are read twice.
+	 */
+	@Builder.Default private final int scanEntryThreads = 1;
+
+	/**
+	 * Maximum number of characters per vulnerability attribute; longer values are
+	 * abbreviated. Attributes mapped to 0 are not generated at all, and issue
+	 * elements that are only used by disabled attributes are skipped rather than
+	 * being read and decoded. Attributes that are not listed are limited to
+	 * {@value #DEFAULT_ATTRIBUTE_MAX_LENGTH} characters if they are long string
+	 * attributes, and not limited otherwise; see {@link #getAttributeMaxLength(CustomVulnAttribute)}.
+	 */
+	@Builder.Default private final Map<CustomVulnAttribute, Integer> attributeMaxLengths = Collections.emptyMap();
+
+	/**
+	 * Maximum number of seconds a single parse may take; once exceeded, parsing
+	 * is aborted with an error. 0 (the default) doesn't limit parsing time.
+	 */
+	@Builder.Default private final int parseTimeoutSeconds = 0;
+
+	/**
+	 * Number of issues after which parsers check for thread interruption and
+	 * the parse time limit, and log progress if due.
+	 */
+	@Builder.Default private final int progressCheckInterval = 256;
+
+	/**
+	 * Minimum number of seconds between progress log messages, listing the number
+	 * of issues processed, bytes read and estimated remaining time; 0 disables
+	 * progress logging.
+	 */
+	@Builder.Default private final int progressLogIntervalSeconds = 60;
+
+	/**
+	 * StAX implementation used to read Burp XML exports; either one of the backend
+	 * names listed in {@link XmlInputFactories#BACKENDS}, or the fully qualified
+	 * class name of an {@link javax.xml.stream.XMLInputFactory} implementation.
+	 * Implementations that don't allow DTD processing and external entities to be
+	 * disabled are rejected, in which case the plugin falls back to the default.
+	 * Defaults to Woodstox, as used by previous plugin versions.
+	 */
+	@Builder.Default private final String xmlBackend = XmlInputFactories.WOODSTOX;
+
+	/**
+	 * Number of buffers used to read input ahead on a background thread, allowing
+	 * I/O on slow storage to overlap with parsing; less than 2 (like the default
+	 * of 0) disables read-ahead. Read-ahead is not useful on single-processor
+	 * systems, where the background thread would compete with parsing for the
+	 * only processor.
+	 */
+	@Builder.Default private final int readAheadBuffers = 0;
+
+	/**
+	 * Size of each read-ahead buffer in bytes
+	 */
+	@Builder.Default private final int readAheadBufferSize = 256*1024;
+
+	/**
+	 * Whether to scan the full input when parsing scan metadata, to report the
+	 * number of issues and distinct hosts as scan label, number of files and
+	 * (for single-host scans) host name. XML exports are scanned at byte level
+	 * without XML parsing; see {@link com.fortify.ssc.parser.burp.parser.ScanParser}.
+	 * Disabled by default, as this adds a full pass over the input.
+	 */
+	@Builder.Default private final boolean scanSummaryEnabled = false;
+
+	/**
+	 * Process-wide budget in megabytes for the issue and vulnerability payload
+	 * held in memory by all concurrently running parses. Parses that would exceed
+	 * the budget wait for other parses to complete, and then fall back to reduced
+	 * settings. Note that once settings that don't affect the output have been
+	 * exhausted, this includes smaller truncation limits for long attributes like
+	 * requests and responses. 0 (the default) disables the budget.
+	 */
+	@Builder.Default private final int memoryBudgetMegabytes = 0;
+
+	/**
+	 * Maximum number of seconds a parse waits for other parses to release memory
+	 * budget, before falling back to reduced settings
+	 */
+	@Builder.Default private final int memoryBudgetWaitSeconds = 30;
+
+	/**
+	 * @return Maximum number of characters for the given attribute, or 0 if the
+	 *         attribute is disabled
+	 */
+	public final int getAttributeMaxLength(CustomVulnAttribute attribute) {
+		Integer maxLength = attributeMaxLengths.get(attribute);
+		if ( maxLength!=null ) { return maxLength; }
+		return attribute.attributeType()==AttrType.LONG_STRING ? DEFAULT_ATTRIBUTE_MAX_LENGTH : Integer.MAX_VALUE;
+	}
+
+	public final boolean isAttributeEnabled(CustomVulnAttribute attribute) {
+		return getAttributeMaxLength(attribute)>0;
+	}
+
+	/**
+	 * Load the configuration from system properties
+	 */
+	public static final BurpParserConfig fromSystemProperties() {
+		BurpParserConfig config = builder()
+			.parallelism(getInt("parallelism", DEFAULT.parallelism))
+			.pipelineThreads(getInt("pipeline.threads", DEFAULT.pipelineThreads))
+			.pipelineQueueSize(Math.max(1, getInt("pipeline.queueSize", DEFAULT.pipelineQueueSize)))
+			.renderCacheSize(getInt("renderCache.size", DEFAULT.renderCacheSize))
+			.metricsEnabled(getBoolean("metrics.enabled", DEFAULT.metricsEnabled))
+			.aggregationKey(getAggregationKey("aggregation.key"))
+			.aggregationMaxGroups(getInt("aggregation.maxGroups", DEFAULT.aggregationMaxGroups))
+			.deltaIndexDirectory(System.getProperty(PROPERTY_PREFIX+"delta.indexDirectory", DEFAULT.deltaIndexDirectory))
+			.deltaIndexMaxMegabytesPerHost(getInt("delta.maxMegabytesPerHost", DEFAULT.deltaIndexMaxMegabytesPerHost))
+			.parseCacheDirectory(System.getProperty(PROPERTY_PREFIX+"parseCache.directory", DEFAULT.parseCacheDirectory))
+			.parseCacheMaxMegabytes(getInt("parseCache.maxMegabytes", DEFAULT.parseCacheMaxMegabytes))
+			.payloadSpillThreshold(getInt("payload.spillThreshold", DEFAULT.payloadSpillThreshold))
+			.maxTextBodySize(getInt("maxTextBodySize", DEFAULT.maxTextBodySize))
+			.scanEntryThreads(Math.max(1, getInt("scanEntries.threads", DEFAULT.scanEntryThreads)))
+			.attributeMaxLengths(getAttributeMaxLengths("attributes.disabled"))
+			.parseTimeoutSeconds(Math.max(0, getInt("parse.timeoutSeconds", DEFAULT.parseTimeoutSeconds)))
+			.progressCheckInterval(Math.max(1, getInt("progress.checkInterval", DEFAULT.progressCheckInterval)))
+			.progressLogIntervalSeconds(Math.max(0, getInt("progress.logIntervalSeconds", DEFAULT.progressLogIntervalSeconds)))
+			.xmlBackend(System.getProperty(PROPERTY_PREFIX+"xml.backend", DEFAULT.xmlBackend).trim())
+			.readAheadBuffers(getInt("readAhead.buffers", DEFAULT.readAheadBuffers))
+			.readAheadBufferSize(Math.max(4096, getInt("readAhead.bufferSize", DEFAULT.readAheadBufferSize)))
+			.scanSummaryEnabled(getBoolean("scanSummary.enabled", DEFAULT.scanSummaryEnabled))
+			.memoryBudgetMegabytes(Math.max(0, getInt("memoryBudget.megabytes", DEFAULT.memoryBudgetMegabytes)))
+			.memoryBudgetWaitSeconds(Math.max(0, getInt("memoryBudget.waitSeconds", DEFAULT.memoryBudgetWaitSeconds)))
+			.build();
+		LOG.debug("Loaded configuration {}", config);
+		return config;
+	}
+
+	private static final List<String> getAggregationKey(String name) {
+		String value = System.getProperty(PROPERTY_PREFIX+name);
+		List<String> result = new ArrayList<>();
+		if ( value!=null ) {
+			for ( String field : value.split(",") ) {
+				field = field.trim();
+				if ( AGGREGATION_KEY_FIELDS.contains(field) ) {
+					result.add(field);
+				} else if ( !field.isEmpty() ) {
+					LOG.warn("Ignoring unsupported aggregation key field {} in {}{}, supported fields: {}", field, PROPERTY_PREFIX, name, AGGREGATION_KEY_FIELDS);
+				}
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Get the attribute lengths configured through attribute.&lt;name&gt;.maxLength
+	 * properties, with all attributes listed in the given (comma-separated) property
+	 * mapped to 0 to disable them.
+	 */
+	private static final Map<CustomVulnAttribute, Integer> getAttributeMaxLengths(String disabledName) {
+		Map<CustomVulnAttribute, Integer> result = new EnumMap<>(CustomVulnAttribute.class);
+		for ( CustomVulnAttribute attribute : CustomVulnAttribute.values() ) {
+			String name = "attribute."+attribute.name()+".maxLength";
+			int maxLength = getInt(name, -1);
+			if ( maxLength>0 && maxLength<MIN_ATTRIBUTE_MAX_LENGTH ) {
+				LOG.warn("Value {} for {}{} is too small, using minimum value {}", maxLength, PROPERTY_PREFIX, name, MIN_ATTRIBUTE_MAX_LENGTH);
+				maxLength = MIN_ATTRIBUTE_MAX_LENGTH;
+			}
+			if ( maxLength>=0 ) {
+				result.put(attribute, maxLength);
+			}
+		}
+		String disabled = System.getProperty(PROPERTY_PREFIX+disabledName);
+		if ( disabled!=null ) {
+			for ( String field : disabled.split(",") ) {
+				field = field.trim();
+				try {
+					result.put(CustomVulnAttribute.valueOf(field), 0);
+				} catch ( IllegalArgumentException e ) {
+					if ( !field.isEmpty() ) {
+						LOG.warn("Ignoring unknown attribute {} in {}{}, supported attributes: {}", field, PROPERTY_PREFIX, disabledName, Arrays.asList(CustomVulnAttribute.values()));
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	private static final boolean getBoolean(String name, boolean defaultValue) {
+		String value = System.getProperty(PROPERTY_PREFIX+name);
+		return value==null ? defaultValue : Boolean.parseBoolean(value.trim());
+	}
+
+	private static final int getInt(String name, int defaultValue) {
+		String value = System.getProperty(PROPERTY_PREFIX+name);
+		try {
+			return value==null ? defaultValue : Integer.parseInt(value.trim());
+		} catch ( NumberFormatException e ) {
+			LOG.warn("Invalid value {} for {}{}, using default value {}", value, PROPERTY_PREFIX, name, defaultValue);
+			return defaultValue;
+		}
+	}
+}
@@ -1,6 +1,11 @@
 package com.fortify.ssc.parser.burp;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,20 +15,35 @@ import com.fortify.plugin.api.ScanData;
 import com.fortify.plugin.api.ScanParsingException;
 import com.fortify.plugin.api.VulnerabilityHandler;
 import com.fortify.plugin.spi.ParserPlugin;
+import com.fortify.ssc.parser.burp.metrics.DefaultParserMetrics;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics;
 import com.fortify.ssc.parser.burp.parser.ScanParser;
 import com.fortify.ssc.parser.burp.parser.VulnerabilitiesParser;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
 
 public class BurpParserPlugin implements ParserPlugin<CustomVulnAttribute> {
     private static final Logger LOG = LoggerFactory.getLogger(BurpParserPlugin.class);
+    public static final String METRICS_OBJECT_NAME = "com.fortify.ssc.parser.burp:type=ParserMetrics";
+    private BurpParserConfig config = BurpParserConfig.DEFAULT;
+    private DefaultParserMetrics metrics;
 
     @Override
     public void start() throws Exception {
         LOG.info("{} is starting", this.getClass().getSimpleName());
+        config = initXmlBackend(BurpParserConfig.fromSystemProperties());
+        if ( config.isMetricsEnabled() ) {
+            metrics = new DefaultParserMetrics();
+            registerMetrics(metrics);
+        }
     }
 
     @Override
     public void stop() throws Exception {
-        LOG.info("{} is starting", this.getClass().getSimpleName());
+        LOG.info("{} is stopping", this.getClass().getSimpleName());
+        if ( metrics!=null ) {
+            unregisterMetrics();
+            metrics = null;
+        }
     }
 
     @Override
@@ -33,11 +53,63 @@ public class BurpParserPlugin implements ParserPlugin<CustomVulnAttribute> {
 
     @Override
     public void parseScan(final ScanData scanData, final ScanBuilder scanBuilder) throws ScanParsingException, IOException {
-        new ScanParser(scanData, scanBuilder).parse();
+        ParserMetrics parseMetrics = createParseMetrics("parseScan");
+        try {
+            new ScanParser(scanData, scanBuilder, config, parseMetrics).parse();
+        } finally {
+            parseMetrics.parseCompleted();
+        }
     }
 
 	@Override
 	public void parseVulnerabilities(final ScanData scanData, final VulnerabilityHandler vulnerabilityHandler) throws ScanParsingException, IOException {
-		new VulnerabilitiesParser(scanData, vulnerabilityHandler).parse();
+		ParserMetrics parseMetrics = createParseMetrics("parseVulnerabilities");
+		try {
+			new VulnerabilitiesParser(scanData, vulnerabilityHandler, config, parseMetrics).parse();
+		} finally {
+			parseMetrics.parseCompleted();
+		}
+	}
+
+	private ParserMetrics createParseMetrics(String name) {
+		DefaultParserMetrics totals = metrics;
+		return totals==null ? ParserMetrics.NOOP : new DefaultParserMetrics(name, totals);
+	}
+
+	/**
+	 * Create and cache the XML input factory for the configured XML backend, falling
+	 * back to the default backend if the configured backend is not available.
+	 */
+	private static final BurpParserConfig initXmlBackend(BurpParserConfig config) {
+		String defaultBackend = BurpParserConfig.DEFAULT.getXmlBackend();
+		try {
+			XmlInputFactories.get(config.getXmlBackend());
+			return config;
+		} catch ( IllegalArgumentException e ) {
+			LOG.warn("{}, using default XML backend {}", e.getMessage(), defaultBackend);
+			XmlInputFactories.get(defaultBackend);
+			return config.toBuilder().xmlBackend(defaultBackend).build();
+		}
+	}
+
+	private static final void registerMetrics(DefaultParserMetrics metrics) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(METRICS_OBJECT_NAME);
+			if ( server.isRegistered(name) ) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(metrics, name);
+		} catch ( JMException e ) {
+			LOG.warn("Error registering parser metrics with JMX", e);
+		}
+	}
+
+	private static final void unregisterMetrics() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(METRICS_OBJECT_NAME));
+		} catch ( JMException e ) {
+			LOG.warn("Error unregistering parser metrics from JMX", e);
+		}
 	}
 }
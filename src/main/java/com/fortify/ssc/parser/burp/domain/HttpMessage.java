@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.ssc.parser.burp.domain;
+
+import java.nio.CharBuffer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlText;
+import com.fortify.ssc.parser.burp.util.HttpMessageDecoder;
+
+import lombok.Data;
+
+/**
+ * This class represents the 'request' and 'response' elements of a
+ * {@link RequestResponse}, including the 'base64' attribute that
+ * indicates whether the element content is Base64-encoded.
+ */
+@Data
+public class HttpMessage {
+	@JacksonXmlProperty(isAttribute = true) private String method;
+	@JacksonXmlProperty(isAttribute = true) private Boolean base64;
+	/** Message content; large payloads may be held in a memory-mapped {@link CharSequence} rather than a {@link String} */
+	@JacksonXmlText private CharSequence content;
+
+	/**
+	 * Burp always explicitly specifies the 'base64' attribute; if it is missing
+	 * we assume Base64-encoded content, as was done by previous plugin versions.
+	 */
+	public final boolean isBase64Encoded() {
+		return base64==null || base64;
+	}
+
+	/**
+	 * Get the decoded HTTP message, limited to the given number of characters.
+	 * Decoding stops once this limit has been reached, so callers that need to
+	 * know whether the message was truncated should request one character more
+	 * than they will actually use.
+	 * @return Decoded message, or null if this message doesn't have any content
+	 */
+	public final String getDecoded(int maxLength) {
+		return getDecoded(maxLength, 0);
+	}
+
+	/**
+	 * As {@link #getDecoded(int)}, but binary bodies and text bodies larger than
+	 * maxTextBodySize bytes (unless 0) are replaced by a summary; see {@link HttpMessageDecoder}.
+	 */
+	public final String getDecoded(int maxLength, long maxTextBodySize) {
+		return StringUtils.isBlank(content) ? null : HttpMessageDecoder.decode(content, isBase64Encoded(), maxLength, maxTextBodySize);
+	}
+
+	/**
+	 * As {@link #getDecoded(int, long)}, but decoding into the given buffer, limited
+	 * to the number of characters remaining in the buffer. Nothing is written to the
+	 * buffer if this message doesn't have any content.
+	 */
+	public final void decode(CharBuffer out, long maxTextBodySize) {
+		if ( StringUtils.isNotBlank(content) ) {
+			HttpMessageDecoder.decode(content, isBase64Encoded(), maxTextBodySize, out);
+		}
+	}
+}
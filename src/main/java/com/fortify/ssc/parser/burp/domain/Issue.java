@@ -24,7 +24,11 @@
  ******************************************************************************/
 package com.fortify.ssc.parser.burp.domain;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
@@ -34,7 +38,7 @@ import lombok.Data;
 @Data
 public class Issue {
 	@JsonProperty private String serialNumber;
-	//@JsonProperty private String type;
+	@JsonProperty private String type;
 	@JsonProperty private String name;
 	@JsonProperty private String host; // We don't use ip attribute
 	@JsonProperty private String path;
@@ -55,4 +59,18 @@ public class Issue {
 	@JacksonXmlElementWrapper(useWrapping = false)
 	@JacksonXmlProperty(localName = "dynamicAnalysis")
 	private List<DynamicAnalysis> dynamicAnalysis;
+	
+	/** Paths of elements that were truncated while reading, relative to the issue element */
+	@JsonIgnore private Set<String> truncatedElements;
+	
+	public final void addTruncatedElement(String path) {
+		if ( truncatedElements==null ) {
+			truncatedElements = new HashSet<>();
+		}
+		truncatedElements.add(path);
+	}
+	
+	public final boolean isTruncated(String path) {
+		return truncatedElements!=null && truncatedElements.contains(path);
+	}
 }
\ No newline at end of file
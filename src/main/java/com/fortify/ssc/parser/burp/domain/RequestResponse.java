@@ -24,29 +24,32 @@
  ******************************************************************************/
 package com.fortify.ssc.parser.burp.domain;
 
-import java.util.Base64;
-
-import org.apache.commons.lang3.StringUtils;
-
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.Data;
 
 @Data
 public class RequestResponse {
-	@JsonProperty private String request;
-	@JsonProperty private String response;
+	@JsonProperty private HttpMessage request;
+	@JsonProperty private HttpMessage response;
 	
 	public final String getRequestDecoded() {
-		return decode(getRequest());
+		return getRequestDecoded(Integer.MAX_VALUE);
 	}
 	
 	public final String getResponseDecoded() {
-		return decode(getResponse());
+		return getResponseDecoded(Integer.MAX_VALUE);
+	}
+	
+	public final String getRequestDecoded(int maxLength) {
+		return decode(getRequest(), maxLength);
+	}
+	
+	public final String getResponseDecoded(int maxLength) {
+		return decode(getResponse(), maxLength);
 	}
 
-	private final String decode(String encodedString) {
-		// Despite the 'base64=true|false' attribute, we assume requests and responses are always Base64-encoded so we don't handle IllegalArgumentException
-		return StringUtils.isBlank(encodedString) ? null :  new String(Base64.getDecoder().decode(encodedString));
+	private final String decode(HttpMessage message, int maxLength) {
+		return message==null ? null : message.getDecoded(maxLength);
 	}
 }
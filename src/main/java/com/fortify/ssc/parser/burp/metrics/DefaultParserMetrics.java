@@ -0,0 +1,190 @@
+package com.fortify.ssc.parser.burp.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link ParserMetrics} implementation. All counters are thread-safe,
+ * as issues may be bound and rendered on multiple threads; as such, phase
+ * timings represent the total time spent by all threads, which may exceed
+ * the elapsed parse time.
+ * 
+ * A new instance is created for every parse, optionally with a parent instance;
+ * once parsing has completed, a summary is logged and the collected metrics
+ * are added to the parent instance. The plugin registers such a parent
+ * instance with JMX to expose the metrics for all parses.
+ */
+public final class DefaultParserMetrics implements ParserMetrics, ParserMetricsMXBean {
+	private static final Logger LOG = LoggerFactory.getLogger(DefaultParserMetrics.class);
+	private final String name;
+	private final DefaultParserMetrics parent;
+	private final long startTime = System.nanoTime();
+	private final LongAdder parses = new LongAdder();
+	private final LongAdder issues = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder decodedChars = new LongAdder();
+	private final LongAdder truncatedFields = new LongAdder();
+	private final LongAccumulator peakIssuePayloadLength = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator peakMemoryReservation = new LongAccumulator(Math::max, 0);
+	private final LongAdder memoryWaitTimeMillis = new LongAdder();
+	private final LongAdder reducedSettingsParses = new LongAdder();
+	private final LongAdder parseTime = new LongAdder();
+	private final LongAdder[] phaseTimes = new LongAdder[Phase.values().length];
+
+	/**
+	 * Create an instance for accumulating the metrics of multiple parses
+	 */
+	public DefaultParserMetrics() {
+		this(null, null);
+	}
+
+	/**
+	 * Create an instance for collecting the metrics of a single parse with the
+	 * given name, adding the collected metrics to the given parent (if not null)
+	 * once parsing has completed.
+	 */
+	public DefaultParserMetrics(String name, DefaultParserMetrics parent) {
+		this.name = name;
+		this.parent = parent;
+		for ( int i = 0 ; i < phaseTimes.length ; i++ ) {
+			phaseTimes[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public long startTimer() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void stopTimer(Phase phase, long start) {
+		phaseTimes[phase.ordinal()].add(System.nanoTime()-start);
+	}
+
+	@Override
+	public InputStream countBytesRead(InputStream is) {
+		return new FilterInputStream(is) {
+			@Override
+			public int read() throws IOException {
+				int result = super.read();
+				if ( result>=0 ) { bytesRead.increment(); }
+				return result;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int result = super.read(b, off, len);
+				if ( result>0 ) { bytesRead.add(result); }
+				return result;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long result = super.skip(n);
+				bytesRead.add(result);
+				return result;
+			}
+		};
+	}
+
+	@Override
+	public void addIssue(long payloadLength) {
+		issues.increment();
+		peakIssuePayloadLength.accumulate(payloadLength);
+	}
+
+	@Override
+	public void addIssues(long count) {
+		issues.add(count);
+	}
+
+	@Override
+	public void addDecodedChars(long chars) {
+		decodedChars.add(chars);
+	}
+
+	@Override
+	public void addTruncatedField() {
+		truncatedFields.increment();
+	}
+
+	@Override
+	public void addMemoryReservation(long bytes, long waitMillis, boolean reducedSettings) {
+		peakMemoryReservation.accumulate(bytes);
+		memoryWaitTimeMillis.add(waitMillis);
+		if ( reducedSettings ) { reducedSettingsParses.increment(); }
+	}
+
+	@Override
+	public void parseCompleted() {
+		parses.increment();
+		parseTime.add(System.nanoTime()-startTime);
+		LOG.info("{}: {}", name, this);
+		if ( parent!=null ) {
+			parent.add(this);
+		}
+	}
+
+	private void add(DefaultParserMetrics other) {
+		parses.add(other.parses.sum());
+		issues.add(other.issues.sum());
+		bytesRead.add(other.bytesRead.sum());
+		decodedChars.add(other.decodedChars.sum());
+		truncatedFields.add(other.truncatedFields.sum());
+		peakIssuePayloadLength.accumulate(other.peakIssuePayloadLength.get());
+		peakMemoryReservation.accumulate(other.peakMemoryReservation.get());
+		memoryWaitTimeMillis.add(other.memoryWaitTimeMillis.sum());
+		reducedSettingsParses.add(other.reducedSettingsParses.sum());
+		parseTime.add(other.parseTime.sum());
+		for ( int i = 0 ; i < phaseTimes.length ; i++ ) {
+			phaseTimes[i].add(other.phaseTimes[i].sum());
+		}
+	}
+
+	@Override public long getParses() { return parses.sum(); }
+	@Override public long getIssues() { return issues.sum(); }
+	@Override public long getBytesRead() { return bytesRead.sum(); }
+	@Override public long getDecodedChars() { return decodedChars.sum(); }
+	@Override public long getTruncatedFields() { return truncatedFields.sum(); }
+	@Override public long getPeakIssuePayloadLength() { return peakIssuePayloadLength.get(); }
+	@Override public long getPeakMemoryReservationBytes() { return peakMemoryReservation.get(); }
+	@Override public long getMemoryWaitTimeMillis() { return memoryWaitTimeMillis.sum(); }
+	@Override public long getReducedSettingsParses() { return reducedSettingsParses.sum(); }
+	@Override public long getParseTimeMillis() { return toMillis(parseTime); }
+	@Override public long getBindTimeMillis() { return getPhaseTimeMillis(Phase.BIND); }
+	@Override public long getDecodeTimeMillis() { return getPhaseTimeMillis(Phase.DECODE); }
+	@Override public long getRenderTimeMillis() { return getPhaseTimeMillis(Phase.RENDER); }
+	@Override public long getEmitTimeMillis() { return getPhaseTimeMillis(Phase.EMIT); }
+
+	@Override
+	public double getIssuesPerSecond() {
+		long parseTimeNanos = parseTime.sum();
+		return parseTimeNanos==0 ? 0 : issues.sum()*1e9/parseTimeNanos;
+	}
+
+	public long getPhaseTimeMillis(Phase phase) {
+		return toMillis(phaseTimes[phase.ordinal()]);
+	}
+
+	private static final long toMillis(LongAdder nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d issues, %d bytes in %d ms (%.1f issues/s); bind %d ms, render %d ms (decode %d ms), emit %d ms; "
+				+ "%d decoded chars, %d truncated fields, peak issue payload %d chars; "
+				+ "peak memory reservation %d bytes, %d ms waiting for memory, %d parses with reduced settings",
+				getIssues(), getBytesRead(), getParseTimeMillis(), getIssuesPerSecond(),
+				getBindTimeMillis(), getRenderTimeMillis(), getDecodeTimeMillis(), getEmitTimeMillis(),
+				getDecodedChars(), getTruncatedFields(), getPeakIssuePayloadLength(),
+				getPeakMemoryReservationBytes(), getMemoryWaitTimeMillis(), getReducedSettingsParses());
+	}
+}
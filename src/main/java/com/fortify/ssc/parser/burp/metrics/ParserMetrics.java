@@ -0,0 +1,88 @@
+package com.fortify.ssc.parser.burp.metrics;
+
+import java.io.InputStream;
+
+/**
+ * Collects parser metrics. Parsers call these methods unconditionally; the
+ * {@link #NOOP} implementation used when metrics are disabled doesn't even
+ * read the system clock, so instrumentation costs next to nothing unless
+ * enabled.
+ * 
+ * Timings are collected by calling {@link #startTimer()} before, and
+ * {@link #stopTimer(Phase, long)} after each measured operation.
+ */
+public interface ParserMetrics {
+	/** Parser phases for which timings are collected */
+	public static enum Phase {
+		/** Binding issue elements to Issue instances */
+		BIND,
+		/** Decoding requests and responses; this is part of the time spent in {@link #RENDER} */
+		DECODE,
+		/** Rendering issues into vulnerability attributes */
+		RENDER,
+		/** Passing rendered vulnerabilities to SSC */
+		EMIT
+	}
+
+	/** {@link ParserMetrics} implementation that ignores all metrics */
+	public static final ParserMetrics NOOP = new ParserMetrics() {
+		@Override public long startTimer() { return 0; }
+		@Override public void stopTimer(Phase phase, long start) {}
+		@Override public InputStream countBytesRead(InputStream is) { return is; }
+		@Override public void addIssue(long payloadLength) {}
+		@Override public void addIssues(long count) {}
+		@Override public void addDecodedChars(long chars) {}
+		@Override public void addTruncatedField() {}
+		@Override public void addMemoryReservation(long bytes, long waitMillis, boolean reducedSettings) {}
+		@Override public void parseCompleted() {}
+	};
+
+	/**
+	 * @return Opaque start time to be passed to {@link #stopTimer(Phase, long)}
+	 */
+	public long startTimer();
+
+	/**
+	 * Add the time elapsed since the given start time to the given phase
+	 */
+	public void stopTimer(Phase phase, long start);
+
+	/**
+	 * @return {@link InputStream} that counts the number of bytes read from the given {@link InputStream}
+	 */
+	public InputStream countBytesRead(InputStream is);
+
+	/**
+	 * Count an issue that was passed to SSC, with the given total length of its rendered attributes
+	 */
+	public void addIssue(long payloadLength);
+
+	/**
+	 * Count the given number of issues that were processed without being passed
+	 * to SSC, like the issues counted while parsing the scan metadata
+	 */
+	public void addIssues(long count);
+
+	/**
+	 * Add the given number of characters decoded from requests and responses
+	 */
+	public void addDecodedChars(long chars);
+
+	/**
+	 * Count a vulnerability attribute that was truncated to the maximum attribute
+	 * length while rendering, or that was rendered from an element that was
+	 * truncated while reading. Cached sections are only counted when first rendered.
+	 */
+	public void addTruncatedField();
+
+	/**
+	 * Record the memory budget reserved for a parse, the time spent waiting for
+	 * the reservation, and whether the parse falls back to reduced settings
+	 */
+	public void addMemoryReservation(long bytes, long waitMillis, boolean reducedSettings);
+
+	/**
+	 * Signal that parsing has completed, allowing implementations to report the collected metrics
+	 */
+	public void parseCompleted();
+}
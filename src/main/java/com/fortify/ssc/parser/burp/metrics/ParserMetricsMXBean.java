@@ -0,0 +1,23 @@
+package com.fortify.ssc.parser.burp.metrics;
+
+/**
+ * JMX interface exposing the metrics collected by {@link DefaultParserMetrics},
+ * accumulated over all parses since the plugin was started.
+ */
+public interface ParserMetricsMXBean {
+	public long getParses();
+	public long getIssues();
+	public long getBytesRead();
+	public long getDecodedChars();
+	public long getTruncatedFields();
+	public long getPeakIssuePayloadLength();
+	public long getPeakMemoryReservationBytes();
+	public long getMemoryWaitTimeMillis();
+	public long getReducedSettingsParses();
+	public long getParseTimeMillis();
+	public long getBindTimeMillis();
+	public long getDecodeTimeMillis();
+	public long getRenderTimeMillis();
+	public long getEmitTimeMillis();
+	public double getIssuesPerSecond();
+}
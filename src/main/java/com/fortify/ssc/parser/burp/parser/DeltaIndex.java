@@ -0,0 +1,433 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.ssc.parser.burp.util.Fingerprint;
+
+/**
+ * On-disk index of the vulnerabilities rendered by previous imports, used to
+ * avoid rendering unchanged issues again. SSC requires every import to provide
+ * all vulnerability data, so unchanged issues are still passed to SSC in full,
+ * but their attributes are read from the index instead of decoding
+ * requests/responses and rendering HTML.
+ *
+ * The index is stored per host in the configured directory, as two files named
+ * after a fingerprint of the host name:
+ * <ul>
+ *  <li>&lt;fingerprint&gt;.dat: serialized {@link VulnerabilityRecord} instances;
+ *      records rendered during an import are appended to this file, records
+ *      reused from previous imports are left in place</li>
+ *  <li>&lt;fingerprint&gt;.idx: instance id, issue fingerprint, offset and length
+ *      of every record in the last successful import; this file is replaced once
+ *      parsing has completed successfully</li>
+ * </ul>
+ * Both files start with the same random file id, to detect an index that doesn't
+ * belong to the data file. Writes are not forced to disk; instead, the index holds
+ * a CRC32 checksum of every record, so records that were not completely written
+ * before a crash are detected, and rendered again. Once records that are no longer referenced take up
+ * more than half of the data file, the live records are copied to a new data file.
+ *
+ * Bounds:
+ * <ul>
+ *  <li>Memory: the index entries for each host in the current scan; roughly
+ *      150 bytes per issue. Record data is read from disk on demand.</li>
+ *  <li>Disk: per host, the data file is limited to the configured maximum size;
+ *      records that don't fit are not stored, and will be rendered again on the
+ *      next import. The .idx file takes roughly 35 bytes plus the instance id
+ *      length per stored record.</li>
+ *  <li>Concurrency: the data file for a host is locked by the first import that
+ *      stores records for that host; concurrent imports of the same host still
+ *      reuse records from the index, but don't update it.</li>
+ * </ul>
+ * Errors while reading or writing the index are logged, and cause issues to be
+ * rendered as if delta import was disabled, rather than failing the import.
+ */
+final class DeltaIndex implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(DeltaIndex.class);
+	private static final int MAGIC = 0x42555250; // BURP
+	private static final int VERSION = 1;
+	/** Size of the data file header: magic, version and file id */
+	private static final int DATA_HEADER_LENGTH = 16;
+	private final Path directory;
+	private final long maxBytesPerHost;
+	private final ConcurrentMap<String, HostIndex> hosts = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public DeltaIndex(Path directory, long maxBytesPerHost) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.maxBytesPerHost = maxBytesPerHost;
+	}
+
+	/**
+	 * Get the record rendered for the given host and instance id during a previous
+	 * import, if the issue fingerprint is unchanged. This method is thread-safe.
+	 * @return Previously rendered record, or null if not available or changed
+	 */
+	public VulnerabilityRecord lookup(String host, String instanceId, long fingerprint) {
+		VulnerabilityRecord result = getHostIndex(host).read(instanceId, fingerprint);
+		(result==null ? misses : hits).increment();
+		return result;
+	}
+
+	/**
+	 * Store the given record, rendered from an issue with the given host and
+	 * fingerprint, for use by the next import. The host must be the issue host
+	 * as passed to {@link #lookup(String, String, long)}, rather than the host
+	 * attribute, which may be truncated or disabled. Records previously stored
+	 * with the same instance id and fingerprint are reused as-is. This method
+	 * must be called from a single thread.
+	 */
+	public void store(String host, VulnerabilityRecord record, long fingerprint) {
+		getHostIndex(host).write(record, fingerprint);
+	}
+
+	/**
+	 * Make the records stored during this import available to the next import
+	 */
+	public void commit() {
+		for ( HostIndex hostIndex : hosts.values() ) {
+			hostIndex.commit();
+		}
+		LOG.info("Delta import: {} unchanged issues reused, {} issues rendered", hits.sum(), misses.sum());
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public void close() {
+		for ( HostIndex hostIndex : hosts.values() ) {
+			hostIndex.close();
+		}
+		hosts.clear();
+	}
+
+	private HostIndex getHostIndex(String host) {
+		return hosts.computeIfAbsent(String.valueOf(host), HostIndex::new);
+	}
+
+	private static final void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static final class Entry {
+		private final String instanceId;
+		private final long fingerprint;
+		private final long offset;
+		private final int length;
+		private final int checksum;
+
+		private Entry(String instanceId, long fingerprint, long offset, int length, int checksum) {
+			this.instanceId = instanceId;
+			this.fingerprint = fingerprint;
+			this.offset = offset;
+			this.length = length;
+			this.checksum = checksum;
+		}
+	}
+
+	/**
+	 * Index and data file for a single host. Entries of the previous import are
+	 * loaded on creation, and may be read concurrently through the reader channel;
+	 * the data file is opened for writing, and locked, on the first write.
+	 */
+	private final class HostIndex {
+		private final String host;
+		private final Path indexFile;
+		private final Path dataFile;
+		private final Map<String, Entry> previous = new HashMap<>();
+		private final List<Entry> next = new ArrayList<>();
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private long fileId;
+		private FileChannel reader;
+		private FileChannel writer;
+		private FileLock lock;
+		/** Whether the writer appends to the data file referenced by the previous entries */
+		private boolean reuseInPlace;
+		private long dataSize;
+		private long liveBytes;
+		private long skipped;
+		private boolean writable = true;
+
+		private HostIndex(String host) {
+			this.host = host;
+			String name = Long.toHexString(Fingerprint.of(host));
+			this.indexFile = directory.resolve(name+".idx");
+			this.dataFile = directory.resolve(name+".dat");
+			try {
+				this.reader = openReader();
+				loadIndex();
+			} catch ( IOException e ) {
+				LOG.warn("Error reading delta index for host "+host+", rendering all issues", e);
+				previous.clear();
+				writable = false;
+			}
+		}
+
+		private FileChannel openReader() throws IOException {
+			try {
+				FileChannel result = FileChannel.open(dataFile, StandardOpenOption.READ);
+				Long id = readFileId(result);
+				if ( id!=null ) {
+					fileId = id;
+					return result;
+				}
+				result.close();
+				LOG.warn("Ignoring incompatible delta index data for host {}", host);
+			} catch ( NoSuchFileException e ) {
+				// No data file yet
+			}
+			return null;
+		}
+
+		/**
+		 * @return File id from the header of the given data file, or null if the
+		 *         file doesn't have a (compatible) header
+		 */
+		private Long readFileId(FileChannel channel) throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_LENGTH);
+			try {
+				readFully(channel, header, 0);
+			} catch ( EOFException e ) {
+				return null;
+			}
+			header.flip();
+			return header.getInt()==MAGIC && header.getInt()==VERSION ? header.getLong() : null;
+		}
+
+		private void loadIndex() throws IOException {
+			if ( reader==null ) { return; }
+			try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile))) ) {
+				if ( in.readInt()!=MAGIC || in.readInt()!=VERSION || in.readLong()!=fileId ) {
+					LOG.warn("Ignoring delta index for host {} as it doesn't match the data file", host);
+					return;
+				}
+				while ( true ) {
+					Entry entry = new Entry(VulnerabilityRecord.readString(in), in.readLong(), in.readLong(), in.readInt(), in.readInt());
+					previous.put(entry.instanceId, entry);
+				}
+			} catch ( EOFException | NoSuchFileException e ) {
+				// End of index, or no index yet
+			}
+		}
+
+		private VulnerabilityRecord read(String instanceId, long fingerprint) {
+			Entry entry = previous.get(instanceId);
+			if ( entry==null || entry.fingerprint!=fingerprint ) {
+				return null;
+			}
+			try {
+				ByteBuffer bytes = ByteBuffer.allocate(entry.length);
+				readFully(reader, bytes, entry.offset);
+				if ( getChecksum(bytes.array(), entry.length)!=entry.checksum ) {
+					throw new IOException("Checksum mismatch");
+				}
+				return VulnerabilityRecord.read(new DataInputStream(new ByteArrayInputStream(bytes.array())));
+			} catch ( IOException e ) {
+				LOG.warn("Error reading delta index data for host "+host+", rendering issue "+instanceId, e);
+				return null;
+			}
+		}
+
+		private void write(VulnerabilityRecord record, long fingerprint) {
+			if ( !writable ) { return; }
+			try {
+				Entry entry = previous.get(record.getInstanceId());
+				if ( lock==null && !lock() ) { return; }
+				if ( !reuseInPlace || entry==null || entry.fingerprint!=fingerprint ) {
+					entry = append(record, fingerprint);
+				}
+				if ( entry!=null ) {
+					next.add(entry);
+					liveBytes += entry.length;
+				}
+			} catch ( IOException e ) {
+				LOG.warn("Error writing delta index for host "+host+", not updating index", e);
+				writable = false;
+			}
+		}
+
+		private Entry append(VulnerabilityRecord record, long fingerprint) throws IOException {
+			buffer.reset();
+			record.write(new DataOutputStream(buffer));
+			if ( dataSize+buffer.size()>maxBytesPerHost ) {
+				skipped++;
+				return null;
+			}
+			byte[] bytes = buffer.toByteArray();
+			Entry entry = new Entry(record.getInstanceId(), fingerprint, dataSize, bytes.length, getChecksum(bytes, bytes.length));
+			writeFully(writer, ByteBuffer.wrap(bytes), dataSize);
+			dataSize += buffer.size();
+			return entry;
+		}
+
+		/**
+		 * Open the data file for writing, and lock it against concurrent imports.
+		 * If the data file has been replaced since loading the previous entries,
+		 * all records are appended to the new data file.
+		 * @return false if another import holds the lock
+		 */
+		private boolean lock() throws IOException {
+			FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+			try {
+				lock = channel.tryLock();
+			} catch ( OverlappingFileLockException e ) {
+				lock = null;
+			}
+			if ( lock==null ) {
+				channel.close();
+				LOG.info("Delta index for host {} is being updated by another import, not updating index", host);
+				writable = false;
+				return false;
+			}
+			writer = channel;
+			Long id = readFileId(channel);
+			if ( id==null ) {
+				startDataFile(channel);
+			} else {
+				reuseInPlace = reader!=null && id==fileId;
+				fileId = id;
+			}
+			dataSize = channel.size();
+			return true;
+		}
+
+		private void startDataFile(FileChannel channel) throws IOException {
+			fileId = ThreadLocalRandom.current().nextLong();
+			reuseInPlace = false;
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_LENGTH).putInt(MAGIC).putInt(VERSION).putLong(fileId);
+			header.flip();
+			writeFully(channel, header, 0);
+		}
+
+		private void commit() {
+			if ( !writable ) { return; }
+			try {
+				if ( lock==null && !lock() ) { return; }
+				if ( skipped>0 ) {
+					LOG.info("Delta index for host {} reached its maximum size; {} issues will be rendered again on the next import", host, skipped);
+				}
+				if ( dataSize-DATA_HEADER_LENGTH>2*liveBytes ) {
+					compact();
+				} else {
+					writeIndex();
+				}
+			} catch ( IOException e ) {
+				LOG.warn("Error updating delta index for host "+host, e);
+			}
+		}
+
+		/**
+		 * Copy all live records to a new data file, and write a matching index. The
+		 * file ids in both files protect against mismatches if we fail in between
+		 * moving the data file and the index file.
+		 */
+		private void compact() throws IOException {
+			Path compactedFile = dataFile.resolveSibling(dataFile.getFileName()+".compact");
+			try ( FileChannel compacted = FileChannel.open(compactedFile, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING) ) {
+				startDataFile(compacted);
+				long offset = DATA_HEADER_LENGTH;
+				for ( int i = 0 ; i < next.size() ; i++ ) {
+					Entry entry = next.get(i);
+					ByteBuffer bytes = ByteBuffer.allocate(entry.length);
+					readFully(writer, bytes, entry.offset);
+					bytes.flip();
+					writeFully(compacted, bytes, offset);
+					next.set(i, new Entry(entry.instanceId, entry.fingerprint, offset, entry.length, entry.checksum));
+					offset += entry.length;
+				}
+			}
+			LOG.debug("Compacted delta index data for host {} from {} to {} bytes", host, dataSize, liveBytes+DATA_HEADER_LENGTH);
+			move(compactedFile, dataFile);
+			writeIndex();
+		}
+
+		private void writeIndex() throws IOException {
+			Path tmpFile = indexFile.resolveSibling(indexFile.getFileName()+".tmp");
+			try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile))) ) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(fileId);
+				for ( Entry entry : next ) {
+					VulnerabilityRecord.writeString(out, entry.instanceId);
+					out.writeLong(entry.fingerprint);
+					out.writeLong(entry.offset);
+					out.writeInt(entry.length);
+					out.writeInt(entry.checksum);
+				}
+			}
+			move(tmpFile, indexFile);
+		}
+
+		private void close() {
+			try {
+				if ( lock!=null ) { lock.release(); }
+				if ( writer!=null ) { writer.close(); }
+				if ( reader!=null ) { reader.close(); }
+			} catch ( IOException e ) {
+				LOG.warn("Error closing delta index for host "+host, e);
+			}
+		}
+	}
+
+	private static final int getChecksum(byte[] bytes, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, length);
+		return (int)crc.getValue();
+	}
+
+	private static final void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while ( buffer.hasRemaining() ) {
+			if ( channel.read(buffer, position+buffer.position())<0 ) {
+				throw new EOFException("Unexpected end of delta index data");
+			}
+		}
+	}
+
+	private static final void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while ( buffer.hasRemaining() ) {
+			channel.write(buffer, position+buffer.position());
+		}
+	}
+}
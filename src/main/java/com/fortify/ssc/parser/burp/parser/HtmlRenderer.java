@@ -0,0 +1,208 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.nio.CharBuffer;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * This class renders the HTML text of vulnerability attributes into a
+ * reusable buffer. The maximum attribute length is enforced while writing:
+ * once the output would exceed the maximum length, it is abbreviated in
+ * the same way as {@link StringUtils#abbreviate(String, int)} and any
+ * further output is ignored, so we never build text only to abbreviate it
+ * afterwards. The only difference with abbreviating the full text is that
+ * output is never cut in the middle of an escaped character like &amp;amp;,
+ * so abbreviated output may be a few characters shorter than the maximum.
+ *
+ * Section text is written as-is, as Burp provides issue details, remediation
+ * and references as HTML. Code blocks, like HTTP requests and responses, are
+ * HTML-escaped.
+ *
+ * Each thread has a single instance, obtained through {@link #get(int)}, which
+ * is reset on every call. Callers must convert the output to a {@link String}
+ * using {@link #toString()} before rendering the next attribute.
+ */
+final class HtmlRenderer {
+	private static final ThreadLocal<HtmlRenderer> INSTANCE = ThreadLocal.withInitial(HtmlRenderer::new);
+	static final String CODE_PREFIX = "<pre><code>";
+	static final String CODE_SUFFIX = "</code></pre>";
+	private static final String ELLIPSIS = "...";
+	private final StringBuilder sb = new StringBuilder();
+	private CharBuffer decodeBuffer = CharBuffer.allocate(0);
+	/** Maximum output length; may be temporarily lowered while writing a code block */
+	private int limit;
+	/** Whether output has been abbreviated, in which case further output is ignored */
+	private boolean abbreviated;
+	/** Whether any output has been abbreviated or marked as truncated since the last reset */
+	private boolean truncated;
+	/** Start and end of the last escaped character written, to avoid abbreviating in the middle of it */
+	private int lastEscapeStart, lastEscapeEnd;
+
+	private HtmlRenderer() {}
+
+	/**
+	 * Get the renderer for the current thread, reset to render a new attribute
+	 * value of at most the given number of characters.
+	 */
+	static final HtmlRenderer get(int maxLength) {
+		HtmlRenderer renderer = INSTANCE.get();
+		renderer.sb.setLength(0);
+		renderer.limit = maxLength;
+		renderer.abbreviated = false;
+		renderer.truncated = false;
+		renderer.lastEscapeStart = renderer.lastEscapeEnd = 0;
+		return renderer;
+	}
+
+	/**
+	 * Get a cleared buffer for decoding (at most) the given number of characters,
+	 * to be passed to {@link #code(CharSequence, boolean)} after flipping. The
+	 * buffer is reused on every call.
+	 */
+	final CharBuffer getDecodeBuffer(int capacity) {
+		if ( decodeBuffer.capacity()<capacity ) {
+			decodeBuffer = CharBuffer.allocate(capacity);
+		}
+		decodeBuffer.clear().limit(capacity);
+		return decodeBuffer;
+	}
+
+	/**
+	 * Write a section with the given header and HTML text, if the text is not blank
+	 */
+	final HtmlRenderer section(String header, CharSequence text) {
+		if ( StringUtils.isNotBlank(text) ) {
+			raw("<b>").raw(header).raw("</b><br/>\n").raw(text).raw("<br/>\n");
+		}
+		return this;
+	}
+
+	/**
+	 * Write the given HTML text as-is
+	 */
+	final HtmlRenderer raw(CharSequence text) {
+		append(text, 0, text.length());
+		return this;
+	}
+
+	/**
+	 * Write the given code as an HTML-escaped code block, if the code is not blank.
+	 * The code is abbreviated such that the full code block, including the closing
+	 * tags, fits within the maximum length.
+	 * @param truncated Whether the code was truncated before rendering, in which
+	 *        case the code is always abbreviated
+	 */
+	final HtmlRenderer code(CharSequence code, boolean truncated) {
+		if ( StringUtils.isBlank(code) ) { return this; }
+		raw(CODE_PREFIX);
+		if ( !abbreviated ) {
+			int outerLimit = limit;
+			limit -= CODE_SUFFIX.length();
+			escaped(code);
+			if ( truncated ) {
+				raw(ELLIPSIS);
+				this.truncated = true;
+			}
+			// Abbreviating the code doesn't prevent writing the closing tags
+			limit = outerLimit;
+			abbreviated = false;
+			raw(CODE_SUFFIX);
+		}
+		return this;
+	}
+
+	/**
+	 * @return true if any of the output written since the last reset was
+	 *         abbreviated, or written as a code block that was truncated
+	 *         before rendering
+	 */
+	final boolean isTruncated() {
+		return truncated;
+	}
+
+	@Override
+	public String toString() {
+		return sb.toString();
+	}
+
+	private final void escaped(CharSequence text) {
+		if ( text instanceof CharBuffer && ((CharBuffer)text).hasArray() ) {
+			// Avoid per-character access through the CharSequence interface for decoded HTTP messages
+			CharBuffer buffer = (CharBuffer)text;
+			int offset = buffer.arrayOffset()+buffer.position();
+			escaped(buffer.array(), offset, offset+buffer.remaining());
+		} else {
+			char[] chars = text.toString().toCharArray();
+			escaped(chars, 0, chars.length);
+		}
+	}
+
+	private final void escaped(char[] text, int start, int end) {
+		int unescaped = start;
+		for ( int i = start ; i < end && !abbreviated ; i++ ) {
+			String escape = getEscape(text[i]);
+			if ( escape!=null ) {
+				append(text, unescaped, i);
+				appendEscape(escape);
+				unescaped = i+1;
+			}
+		}
+		append(text, unescaped, end);
+	}
+
+	private static final String getEscape(char c) {
+		switch ( c ) {
+		case '&': return "&amp;";
+		case '<': return "&lt;";
+		case '>': return "&gt;";
+		default: return null;
+		}
+	}
+
+	private final void append(CharSequence text, int start, int end) {
+		if ( abbreviated || start>=end ) { return; }
+		if ( sb.length()+end-start<=limit ) {
+			sb.append(text, start, end);
+		} else {
+			int cut = limit-ELLIPSIS.length();
+			if ( sb.length()<cut ) {
+				sb.append(text, start, start+cut-sb.length());
+			}
+			abbreviate(cut);
+		}
+	}
+
+	private final void append(char[] text, int start, int end) {
+		if ( abbreviated || start>=end ) { return; }
+		if ( sb.length()+end-start<=limit ) {
+			sb.append(text, start, end-start);
+		} else {
+			int cut = limit-ELLIPSIS.length();
+			if ( sb.length()<cut ) {
+				sb.append(text, start, cut-sb.length());
+			}
+			abbreviate(cut);
+		}
+	}
+
+	private final void appendEscape(String escape) {
+		if ( abbreviated ) { return; }
+		if ( sb.length()+escape.length()<=limit ) {
+			lastEscapeStart = sb.length();
+			sb.append(escape);
+			lastEscapeEnd = sb.length();
+		} else {
+			abbreviate(Math.min(sb.length(), limit-ELLIPSIS.length()));
+		}
+	}
+
+	private final void abbreviate(int cut) {
+		if ( lastEscapeStart<cut && cut<lastEscapeEnd ) {
+			cut = lastEscapeStart;
+		}
+		sb.setLength(cut);
+		sb.append(ELLIPSIS);
+		abbreviated = true;
+		truncated = true;
+	}
+}
@@ -0,0 +1,269 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import com.fortify.ssc.parser.burp.domain.DynamicAnalysis;
+import com.fortify.ssc.parser.burp.domain.HttpMessage;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.domain.RequestResponse;
+import com.fortify.ssc.parser.burp.util.BoundedStringWriter;
+import com.fortify.ssc.parser.burp.util.PayloadSpillFile;
+
+/**
+ * This class binds /issues/issue elements to {@link Issue} instances directly
+ * from an {@link XMLStreamReader}. Only the elements contained in the configured
+ * projection are bound; all other elements are skipped at the StAX level before
+ * any of their character data is collected. Projection entries map element paths
+ * relative to the issue element, like 'name' or 'requestresponse/request', to the
+ * maximum number of characters to be collected for that element. Once this limit
+ * is reached, the remaining character data of the element is skipped without being
+ * collected, and the element path is recorded in {@link Issue#getTruncatedElements()}.
+ * Optionally, request and response contents are spilled to a {@link PayloadSpillFile}.
+ */
+final class IssueBinder {
+	static final String REQUEST_RESPONSE = "requestresponse";
+	static final String DYNAMIC_ANALYSIS = "dynamicAnalysis";
+	/** Setters for issue elements, also used by {@link IssueJsonReader} */
+	static final Map<String, BiConsumer<Issue, String>> ISSUE_FIELDS = new HashMap<>();
+	static final Map<String, BiConsumer<DynamicAnalysis, String>> DYNAMIC_ANALYSIS_FIELDS = new HashMap<>();
+	static {
+		ISSUE_FIELDS.put("serialNumber", Issue::setSerialNumber);
+		ISSUE_FIELDS.put("type", Issue::setType);
+		ISSUE_FIELDS.put("name", Issue::setName);
+		ISSUE_FIELDS.put("host", Issue::setHost);
+		ISSUE_FIELDS.put("path", Issue::setPath);
+		ISSUE_FIELDS.put("severity", Issue::setSeverity);
+		ISSUE_FIELDS.put("confidence", Issue::setConfidence);
+		ISSUE_FIELDS.put("issueBackground", Issue::setIssueBackground);
+		ISSUE_FIELDS.put("remediationBackground", Issue::setRemediationBackground);
+		ISSUE_FIELDS.put("references", Issue::setReferences);
+		ISSUE_FIELDS.put("vulnerabilityClassifications", Issue::setVulnerabilityClassifications);
+		ISSUE_FIELDS.put("issueDetail", Issue::setIssueDetail);
+		ISSUE_FIELDS.put("remediationDetail", Issue::setRemediationDetail);
+
+		DYNAMIC_ANALYSIS_FIELDS.put("source", DynamicAnalysis::setSource);
+		DYNAMIC_ANALYSIS_FIELDS.put("sink", DynamicAnalysis::setSink);
+		DYNAMIC_ANALYSIS_FIELDS.put("sourceStackTrace", DynamicAnalysis::setSourceStackTrace);
+		DYNAMIC_ANALYSIS_FIELDS.put("sinkStackTrace", DynamicAnalysis::setSinkStackTrace);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventListenerStackTrace", DynamicAnalysis::setEventListenerStackTrace);
+		DYNAMIC_ANALYSIS_FIELDS.put("sourceValue", DynamicAnalysis::setSourceValue);
+		DYNAMIC_ANALYSIS_FIELDS.put("sinkValue", DynamicAnalysis::setSinkValue);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventHandlerData", DynamicAnalysis::setEventHandlerData);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventHandlerDataType", DynamicAnalysis::setEventHandlerDataType);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventHandlerManipulatedData", DynamicAnalysis::setEventHandlerManipulatedData);
+		DYNAMIC_ANALYSIS_FIELDS.put("poc", DynamicAnalysis::setPoc);
+		DYNAMIC_ANALYSIS_FIELDS.put("origin", DynamicAnalysis::setOrigin);
+		DYNAMIC_ANALYSIS_FIELDS.put("isOriginChecked", DynamicAnalysis::setIsOriginChecked);
+		DYNAMIC_ANALYSIS_FIELDS.put("sourceElementId", DynamicAnalysis::setSourceElementId);
+		DYNAMIC_ANALYSIS_FIELDS.put("sourceElementName", DynamicAnalysis::setSourceElementName);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventFiredEventName", DynamicAnalysis::setEventFiredEventName);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventFiredElementId", DynamicAnalysis::setEventFiredElementId);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventFiredElementName", DynamicAnalysis::setEventFiredElementName);
+		DYNAMIC_ANALYSIS_FIELDS.put("eventFiredOuterHtml", DynamicAnalysis::setEventFiredOuterHtml);
+	}
+
+	private final Map<String, Integer> projection;
+	private final boolean bindRequestResponse;
+	private final boolean bindDynamicAnalysis;
+	private final PayloadSpillFile spillFile;
+
+	/**
+	 * Create an {@link IssueBinder} for the given projection
+	 * @param projection Element paths, relative to the issue element, to be bound,
+	 *        mapped to the maximum number of characters to be collected for each element
+	 */
+	public IssueBinder(Map<String, Integer> projection) {
+		this(projection, null);
+	}
+
+	/**
+	 * As {@link #IssueBinder(Map)}, but spilling large request and response contents
+	 * to the given {@link PayloadSpillFile}, if not null.
+	 */
+	public IssueBinder(Map<String, Integer> projection, PayloadSpillFile spillFile) {
+		this.spillFile = spillFile;
+		this.projection = Collections.unmodifiableMap(new HashMap<>(projection));
+		this.bindRequestResponse = hasChildren(projection.keySet(), REQUEST_RESPONSE);
+		this.bindDynamicAnalysis = hasChildren(projection.keySet(), DYNAMIC_ANALYSIS);
+	}
+
+	/**
+	 * Bind the issue element at the current position of the given {@link XMLStreamReader}.
+	 * The reader must be positioned at the start of the issue element, and will be
+	 * positioned at the corresponding end element once this method returns.
+	 */
+	public Issue bind(XMLStreamReader xsr) throws XMLStreamException {
+		return bind(xsr, new BoundedStringWriter());
+	}
+
+	/**
+	 * As {@link #bind(XMLStreamReader)}, but collecting element text through the given
+	 * {@link BoundedStringWriter}. Callers binding many issues on a single thread should
+	 * reuse a single writer, to avoid re-growing its buffer for every issue.
+	 */
+	public Issue bind(XMLStreamReader xsr, BoundedStringWriter writer) throws XMLStreamException {
+		Issue issue = new Issue();
+		while ( xsr.nextTag()==XMLStreamConstants.START_ELEMENT ) {
+			String name = xsr.getLocalName();
+			BiConsumer<Issue, String> setter = ISSUE_FIELDS.get(name);
+			if ( setter!=null && projection.containsKey(name) ) {
+				setter.accept(issue, readText(xsr, writer, issue, name));
+			} else if ( bindRequestResponse && REQUEST_RESPONSE.equals(name) ) {
+				issue.setRequestresponse(bindRequestResponse(xsr, writer, issue));
+			} else if ( bindDynamicAnalysis && DYNAMIC_ANALYSIS.equals(name) ) {
+				if ( issue.getDynamicAnalysis()==null ) {
+					issue.setDynamicAnalysis(new ArrayList<>());
+				}
+				issue.getDynamicAnalysis().add(bindDynamicAnalysis(xsr, writer, issue));
+			} else {
+				skipElement(xsr);
+			}
+		}
+		return issue;
+	}
+
+	private RequestResponse bindRequestResponse(XMLStreamReader xsr, BoundedStringWriter writer, Issue issue) throws XMLStreamException {
+		RequestResponse result = new RequestResponse();
+		// Like Jackson, the last requestresponse element wins, so forget about any truncated previous ones
+		if ( issue.getTruncatedElements()!=null ) {
+			issue.getTruncatedElements().removeIf(path -> path.startsWith(REQUEST_RESPONSE+"/"));
+		}
+		while ( xsr.nextTag()==XMLStreamConstants.START_ELEMENT ) {
+			String path = REQUEST_RESPONSE+"/"+xsr.getLocalName();
+			if ( "requestresponse/request".equals(path) && projection.containsKey(path) ) {
+				result.setRequest(bindHttpMessage(xsr, writer, issue, path));
+			} else if ( "requestresponse/response".equals(path) && projection.containsKey(path) ) {
+				result.setResponse(bindHttpMessage(xsr, writer, issue, path));
+			} else {
+				skipElement(xsr);
+			}
+		}
+		return result;
+	}
+
+	private HttpMessage bindHttpMessage(XMLStreamReader xsr, BoundedStringWriter writer, Issue issue, String path) throws XMLStreamException {
+		HttpMessage result = new HttpMessage();
+		result.setMethod(xsr.getAttributeValue(null, "method"));
+		String base64 = xsr.getAttributeValue(null, "base64");
+		result.setBase64(base64==null ? null : Boolean.valueOf(base64));
+		collectText(xsr, writer, issue, path);
+		result.setContent(spillFile==null ? writer.toString() : spill(writer));
+		return result;
+	}
+
+	private DynamicAnalysis bindDynamicAnalysis(XMLStreamReader xsr, BoundedStringWriter writer, Issue issue) throws XMLStreamException {
+		DynamicAnalysis result = new DynamicAnalysis();
+		while ( xsr.nextTag()==XMLStreamConstants.START_ELEMENT ) {
+			String name = xsr.getLocalName();
+			String path = DYNAMIC_ANALYSIS+"/"+name;
+			BiConsumer<DynamicAnalysis, String> setter = DYNAMIC_ANALYSIS_FIELDS.get(name);
+			if ( setter!=null && projection.containsKey(path) ) {
+				setter.accept(result, readText(xsr, writer, issue, path));
+			} else {
+				skipElement(xsr);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read the text contents of the current element, limited to the maximum length
+	 * configured for the given element path, and record the element path in the
+	 * given issue if the text was truncated.
+	 */
+	private String readText(XMLStreamReader xsr, BoundedStringWriter writer, Issue issue, String path) throws XMLStreamException {
+		collectText(xsr, writer, issue, path);
+		return writer.toString();
+	}
+
+	/**
+	 * As {@link #readText(XMLStreamReader, BoundedStringWriter, Issue, String)}, but
+	 * leaving the text in the given writer rather than returning it as a {@link String}
+	 */
+	private void collectText(XMLStreamReader xsr, BoundedStringWriter writer, Issue issue, String path) throws XMLStreamException {
+		readText(xsr, writer.reset(projection.get(path)));
+		if ( writer.isTruncated() ) {
+			issue.addTruncatedElement(path);
+		}
+	}
+
+	private CharSequence spill(BoundedStringWriter writer) throws XMLStreamException {
+		try {
+			return spillFile.spill(writer);
+		} catch ( IOException e ) {
+			throw new XMLStreamException("Error writing payload spill file", e);
+		}
+	}
+
+	/**
+	 * Read the text contents of the current element into the given {@link Writer},
+	 * leaving the reader positioned at the corresponding end element. Any nested
+	 * elements are skipped. If supported by the StAX implementation, this uses
+	 * {@link XMLStreamReader2#getText(Writer, boolean)}, which streams character
+	 * data directly from the input to the given writer, without first collecting
+	 * the full text in memory.
+	 */
+	static final void readText(XMLStreamReader xsr, Writer writer) throws XMLStreamException {
+		while ( true ) {
+			switch ( xsr.next() ) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				try {
+					if ( xsr instanceof XMLStreamReader2 ) {
+						((XMLStreamReader2)xsr).getText(writer, false);
+					} else {
+						writer.write(xsr.getText());
+					}
+				} catch ( IOException e ) {
+					throw new XMLStreamException(e);
+				}
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+				skipElement(xsr);
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				return;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Skip the current element, including all of its contents, leaving the reader
+	 * positioned at the corresponding end element. If supported by the StAX
+	 * implementation, this uses {@link XMLStreamReader2#skipElement()} which
+	 * avoids constructing the text contents of the skipped elements.
+	 */
+	static final void skipElement(XMLStreamReader xsr) throws XMLStreamException {
+		if ( xsr instanceof XMLStreamReader2 ) {
+			((XMLStreamReader2)xsr).skipElement();
+		} else {
+			for ( int depth = 1 ; depth>0 ; ) {
+				int event = xsr.next();
+				if ( event==XMLStreamConstants.START_ELEMENT ) { depth++; }
+				else if ( event==XMLStreamConstants.END_ELEMENT ) { depth--; }
+			}
+		}
+	}
+
+	static final boolean hasChildren(Set<String> projection, String name) {
+		String prefix = name+"/";
+		return projection.stream().anyMatch(path -> path.startsWith(prefix));
+	}
+}
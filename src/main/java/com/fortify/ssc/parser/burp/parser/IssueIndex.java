@@ -0,0 +1,199 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.util.XmlByteScanner;
+
+/**
+ * This class spools a Burp export to a temporary file, while recording the byte
+ * range of every /issues/issue element using {@link XmlByteScanner}. The
+ * individual issues can then be read independently, allowing them to be bound
+ * in parallel. The input is spooled one block at a time through
+ * {@link #spool(InputStream)}, and issues can be read as soon as they have been
+ * indexed, so binding can overlap with spooling the remainder of the input.
+ * Instances must be closed to delete the temporary file.
+ * Spooling fails if the document is incomplete, for example if an upload was
+ * truncated, rather than silently dropping the last issue, and if a single
+ * issue is too large to be read into a byte array.
+ */
+final class IssueIndex implements Closeable {
+	private static final byte[] ISSUE = "issue".getBytes(StandardCharsets.US_ASCII);
+	private static final Pattern ENCODING_PATTERN = Pattern.compile("^\\s*<\\?xml[^>]*encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+	private static final int BUFFER_SIZE = 1<<16;
+	/** Maximum size of a single issue; some JVMs can't allocate arrays of exactly {@link Integer#MAX_VALUE} elements */
+	static final long MAX_ISSUE_SIZE = Integer.MAX_VALUE-8;
+	private final Path file;
+	private final FileChannel channel;
+	private final XmlByteScanner scanner;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private long[] ranges = new long[2048];
+	private int size;
+	private boolean rangeOpen;
+	private boolean rootClosed;
+	private boolean first = true;
+	private String encoding = StandardCharsets.UTF_8.name();
+
+	private IssueIndex(Path file, FileChannel channel) {
+		this.file = file;
+		this.channel = channel;
+		this.scanner = new XmlByteScanner(new XmlByteScanner.Listener() {
+			@Override
+			public void startElement(int depth, byte[] name, int nameLength, long startOffset) {
+				if ( depth==2 && XmlByteScanner.nameEquals(name, nameLength, ISSUE) ) {
+					startRange(startOffset);
+				}
+			}
+
+			@Override
+			public void endElement(int depth, byte[] name, int nameLength, long endOffset) {
+				if ( depth==2 && XmlByteScanner.nameEquals(name, nameLength, ISSUE) ) {
+					endRange(endOffset);
+				} else if ( depth==1 ) {
+					rootClosed = true;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Create an empty index, backed by a new temporary file
+	 */
+	public static final IssueIndex create() throws IOException {
+		Path file = Files.createTempFile("burp-issues-", ".xml");
+		try {
+			return new IssueIndex(file, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+		} catch ( IOException | RuntimeException e ) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+	}
+
+	/**
+	 * Spool the next block of the given {@link InputStream}, indexing any issues
+	 * that end within this block. Issues are only counted in {@link #size()} once
+	 * they have been fully written to the temporary file.
+	 * @return false if the end of the input has been reached, true otherwise
+	 * @throws ScanParsingException if the input ends before the document is
+	 *         complete, or if an issue exceeds {@link #MAX_ISSUE_SIZE}
+	 */
+	public boolean spool(InputStream is) throws ScanParsingException, IOException {
+		int read = is.read(buffer);
+		if ( read<0 ) {
+			checkComplete();
+			return false;
+		}
+		if ( read>0 ) {
+			if ( first ) {
+				encoding = getEncoding(buffer, read);
+				first = false;
+			}
+			int previousSize = size;
+			scanner.scan(buffer, 0, read);
+			ByteBuffer bb = ByteBuffer.wrap(buffer, 0, read);
+			while ( bb.hasRemaining() ) { channel.write(bb); }
+			for ( int i = previousSize ; i < size ; i++ ) {
+				checkIssueSize(i, ranges[i*2+1]-ranges[i*2]);
+			}
+			if ( rangeOpen ) {
+				checkIssueSize(size, scanner.getPosition()-ranges[size*2]);
+			}
+		}
+		return true;
+	}
+
+	private void checkIssueSize(int index, long issueSize) throws ScanParsingException {
+		if ( issueSize>MAX_ISSUE_SIZE ) {
+			throw new ScanParsingException(String.format("Issue %d at offset %d exceeds the maximum issue size of %d bytes", index+1, ranges[index*2], MAX_ISSUE_SIZE));
+		}
+	}
+
+	private void checkComplete() throws ScanParsingException {
+		if ( rangeOpen ) {
+			throw new ScanParsingException(String.format("Unexpected end of input in issue %d at offset %d; the Burp export may have been truncated", size+1, scanner.getPosition()));
+		}
+		if ( !rootClosed || scanner.getDepth()!=0 ) {
+			throw new ScanParsingException(String.format("Unexpected end of input at offset %d after %d issues; the Burp export may have been truncated", scanner.getPosition(), size));
+		}
+	}
+
+	private void startRange(long startOffset) {
+		if ( ranges.length==size*2 ) {
+			ranges = Arrays.copyOf(ranges, ranges.length*2);
+		}
+		ranges[size*2] = startOffset;
+		rangeOpen = true;
+	}
+
+	private void endRange(long endOffset) {
+		ranges[size*2+1] = endOffset;
+		size++;
+		rangeOpen = false;
+	}
+
+	/**
+	 * @return Number of issues indexed so far
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Character encoding of the indexed document
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Get a reader for the raw bytes of the issue with the given index, which
+	 * must have been indexed already. The byte range is looked up by the calling
+	 * thread, so the returned reader may be called concurrently from other threads,
+	 * also while the remainder of the input is being spooled.
+	 */
+	public IssueReader reader(int index) {
+		long start = ranges[index*2], end = ranges[index*2+1];
+		return () -> read(index, start, end);
+	}
+
+	private byte[] read(int index, long start, long end) throws IOException {
+		byte[] result = new byte[(int)(end-start)];
+		ByteBuffer bb = ByteBuffer.wrap(result);
+		while ( bb.hasRemaining() ) {
+			if ( channel.read(bb, start+bb.position())<0 ) {
+				throw new IOException("Unexpected end of file while reading issue "+index);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.close();
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@FunctionalInterface
+	interface IssueReader {
+		byte[] read() throws IOException;
+	}
+
+	private static final String getEncoding(byte[] buffer, int length) {
+		Matcher m = ENCODING_PATTERN.matcher(new String(buffer, 0, Math.min(length, 200), StandardCharsets.US_ASCII));
+		return m.find() ? m.group(1) : StandardCharsets.UTF_8.name();
+	}
+}
@@ -0,0 +1,487 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.domain.DynamicAnalysis;
+import com.fortify.ssc.parser.burp.domain.HttpMessage;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.domain.RequestResponse;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics.Phase;
+import com.fortify.ssc.parser.burp.util.BoundedStringWriter;
+import com.fortify.ssc.parser.burp.util.PayloadSpillFile;
+
+/**
+ * This class reads issues from JSON exports, as produced by Burp Suite Enterprise
+ * Edition and the Burp REST API, in a streaming fashion using a Jackson
+ * {@link JsonParser}, binding each issue directly to an {@link Issue} instance.
+ * The following top-level structures are supported:
+ * <ul>
+ *  <li>An object with an 'issue_events' array, each event containing an 'issue' object (Burp REST API)</li>
+ *  <li>An object with an 'issues' array of issue objects</li>
+ *  <li>An array of issue objects</li>
+ * </ul>
+ *
+ * Issue fields may use either snake_case or the camelCase element names used in
+ * Burp XML exports; the Burp REST API/Enterprise field names 'type_index', 'origin',
+ * 'description' and 'remediation' are mapped to their XML equivalents. Request and
+ * response data may be provided as either Burp REST API data segments, an object
+ * with 'method', 'base64' and 'content' fields, or a plain Base64-encoded string.
+ *
+ * As with {@link IssueBinder}, only fields contained in the given projection are
+ * bound; all other fields are skipped at the token level, and field values are
+ * truncated to the maximum length configured in the projection.
+ */
+final class IssueJsonReader {
+	static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final String REQUEST_RESPONSE = IssueBinder.REQUEST_RESPONSE;
+	private static final String DYNAMIC_ANALYSIS = IssueBinder.DYNAMIC_ANALYSIS;
+	private static final String ISSUE_TYPE = "issueType";
+	private static final String EVIDENCE = "evidence";
+	/** JSON field names that don't map to XML element names through snake_case to camelCase conversion */
+	private static final Map<String, String> FIELD_ALIASES = new HashMap<>();
+	/** Fields of Burp Enterprise issue_type objects, mapped to XML issue element names */
+	private static final Map<String, String> ISSUE_TYPE_FIELDS = new HashMap<>();
+	static {
+		FIELD_ALIASES.put("type_index", "type");
+		FIELD_ALIASES.put("origin", "host");
+		FIELD_ALIASES.put("description", "issueDetail");
+		FIELD_ALIASES.put("description_html", "issueDetail");
+		FIELD_ALIASES.put("remediation", "remediationDetail");
+		FIELD_ALIASES.put("remediation_html", "remediationDetail");
+		FIELD_ALIASES.put("request_response", REQUEST_RESPONSE);
+		FIELD_ALIASES.put("requestResponse", REQUEST_RESPONSE);
+
+		ISSUE_TYPE_FIELDS.put("name", "name");
+		ISSUE_TYPE_FIELDS.put("type_index", "type");
+		ISSUE_TYPE_FIELDS.put("description_html", "issueBackground");
+		ISSUE_TYPE_FIELDS.put("remediation_html", "remediationBackground");
+		ISSUE_TYPE_FIELDS.put("references_html", "references");
+		ISSUE_TYPE_FIELDS.put("vulnerability_classifications_html", "vulnerabilityClassifications");
+	}
+
+	private final Map<String, Integer> projection;
+	private final boolean bindRequestResponse;
+	private final boolean bindDynamicAnalysis;
+	private final PayloadSpillFile spillFile;
+	private final ParserMetrics metrics;
+	/** Converted field names; Jackson interns field names, so this stays small */
+	private final Map<String, String> fieldNames = new HashMap<>();
+
+	/**
+	 * Create an {@link IssueJsonReader} for the given projection, as described
+	 * in {@link IssueBinder#IssueBinder(Map, PayloadSpillFile)}
+	 */
+	public IssueJsonReader(Map<String, Integer> projection, PayloadSpillFile spillFile, ParserMetrics metrics) {
+		this.projection = Collections.unmodifiableMap(new HashMap<>(projection));
+		this.bindRequestResponse = IssueBinder.hasChildren(projection.keySet(), REQUEST_RESPONSE);
+		this.bindDynamicAnalysis = IssueBinder.hasChildren(projection.keySet(), DYNAMIC_ANALYSIS);
+		this.spillFile = spillFile;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Read all issues from the given {@link InputStream}
+	 */
+	public final void read(InputStream is, Consumer<Issue> consumer) throws ScanParsingException, IOException {
+		try ( JsonParser jp = JSON_FACTORY.createParser(is) ) {
+			Context ctx = new Context(jp);
+			JsonToken token = jp.nextToken();
+			if ( token==JsonToken.START_ARRAY ) {
+				readIssues(ctx, consumer);
+			} else if ( token==JsonToken.START_OBJECT ) {
+				while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+					String name = jp.getCurrentName();
+					token = jp.nextToken();
+					if ( token==JsonToken.START_ARRAY && "issues".equals(name) ) {
+						readIssues(ctx, consumer);
+					} else if ( token==JsonToken.START_ARRAY && "issue_events".equals(name) ) {
+						readIssueEvents(ctx, consumer);
+					} else {
+						jp.skipChildren();
+					}
+				}
+			} else {
+				throw new ScanParsingException("Burp JSON export must contain an object or array, found "+token);
+			}
+		} catch ( JsonProcessingException e ) {
+			throw new ScanParsingException("Error parsing Burp JSON export", e);
+		}
+	}
+
+	private void readIssues(Context ctx, Consumer<Issue> consumer) throws IOException {
+		for ( JsonToken token ; (token = ctx.jp.nextToken())!=JsonToken.END_ARRAY ; ) {
+			if ( token==JsonToken.START_OBJECT ) {
+				consumer.accept(bind(ctx));
+			} else {
+				ctx.jp.skipChildren();
+			}
+		}
+	}
+
+	private void readIssueEvents(Context ctx, Consumer<Issue> consumer) throws IOException {
+		JsonParser jp = ctx.jp;
+		for ( JsonToken token ; (token = jp.nextToken())!=JsonToken.END_ARRAY ; ) {
+			if ( token==JsonToken.START_OBJECT ) {
+				while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+					String name = jp.getCurrentName();
+					if ( jp.nextToken()==JsonToken.START_OBJECT && "issue".equals(name) ) {
+						consumer.accept(bind(ctx));
+					} else {
+						jp.skipChildren();
+					}
+				}
+			} else {
+				jp.skipChildren();
+			}
+		}
+	}
+
+	private Issue bind(Context ctx) throws IOException {
+		long start = metrics.startTimer();
+		Issue issue = new Issue();
+		bindIssue(ctx, issue);
+		issue.setSeverity(normalizeLevel(issue.getSeverity()));
+		issue.setConfidence(normalizeLevel(issue.getConfidence()));
+		metrics.stopTimer(Phase.BIND, start);
+		return issue;
+	}
+
+	private void bindIssue(Context ctx, Issue issue) throws IOException {
+		JsonParser jp = ctx.jp;
+		while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+			String name = getFieldName(jp.getCurrentName());
+			JsonToken token = jp.nextToken();
+			BiConsumer<Issue, String> setter = IssueBinder.ISSUE_FIELDS.get(name);
+			if ( setter!=null && token.isScalarValue() && projection.containsKey(name) ) {
+				setter.accept(issue, readText(ctx, issue, name));
+			} else if ( token==JsonToken.START_OBJECT && ISSUE_TYPE.equals(name) ) {
+				bindIssueType(ctx, issue);
+			} else if ( bindRequestResponse && token==JsonToken.START_OBJECT && REQUEST_RESPONSE.equals(name) ) {
+				issue.setRequestresponse(bindRequestResponse(ctx, issue));
+			} else if ( bindRequestResponse && token==JsonToken.START_ARRAY && EVIDENCE.equals(name) ) {
+				bindEvidence(ctx, issue);
+			} else if ( bindDynamicAnalysis && DYNAMIC_ANALYSIS.equals(name) ) {
+				bindDynamicAnalysisList(ctx, issue, token);
+			} else {
+				jp.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Bind the fields of a Burp Enterprise issue_type object, which describe the
+	 * issue type rather than the individual issue.
+	 */
+	private void bindIssueType(Context ctx, Issue issue) throws IOException {
+		JsonParser jp = ctx.jp;
+		while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+			String name = ISSUE_TYPE_FIELDS.get(jp.getCurrentName());
+			JsonToken token = jp.nextToken();
+			if ( name!=null && token.isScalarValue() && projection.containsKey(name) ) {
+				IssueBinder.ISSUE_FIELDS.get(name).accept(issue, readText(ctx, issue, name));
+			} else {
+				jp.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Bind the request and response from Burp REST API evidence entries; like for
+	 * XML exports, the last entry that contains a request/response wins.
+	 */
+	private void bindEvidence(Context ctx, Issue issue) throws IOException {
+		JsonParser jp = ctx.jp;
+		for ( JsonToken token ; (token = jp.nextToken())!=JsonToken.END_ARRAY ; ) {
+			if ( token==JsonToken.START_OBJECT ) {
+				while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+					String name = getFieldName(jp.getCurrentName());
+					if ( jp.nextToken()==JsonToken.START_OBJECT && REQUEST_RESPONSE.equals(name) ) {
+						issue.setRequestresponse(bindRequestResponse(ctx, issue));
+					} else {
+						jp.skipChildren();
+					}
+				}
+			} else {
+				jp.skipChildren();
+			}
+		}
+	}
+
+	private RequestResponse bindRequestResponse(Context ctx, Issue issue) throws IOException {
+		JsonParser jp = ctx.jp;
+		RequestResponse result = new RequestResponse();
+		if ( issue.getTruncatedElements()!=null ) {
+			issue.getTruncatedElements().removeIf(path -> path.startsWith(REQUEST_RESPONSE+"/"));
+		}
+		while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+			String path = REQUEST_RESPONSE+"/"+jp.getCurrentName();
+			JsonToken token = jp.nextToken();
+			if ( "requestresponse/request".equals(path) && projection.containsKey(path) ) {
+				result.setRequest(bindHttpMessage(ctx, issue, path, token));
+			} else if ( "requestresponse/response".equals(path) && projection.containsKey(path) ) {
+				result.setResponse(bindHttpMessage(ctx, issue, path, token));
+			} else {
+				jp.skipChildren();
+			}
+		}
+		return result;
+	}
+
+	private HttpMessage bindHttpMessage(Context ctx, Issue issue, String path, JsonToken token) throws IOException {
+		switch ( token ) {
+		case START_ARRAY:
+			return bindHttpMessageSegments(ctx, issue, path);
+		case START_OBJECT:
+			return bindHttpMessageObject(ctx, issue, path);
+		case VALUE_NULL:
+			return null;
+		default:
+			HttpMessage result = new HttpMessage();
+			result.setContent(readContent(ctx, issue, path));
+			return result;
+		}
+	}
+
+	/**
+	 * Bind an HTTP message provided as an array of Burp REST API data segments,
+	 * each holding a Base64-encoded part of the message. Segment data is decoded
+	 * in a streaming fashion, limited to the number of bytes that can be encoded
+	 * within the maximum length configured for the given path, and re-encoded as
+	 * a single Base64 string.
+	 */
+	private HttpMessage bindHttpMessageSegments(Context ctx, Issue issue, String path) throws IOException {
+		JsonParser jp = ctx.jp;
+		BoundedByteArrayOutputStream bytes = ctx.bytes.reset(projection.get(path)/4*3);
+		for ( JsonToken token ; (token = jp.nextToken())!=JsonToken.END_ARRAY ; ) {
+			if ( token==JsonToken.START_OBJECT ) {
+				while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+					String name = jp.getCurrentName();
+					if ( jp.nextToken()==JsonToken.VALUE_STRING && "data".equals(name) ) {
+						jp.readBinaryValue(bytes);
+					} else {
+						jp.skipChildren();
+					}
+				}
+			} else {
+				jp.skipChildren();
+			}
+		}
+		if ( bytes.isTruncated() ) {
+			issue.addTruncatedElement(path);
+		}
+		HttpMessage result = new HttpMessage();
+		result.setBase64(true);
+		result.setContent(toContent(ctx, Base64.getEncoder().encodeToString(bytes.toByteArray())));
+		return result;
+	}
+
+	private HttpMessage bindHttpMessageObject(Context ctx, Issue issue, String path) throws IOException {
+		JsonParser jp = ctx.jp;
+		HttpMessage result = new HttpMessage();
+		while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+			String name = jp.getCurrentName();
+			JsonToken token = jp.nextToken();
+			if ( "content".equals(name) && token.isScalarValue() ) {
+				result.setContent(readContent(ctx, issue, path));
+			} else if ( "method".equals(name) && token.isScalarValue() ) {
+				result.setMethod(jp.getValueAsString());
+			} else if ( "base64".equals(name) && token.isScalarValue() ) {
+				result.setBase64(token==JsonToken.VALUE_NULL ? null : jp.getValueAsBoolean());
+			} else {
+				jp.skipChildren();
+			}
+		}
+		return result;
+	}
+
+	private void bindDynamicAnalysisList(Context ctx, Issue issue, JsonToken token) throws IOException {
+		JsonParser jp = ctx.jp;
+		if ( token==JsonToken.START_OBJECT ) {
+			addDynamicAnalysis(issue, bindDynamicAnalysis(ctx, issue));
+		} else if ( token==JsonToken.START_ARRAY ) {
+			while ( (token = jp.nextToken())!=JsonToken.END_ARRAY ) {
+				if ( token==JsonToken.START_OBJECT ) {
+					addDynamicAnalysis(issue, bindDynamicAnalysis(ctx, issue));
+				} else {
+					jp.skipChildren();
+				}
+			}
+		} else {
+			jp.skipChildren();
+		}
+	}
+
+	private static final void addDynamicAnalysis(Issue issue, DynamicAnalysis dynamicAnalysis) {
+		if ( issue.getDynamicAnalysis()==null ) {
+			issue.setDynamicAnalysis(new ArrayList<>());
+		}
+		issue.getDynamicAnalysis().add(dynamicAnalysis);
+	}
+
+	private DynamicAnalysis bindDynamicAnalysis(Context ctx, Issue issue) throws IOException {
+		JsonParser jp = ctx.jp;
+		DynamicAnalysis result = new DynamicAnalysis();
+		while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+			String name = getFieldName(jp.getCurrentName());
+			String path = DYNAMIC_ANALYSIS+"/"+name;
+			JsonToken token = jp.nextToken();
+			BiConsumer<DynamicAnalysis, String> setter = IssueBinder.DYNAMIC_ANALYSIS_FIELDS.get(name);
+			if ( setter!=null && token.isScalarValue() && projection.containsKey(path) ) {
+				setter.accept(result, readText(ctx, issue, path));
+			} else {
+				jp.skipChildren();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read the current scalar value, limited to the maximum length configured for
+	 * the given path, and record the path in the given issue if the value was truncated.
+	 * @return Value as a {@link String}, or null for JSON null values
+	 */
+	private String readText(Context ctx, Issue issue, String path) throws IOException {
+		return collectText(ctx, issue, path) ? ctx.writer.toString() : null;
+	}
+
+	/**
+	 * As {@link #readText(Context, Issue, String)}, but optionally spilling the
+	 * value to the configured {@link PayloadSpillFile}
+	 */
+	private CharSequence readContent(Context ctx, Issue issue, String path) throws IOException {
+		return collectText(ctx, issue, path) ? toContent(ctx.writer) : null;
+	}
+
+	private boolean collectText(Context ctx, Issue issue, String path) throws IOException {
+		if ( ctx.jp.currentToken()==JsonToken.VALUE_NULL ) {
+			return false;
+		}
+		ctx.jp.getText(ctx.writer.reset(projection.get(path)));
+		if ( ctx.writer.isTruncated() ) {
+			issue.addTruncatedElement(path);
+		}
+		return true;
+	}
+
+	private CharSequence toContent(Context ctx, String content) throws IOException {
+		if ( spillFile==null ) {
+			return content;
+		}
+		ctx.writer.reset(Integer.MAX_VALUE).write(content);
+		return toContent(ctx.writer);
+	}
+
+	private CharSequence toContent(BoundedStringWriter writer) throws IOException {
+		return spillFile==null ? writer.toString() : spillFile.spill(writer);
+	}
+
+	/**
+	 * Get the XML element name corresponding to the given JSON field name
+	 */
+	private String getFieldName(String name) {
+		return fieldNames.computeIfAbsent(name, n -> FIELD_ALIASES.getOrDefault(n, toCamelCase(n)));
+	}
+
+	private static final String toCamelCase(String name) {
+		if ( name.indexOf('_')<0 ) {
+			return name;
+		}
+		StringBuilder sb = new StringBuilder(name.length());
+		boolean upper = false;
+		for ( int i = 0 ; i < name.length() ; i++ ) {
+			char c = name.charAt(i);
+			if ( c=='_' ) {
+				upper = sb.length()>0;
+			} else {
+				sb.append(upper ? Character.toUpperCase(c) : c);
+				upper = false;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Burp JSON exports use lower case severity and confidence levels, and 'info'
+	 * rather than 'Information'; convert these to the values used in XML exports.
+	 */
+	private static final String normalizeLevel(String level) {
+		if ( level==null ) {
+			return null;
+		} else if ( "info".equalsIgnoreCase(level) ) {
+			return "Information";
+		} else {
+			return StringUtils.capitalize(level.toLowerCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * Per-read state; the reusable buffers avoid re-growing for every issue
+	 */
+	private static final class Context {
+		private final JsonParser jp;
+		private final BoundedStringWriter writer = new BoundedStringWriter();
+		private final BoundedByteArrayOutputStream bytes = new BoundedByteArrayOutputStream();
+
+		private Context(JsonParser jp) {
+			this.jp = jp;
+		}
+	}
+
+	/**
+	 * {@link ByteArrayOutputStream} that discards any bytes written after a given
+	 * limit has been reached, like {@link BoundedStringWriter}
+	 */
+	private static final class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
+		private int maxLength;
+		private boolean truncated;
+
+		public BoundedByteArrayOutputStream reset(int maxLength) {
+			reset();
+			this.maxLength = maxLength;
+			this.truncated = false;
+			return this;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			int length = Math.min(len, maxLength-count);
+			if ( length>0 ) {
+				super.write(b, off, length);
+			}
+			if ( length<len ) {
+				truncated = true;
+			}
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			if ( count<maxLength ) {
+				super.write(b);
+			} else {
+				truncated = true;
+			}
+		}
+
+		public boolean isTruncated() {
+			return truncated;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics.Phase;
+import com.fortify.ssc.parser.burp.util.BoundedStringWriter;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
+
+/**
+ * This class reads all /issues/issue elements from a Burp export in a streaming
+ * fashion, using {@link IssueBinder} to bind each issue element to an {@link Issue}
+ * instance. It can also bind a single issue element extracted from a Burp export,
+ * as used for parallel parsing.
+ */
+final class IssueXmlReader {
+	private final IssueBinder binder;
+	private final ParserMetrics metrics;
+	private final XMLInputFactory xmlInputFactory;
+
+	public IssueXmlReader(IssueBinder binder) {
+		this(binder, ParserMetrics.NOOP);
+	}
+
+	public IssueXmlReader(IssueBinder binder, ParserMetrics metrics) {
+		this(binder, metrics, XmlInputFactories.get(BurpParserConfig.DEFAULT.getXmlBackend()));
+	}
+
+	/**
+	 * @param xmlInputFactory Configured {@link XMLInputFactory} as provided by {@link XmlInputFactories}
+	 */
+	public IssueXmlReader(IssueBinder binder, ParserMetrics metrics, XMLInputFactory xmlInputFactory) {
+		this.binder = binder;
+		this.metrics = metrics;
+		this.xmlInputFactory = xmlInputFactory;
+	}
+
+	/**
+	 * Read all /issues/issue elements from the given {@link InputStream}
+	 */
+	public final void read(InputStream is, Consumer<Issue> consumer) throws ScanParsingException {
+		try {
+			XMLStreamReader xsr = xmlInputFactory.createXMLStreamReader(is);
+			BoundedStringWriter writer = new BoundedStringWriter();
+			try {
+				int depth = 0;
+				while ( xsr.hasNext() ) {
+					int event = xsr.next();
+					if ( event==XMLStreamConstants.START_ELEMENT ) {
+						if ( ++depth==2 && "issue".equals(xsr.getLocalName()) ) {
+							consumer.accept(bind(xsr, writer));
+							depth--;
+						}
+					} else if ( event==XMLStreamConstants.END_ELEMENT ) {
+						depth--;
+					}
+				}
+			} finally {
+				xsr.close();
+			}
+		} catch ( XMLStreamException e ) {
+			throw new ScanParsingException("Error parsing Burp XML export", e);
+		}
+	}
+
+	/**
+	 * Bind a single issue element, provided by the given {@link InputStream}
+	 * in the given encoding.
+	 */
+	public final Issue readSingle(InputStream is, String encoding) throws XMLStreamException {
+		return readSingle(is, encoding, new BoundedStringWriter());
+	}
+
+	/**
+	 * As {@link #readSingle(InputStream, String)}, collecting element text through
+	 * the given (reusable) {@link BoundedStringWriter}.
+	 */
+	public final Issue readSingle(InputStream is, String encoding, BoundedStringWriter writer) throws XMLStreamException {
+		XMLStreamReader xsr = xmlInputFactory.createXMLStreamReader(is, encoding);
+		try {
+			xsr.nextTag();
+			return bind(xsr, writer);
+		} finally {
+			xsr.close();
+		}
+	}
+
+	private final Issue bind(XMLStreamReader xsr, BoundedStringWriter writer) throws XMLStreamException {
+		long start = metrics.startTimer();
+		Issue issue = binder.bind(xsr, writer);
+		metrics.stopTimer(Phase.BIND, start);
+		return issue;
+	}
+}
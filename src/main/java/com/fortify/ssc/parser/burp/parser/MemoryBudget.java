@@ -0,0 +1,154 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+
+/**
+ * Process-wide budget for the issue and vulnerability payload held in memory
+ * by all concurrently running parses. Before parsing, every parse reserves the
+ * maximum number of payload bytes it may hold at any time, as estimated from
+ * its configuration. If the reservation doesn't fit in the remaining budget,
+ * the parse waits for other parses to release their reservations, up to the
+ * configured wait time. After that, it falls back to successively reduced
+ * configurations, like smaller truncation limits, until the reservation fits.
+ * If the configuration can't be reduced any further, the parse waits until
+ * enough budget becomes available.
+ *
+ * Reservations larger than the total budget are limited to the total budget,
+ * so such parses run once no other parses hold any reservations. As all waits
+ * are bounded by the reservations of running parses, and these are always
+ * released once parsing completes, parses can't wait forever.
+ */
+final class MemoryBudget {
+	private static final Logger LOG = LoggerFactory.getLogger(MemoryBudget.class);
+	/** Budget shared by all parses in this JVM */
+	static final MemoryBudget SHARED = new MemoryBudget();
+	/** Interval for checking interruption and parse time limits while waiting */
+	private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private long reservedBytes;
+	private int reservations;
+	private int waiting;
+
+	/**
+	 * Reservation of memory budget for parsing with a given configuration;
+	 * closing a reservation releases the reserved bytes.
+	 */
+	final class Reservation implements AutoCloseable {
+		private final BurpParserConfig config;
+		private final long bytes;
+		private final long waitNanos;
+		private boolean released;
+
+		private Reservation(BurpParserConfig config, long bytes, long waitNanos) {
+			this.config = config;
+			this.bytes = bytes;
+			this.waitNanos = waitNanos;
+		}
+
+		/**
+		 * @return Configuration to be used for parsing, which may be reduced compared
+		 *         to the configuration for which budget was requested
+		 */
+		BurpParserConfig getConfig() {
+			return config;
+		}
+
+		long getBytes() {
+			return bytes;
+		}
+
+		long getWaitMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+		}
+
+		@Override
+		public void close() {
+			synchronized (MemoryBudget.this) {
+				if ( !released ) {
+					released = true;
+					reservedBytes -= bytes;
+					reservations--;
+					MemoryBudget.this.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reserve budget for parsing with the given configuration, waiting and
+	 * falling back to reduced configurations as described in the class comment.
+	 * @param maxBytes Total budget; reservations of other parses count against
+	 *        this budget, even if they were made with a different total budget
+	 * @param waitMillis Maximum time to wait before reducing the configuration
+	 * @param estimate Estimates the maximum payload held when parsing with a given configuration
+	 * @param reduce Returns a configuration requiring less budget than the given
+	 *        configuration, or null if the given configuration can't be reduced any further
+	 * @param progress Checked while waiting, so waiting parses can be interrupted
+	 *        and honour the parse time limit
+	 */
+	Reservation reserve(String name, BurpParserConfig config, long maxBytes, long waitMillis,
+			ToLongFunction<BurpParserConfig> estimate, UnaryOperator<BurpParserConfig> reduce, ParseProgress progress) throws ScanParsingException {
+		long start = System.nanoTime();
+		long bytes = estimate.applyAsLong(config);
+		// Reservations exceeding the total budget are only made once the configuration can't be reduced any further
+		boolean reserved = bytes<=maxBytes && reserve(bytes, maxBytes, TimeUnit.MILLISECONDS.toNanos(waitMillis), progress);
+		BurpParserConfig reduced = reserved ? null : reduce.apply(config);
+		while ( !reserved && reduced!=null ) {
+			config = reduced;
+			bytes = estimate.applyAsLong(config);
+			reserved = bytes<=maxBytes && reserve(bytes, maxBytes, 0, progress);
+			reduced = reserved ? null : reduce.apply(config);
+		}
+		if ( !reserved ) {
+			bytes = Math.min(bytes, maxBytes);
+			LOG.info("{}: waiting for {} bytes of memory budget; {}", name, bytes, describe(maxBytes));
+			reserve(bytes, maxBytes, Long.MAX_VALUE, progress);
+		}
+		Reservation result = new Reservation(config, bytes, System.nanoTime()-start);
+		LOG.debug("{}: reserved {} bytes of memory budget after {} ms; {}", name, bytes, result.getWaitMillis(), describe(maxBytes));
+		return result;
+	}
+
+	/**
+	 * Reserve the given number of bytes, waiting at most the given time for
+	 * other reservations to be released
+	 * @return true if the bytes have been reserved, false if the wait time has elapsed
+	 */
+	private synchronized boolean reserve(long bytes, long maxBytes, long waitNanos, ParseProgress progress) throws ScanParsingException {
+		long start = System.nanoTime();
+		waiting++;
+		try {
+			while ( reservedBytes+bytes>maxBytes && reservedBytes>0 ) {
+				long remaining = waitNanos-(System.nanoTime()-start);
+				if ( remaining<=0 ) { return false; }
+				try {
+					TimeUnit.NANOSECONDS.timedWait(this, Math.min(remaining, CHECK_INTERVAL_NANOS));
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					throw new ScanParsingException("Interrupted while waiting for memory budget", e);
+				}
+				progress.check();
+			}
+			reservedBytes += bytes;
+			reservations++;
+			return true;
+		} finally {
+			waiting--;
+		}
+	}
+
+	synchronized long getReservedBytes() {
+		return reservedBytes;
+	}
+
+	private synchronized String describe(long maxBytes) {
+		return String.format("%d of %d bytes reserved by %d parses, %d parses waiting", reservedBytes, maxBytes, reservations, waiting);
+	}
+}
@@ -0,0 +1,94 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.util.BoundedStringWriter;
+
+/**
+ * This class binds /issues/issue elements to {@link Issue} instances on a
+ * {@link ForkJoinPool}, based on the byte ranges recorded by {@link IssueIndex}.
+ * A sliding window of binding tasks keeps all worker threads busy, while the
+ * calling thread spools the input to the index, submits binding tasks for
+ * newly indexed issues, and passes the bound issues to the given {@link Consumer}
+ * in the same order as they appear in the input. The calling thread only waits
+ * for a binding task if the window is full or the input has been fully spooled,
+ * so reading the input overlaps with binding.
+ */
+final class ParallelIssueReader {
+	private static final Logger LOG = LoggerFactory.getLogger(ParallelIssueReader.class);
+	/** Number of outstanding binding tasks per thread */
+	static final int TASKS_PER_THREAD = 4;
+	private final int parallelism;
+	private final IssueXmlReader reader;
+	/** Text buffers for the worker threads, which only live as long as the pool used by a single read */
+	private final ThreadLocal<BoundedStringWriter> writers = ThreadLocal.withInitial(BoundedStringWriter::new);
+
+	public ParallelIssueReader(int parallelism, IssueXmlReader reader) {
+		this.parallelism = parallelism;
+		this.reader = reader;
+	}
+
+	public final void read(InputStream is, ParseProgress progress, Consumer<Issue> consumer) throws ScanParsingException, IOException {
+		try ( IssueIndex index = IssueIndex.create() ) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				read(is, index, pool, progress, consumer);
+			} finally {
+				pool.shutdownNow();
+			}
+			LOG.debug("Bound {} issues using {} threads", index.size(), parallelism);
+		}
+	}
+
+	private final void read(InputStream is, IssueIndex index, ForkJoinPool pool, ParseProgress progress, Consumer<Issue> consumer) throws ScanParsingException, IOException {
+		final int windowSize = parallelism*TASKS_PER_THREAD;
+		final Deque<ForkJoinTask<Issue>> window = new ArrayDeque<>(windowSize);
+		int next = 0;
+		boolean spooling = true;
+		while ( true ) {
+			while ( next<index.size() && window.size()<windowSize ) {
+				IssueIndex.IssueReader issueReader = index.reader(next++);
+				String encoding = index.getEncoding();
+				window.add(pool.submit(() -> bind(issueReader, encoding)));
+			}
+			if ( !window.isEmpty() && (!spooling || window.size()>=windowSize || window.peek().isDone()) ) {
+				consumer.accept(getResult(window.poll()));
+			} else if ( spooling ) {
+				progress.check();
+				spooling = index.spool(is);
+			} else {
+				break;
+			}
+		}
+	}
+
+	private static final Issue getResult(ForkJoinTask<Issue> task) throws ScanParsingException {
+		try {
+			return task.get();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ScanParsingException("Interrupted while parsing issues", e);
+		} catch ( ExecutionException e ) {
+			throw new ScanParsingException("Error parsing issue", e.getCause());
+		}
+	}
+
+	private final Issue bind(IssueIndex.IssueReader issueReader, String encoding) throws IOException, XMLStreamException {
+		return reader.readSingle(new ByteArrayInputStream(issueReader.read()), encoding, writers.get());
+	}
+}
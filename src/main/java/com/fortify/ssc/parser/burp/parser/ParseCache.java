@@ -0,0 +1,386 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * Content-addressed, on-disk cache of the vulnerabilities produced by parsing
+ * a given input, used to avoid parsing the same artifact again, for example when
+ * an artifact is reprocessed or uploaded again. On a cache hit, the stored
+ * {@link VulnerabilityRecord} instances are passed to SSC as-is, without reading
+ * XML or JSON, or decoding and rendering requests and responses.
+ *
+ * Cache entries are keyed by a SHA-256 hash of the raw (possibly compressed)
+ * input, including the names of all scan entries if the input bundles multiple
+ * exports, and of a fingerprint of all settings that affect the output. Each
+ * entry is stored in a separate file named &lt;key&gt;.rec, consisting of a
+ * header, all serialized records in emission order, and a trailer holding the
+ * number of records and a CRC32 checksum of all preceding bytes. Entries are
+ * written to a temporary file and only moved into place once parsing has
+ * completed successfully, so incomplete entries are never read.
+ *
+ * Entries are read through a memory-mapped view of the entry file, and the
+ * checksum is verified before passing any record to SSC. The total size of all
+ * entries is limited to the configured maximum, by evicting the least recently
+ * used entries based on their last modification time, which is updated on every
+ * cache hit. Note that on Windows, an entry that is still mapped by a previous
+ * read can't be deleted until the mapping has been garbage collected; such
+ * entries are evicted by a later import.
+ *
+ * Like {@link DeltaIndex}, errors while reading or writing the cache are logged,
+ * and cause the input to be parsed as if caching was disabled, rather than failing
+ * the import.
+ */
+final class ParseCache {
+	private static final Logger LOG = LoggerFactory.getLogger(ParseCache.class);
+	private static final int MAGIC = 0x42555243; // BURC
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 8;
+	private static final int TRAILER_LENGTH = 8;
+	private static final String ENTRY_SUFFIX = ".rec";
+	private static final String TMP_SUFFIX = ".tmp";
+	/** Temporary files older than this are left over from failed imports, and deleted on eviction */
+	private static final long MAX_TMP_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+	private static final int HASH_BUFFER_SIZE = 64*1024;
+	private final Path directory;
+	private final long maxBytes;
+
+	public ParseCache(Path directory, long maxBytes) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Compute the cache key for the given input, reading the full raw input
+	 * @param scanData Raw (not decompressed) input
+	 * @param entries Scan entries to be parsed, as returned by {@link ScanEntryExecutor#getExportEntries(ScanData)};
+	 *        if less than two entries, the key is computed over the default input stream
+	 * @param settingsFingerprint Fingerprint of all settings that affect the parser output
+	 */
+	public String getKey(ScanData scanData, List<ScanEntry> entries, long settingsFingerprint) throws IOException {
+		MessageDigest digest = newDigest();
+		digest.update(ByteBuffer.allocate(12).putInt(VERSION).putLong(settingsFingerprint).array());
+		byte[] buffer = new byte[HASH_BUFFER_SIZE];
+		if ( entries.size()<2 ) {
+			update(digest, buffer, scanData.getInputStream(fileName -> true));
+		} else {
+			for ( ScanEntry entry : entries ) {
+				byte[] name = entry.getEntryName().getBytes(StandardCharsets.UTF_8);
+				digest.update(ByteBuffer.allocate(4).putInt(name.length).array());
+				digest.update(name);
+				update(digest, buffer, scanData.getInputStream(entry));
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		for ( byte b : digest.digest() ) {
+			sb.append(Character.forDigit((b>>4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	private static final void update(MessageDigest digest, byte[] buffer, InputStream input) throws IOException {
+		try ( InputStream is = input ) {
+			long length = 0;
+			for ( int read = is.read(buffer) ; read>=0 ; read = is.read(buffer) ) {
+				digest.update(buffer, 0, read);
+				length += read;
+			}
+			// Separate the contents of consecutive entries
+			digest.update(ByteBuffer.allocate(8).putLong(length).array());
+		}
+	}
+
+	private static final MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+		}
+	}
+
+	/**
+	 * Pass all records stored for the given key to the given consumer, if the cache
+	 * holds a valid entry for this key. Records are only passed to the consumer once
+	 * the entry has been validated.
+	 * @return Number of records passed to the consumer, or -1 if the cache doesn't
+	 *         hold a valid entry for the given key
+	 */
+	public long replay(String key, Consumer<VulnerabilityRecord> consumer) throws IOException {
+		Path file = directory.resolve(key+ENTRY_SUFFIX);
+		MappedByteBuffer buffer;
+		try ( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ) ) {
+			if ( channel.size()<HEADER_LENGTH+TRAILER_LENGTH || channel.size()>Integer.MAX_VALUE ) {
+				LOG.warn("Ignoring parse cache entry {} with invalid size {}", file, channel.size());
+				return -1;
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch ( NoSuchFileException e ) {
+			return -1;
+		} catch ( IOException e ) {
+			LOG.warn("Error reading parse cache entry "+file+", parsing input", e);
+			return -1;
+		}
+		long count = validate(file, buffer);
+		if ( count<0 ) { return -1; }
+		touch(file);
+		buffer.position(HEADER_LENGTH).limit(buffer.capacity()-TRAILER_LENGTH);
+		// The entry has been validated, so any errors while reading records are unexpected,
+		// and can't be recovered from as records have already been passed to SSC
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+		for ( long i = 0 ; i < count ; i++ ) {
+			consumer.accept(VulnerabilityRecord.read(in));
+		}
+		return count;
+	}
+
+	/**
+	 * @return Number of records in the given entry, or -1 if the entry is invalid
+	 */
+	private static final long validate(Path file, MappedByteBuffer buffer) {
+		int trailer = buffer.capacity()-TRAILER_LENGTH;
+		if ( buffer.getInt(0)!=MAGIC || buffer.getInt(4)!=VERSION ) {
+			LOG.warn("Ignoring incompatible parse cache entry {}", file);
+			return -1;
+		}
+		CRC32 crc = new CRC32();
+		crc.update((ByteBuffer)buffer.duplicate().position(0).limit(trailer));
+		if ( (int)crc.getValue()!=buffer.getInt(trailer+4) ) {
+			LOG.warn("Ignoring corrupt parse cache entry {}", file);
+			return -1;
+		}
+		return buffer.getInt(trailer) & 0xffffffffL;
+	}
+
+	private static final void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch ( IOException e ) {
+			LOG.debug("Error updating last modified time of parse cache entry {}", file, e);
+		}
+	}
+
+	/**
+	 * Create a {@link Writer} for storing the records produced by parsing the input
+	 * with the given key. The caller must call {@link Writer#commit()} once parsing
+	 * has completed successfully, and always close the {@link Writer}.
+	 */
+	public Writer createWriter(String key) {
+		return new Writer(key);
+	}
+
+	/**
+	 * Stores all records passed to {@link #accept(VulnerabilityRecord)} into a new
+	 * cache entry. Writing stops, and the entry is discarded, if writing fails or
+	 * the entry would exceed the maximum cache size. This class is not thread-safe.
+	 */
+	final class Writer implements Consumer<VulnerabilityRecord>, Closeable {
+		private final String key;
+		private Path tmpFile;
+		private CheckedOutputStream checked;
+		private DataOutputStream out;
+		private long count;
+
+		private Writer(String key) {
+			this.key = key;
+			try {
+				tmpFile = Files.createTempFile(directory, key, TMP_SUFFIX);
+				checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)), new CRC32());
+				out = new DataOutputStream(checked);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+			} catch ( IOException e ) {
+				discard("Error creating parse cache entry", e);
+			}
+		}
+
+		@Override
+		public void accept(VulnerabilityRecord record) {
+			if ( out==null ) { return; }
+			try {
+				record.write(out);
+				count++;
+				if ( (long)out.size()+TRAILER_LENGTH>Math.min(maxBytes, Integer.MAX_VALUE-1) ) {
+					discard("Parse cache entry exceeds maximum cache size, not caching parse results", null);
+				}
+			} catch ( IOException e ) {
+				discard("Error writing parse cache entry", e);
+			}
+		}
+
+		/**
+		 * Make the stored records available to subsequent imports of the same input,
+		 * and evict least recently used entries if the maximum cache size has been
+		 * exceeded.
+		 */
+		public void commit() {
+			if ( out==null ) { return; }
+			try {
+				out.flush();
+				int crc = (int)checked.getChecksum().getValue();
+				out.writeInt((int)count);
+				out.writeInt(crc);
+				out.close();
+				out = null;
+				move(tmpFile, directory.resolve(key+ENTRY_SUFFIX));
+				tmpFile = null;
+				LOG.debug("Stored {} vulnerabilities in parse cache entry {}", count, key);
+				evict();
+			} catch ( IOException e ) {
+				discard("Error storing parse cache entry", e);
+			}
+		}
+
+		@Override
+		public void close() {
+			discard(null, null);
+		}
+
+		private void discard(String message, Exception e) {
+			if ( message!=null ) {
+				LOG.warn(message, e);
+			}
+			if ( out!=null ) {
+				closeQuietly(out);
+				out = null;
+			}
+			if ( tmpFile!=null ) {
+				deleteQuietly(tmpFile);
+				tmpFile = null;
+			}
+		}
+	}
+
+	/**
+	 * Delete the least recently used entries until the total size of all entries
+	 * is below the maximum size, and delete stale temporary files.
+	 */
+	private void evict() throws IOException {
+		List<Path> entries = new ArrayList<>();
+		long totalSize = 0;
+		long now = System.currentTimeMillis();
+		try ( DirectoryStream<Path> files = Files.newDirectoryStream(directory) ) {
+			for ( Path file : files ) {
+				String name = file.getFileName().toString();
+				if ( name.endsWith(ENTRY_SUFFIX) ) {
+					entries.add(file);
+					totalSize += size(file);
+				} else if ( name.endsWith(TMP_SUFFIX) && now-lastModified(file)>MAX_TMP_AGE_MILLIS ) {
+					deleteQuietly(file);
+				}
+			}
+		}
+		if ( totalSize<=maxBytes ) { return; }
+		entries.sort(Comparator.comparingLong(ParseCache::lastModified));
+		for ( Path file : entries ) {
+			if ( totalSize<=maxBytes ) { break; }
+			long size = size(file);
+			if ( deleteQuietly(file) ) {
+				totalSize -= size;
+				LOG.debug("Evicted parse cache entry {}", file.getFileName());
+			}
+		}
+	}
+
+	private static final long size(Path file) {
+		try {
+			return Files.size(file);
+		} catch ( IOException e ) {
+			return 0;
+		}
+	}
+
+	private static final long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch ( IOException e ) {
+			return 0;
+		}
+	}
+
+	private static final boolean deleteQuietly(Path file) {
+		try {
+			return Files.deleteIfExists(file);
+		} catch ( IOException e ) {
+			LOG.debug("Error deleting parse cache file {}", file, e);
+			return false;
+		}
+	}
+
+	private static final void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch ( IOException e ) {
+			LOG.debug("Error closing parse cache entry", e);
+		}
+	}
+
+	private static final void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * {@link InputStream} view of a {@link ByteBuffer}, reading from the buffer
+	 * position up to its limit
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if ( len==0 ) { return 0; }
+			if ( !buffer.hasRemaining() ) { return -1; }
+			int result = Math.min(len, buffer.remaining());
+			buffer.get(b, off, result);
+			return result;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.util.DecompressingScanData;
+
+/**
+ * This class tracks the progress of a single parse, allowing long-running
+ * imports to be monitored and aborted. Every {@link BurpParserConfig#getProgressCheckInterval()}
+ * issues, we check whether the current thread has been interrupted or the
+ * configured time limit has been exceeded, in which case parsing is aborted,
+ * and we log the number of issues processed, bytes read and the estimated
+ * remaining time if the configured log interval has elapsed.
+ *
+ * Per issue, this only increments a counter; all other work is done once
+ * every check interval. The estimated remaining time is based on the number
+ * of bytes read, and is only available for uncompressed input that provides
+ * its size through {@link InputStream#available()}, like files.
+ */
+final class ParseProgress {
+	private static final Logger LOG = LoggerFactory.getLogger(ParseProgress.class);
+	/** Instance that doesn't track progress, for auxiliary passes over the input */
+	static final ParseProgress NOOP = new ParseProgress();
+	private final boolean enabled;
+	private final String name;
+	private final int checkInterval;
+	private final long startTime;
+	/** Deadline as {@link System#nanoTime()} value, or 0 if there is no time limit */
+	private final long deadline;
+	private final long timeoutSeconds;
+	private final long logIntervalNanos;
+	private final AtomicLong issues = new AtomicLong();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder expectedBytes = new LongAdder();
+	private volatile boolean expectedBytesUnknown;
+	private volatile long nextLogTime;
+
+	/**
+	 * Unchecked exception used to abort parsing from within {@link Consumer}
+	 * instances; parsers must unwrap and rethrow the {@link ScanParsingException}
+	 * cause.
+	 */
+	static final class AbortedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		AbortedException(ScanParsingException cause) {
+			super(cause.getMessage(), cause);
+		}
+
+		@Override
+		public synchronized ScanParsingException getCause() {
+			return (ScanParsingException)super.getCause();
+		}
+	}
+
+	ParseProgress(String name, BurpParserConfig config) {
+		this.enabled = true;
+		this.name = name;
+		this.checkInterval = Math.max(1, config.getProgressCheckInterval());
+		this.startTime = System.nanoTime();
+		this.timeoutSeconds = config.getParseTimeoutSeconds();
+		this.deadline = timeoutSeconds>0 ? startTime+TimeUnit.SECONDS.toNanos(timeoutSeconds) : 0;
+		this.logIntervalNanos = TimeUnit.SECONDS.toNanos(config.getProgressLogIntervalSeconds());
+		this.nextLogTime = startTime+logIntervalNanos;
+	}
+
+	private ParseProgress() {
+		this.enabled = false;
+		this.name = "";
+		this.checkInterval = Integer.MAX_VALUE;
+		this.startTime = System.nanoTime();
+		this.timeoutSeconds = this.deadline = this.logIntervalNanos = 0;
+	}
+
+	/**
+	 * Signal that an issue has been processed, checking for interruption and
+	 * time limits, and logging progress, once every check interval.
+	 * @throws ScanParsingException if parsing must be aborted
+	 */
+	final void issueProcessed() throws ScanParsingException {
+		if ( enabled && issues.incrementAndGet()%checkInterval==0 ) {
+			check();
+		}
+	}
+
+	/**
+	 * Wrap the given {@link Consumer} to call {@link #issueProcessed()} after
+	 * every accepted item, throwing an {@link AbortedException} if parsing
+	 * must be aborted.
+	 */
+	final <T> Consumer<T> tracking(Consumer<T> consumer) {
+		if ( !enabled ) { return consumer; }
+		return item -> {
+			consumer.accept(item);
+			try {
+				issueProcessed();
+			} catch ( ScanParsingException e ) {
+				throw new AbortedException(e);
+			}
+		};
+	}
+
+	/**
+	 * Wrap the given {@link Consumer} to call {@link #check()} once every check
+	 * interval, without counting the accepted items as processed issues. This is
+	 * meant for auxiliary passes over the input, which must honor interruption
+	 * and the time limit, but don't contribute to the reported progress. As
+	 * {@link #tracking(Consumer)}, this throws an {@link AbortedException} if
+	 * parsing must be aborted.
+	 */
+	final <T> Consumer<T> checking(Consumer<T> consumer) {
+		if ( !enabled ) { return consumer; }
+		return new Consumer<T>() {
+			private long items;
+
+			@Override
+			public void accept(T item) {
+				consumer.accept(item);
+				if ( ++items%checkInterval==0 ) {
+					try {
+						check();
+					} catch ( ScanParsingException e ) {
+						throw new AbortedException(e);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Check whether parsing must be aborted, and log progress if the log interval
+	 * has elapsed.
+	 * @throws ScanParsingException if the current thread has been interrupted or
+	 *         the time limit has been exceeded
+	 */
+	final void check() throws ScanParsingException {
+		if ( !enabled ) { return; }
+		if ( Thread.currentThread().isInterrupted() ) {
+			throw new ScanParsingException(String.format("%s was interrupted after processing %d issues", name, issues.get()));
+		}
+		long now = System.nanoTime();
+		if ( deadline!=0 && now-deadline>0 ) {
+			throw new ScanParsingException(String.format("%s exceeded the time limit of %d seconds after processing %d issues and %d bytes; "
+					+ "the time limit can be configured through the %sparse.timeoutSeconds system property",
+					name, timeoutSeconds, issues.get(), bytesRead.sum(), BurpParserConfig.PROPERTY_PREFIX));
+		}
+		if ( logIntervalNanos>0 && now-nextLogTime>=0 ) {
+			nextLogTime = now+logIntervalNanos;
+			LOG.info("{}: {}", name, this);
+		}
+	}
+
+	/**
+	 * Return an {@link InputStream} that counts the number of bytes read from
+	 * the given {@link InputStream}, as returned by {@link DecompressingScanData}.
+	 */
+	final InputStream countBytesRead(InputStream is) throws IOException {
+		if ( !enabled ) { return is; }
+		long available = DecompressingScanData.isDecompressed(is) ? 0 : is.available();
+		// Some streams, like ZipInputStream, return 1 if they have any data left
+		if ( available>1 ) {
+			expectedBytes.add(available);
+		} else {
+			expectedBytesUnknown = true;
+		}
+		return new FilterInputStream(is) {
+			@Override
+			public int read() throws IOException {
+				int result = super.read();
+				if ( result>=0 ) { bytesRead.increment(); }
+				return result;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int result = super.read(b, off, len);
+				if ( result>0 ) { bytesRead.add(result); }
+				return result;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long result = super.skip(n);
+				bytesRead.add(result);
+				return result;
+			}
+		};
+	}
+
+	final long getIssues() {
+		return issues.get();
+	}
+
+	final long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * @return Estimated remaining time in milliseconds, or -1 if unknown
+	 */
+	final long getEstimatedRemainingMillis() {
+		long read = bytesRead.sum(), expected = expectedBytes.sum();
+		if ( expectedBytesUnknown || read<=0 || read>=expected ) { return -1; }
+		long elapsed = System.nanoTime()-startTime;
+		return TimeUnit.NANOSECONDS.toMillis((long)((double)elapsed*(expected-read)/read));
+	}
+
+	@Override
+	public String toString() {
+		long remaining = getEstimatedRemainingMillis();
+		return String.format("%d issues processed, %d bytes read, %d seconds elapsed, estimated time remaining: %s",
+				getIssues(), getBytesRead(), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()-startTime),
+				remaining<0 ? "unknown" : TimeUnit.MILLISECONDS.toSeconds(remaining)+" seconds");
+	}
+}
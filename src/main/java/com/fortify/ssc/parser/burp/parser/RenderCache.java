@@ -0,0 +1,147 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+import com.fortify.ssc.parser.burp.util.LruCache;
+
+/**
+ * Burp exports usually contain many issues of the same type, which share the
+ * same background, remediation and reference texts. This class caches the
+ * rendered attribute values for such texts, and provides a pool for short
+ * attribute values like issue name, host and severity, such that each
+ * distinct value is rendered and retained only once per parse.
+ *
+ * Rendered sections are cached by attribute and issue type, together with the
+ * source texts that were used to render them. A cached section is only used if
+ * the source texts of the current issue are equal to the cached source texts,
+ * which is cheap as these are usually the same instances or differ in length.
+ * Otherwise, the section is rendered without being cached. Both caches are
+ * bounded by number of entries, and the section cache also by the total length
+ * of the rendered sections and their source texts, so memory usage doesn't
+ * depend on the number or length of distinct values in the input; see
+ * {@link #getMaxRetainedChars(int, int)}.
+ */
+final class RenderCache {
+	private static final Logger LOG = LoggerFactory.getLogger(RenderCache.class);
+	/** Longer strings are unlikely to be repeated, so we don't pool them */
+	private static final int MAX_POOLED_STRING_LENGTH = 256;
+	/** Maximum total length of all cached sections and their source texts */
+	private static final int MAX_SECTION_CHARS = 4*1024*1024;
+	/** Maximum number of source texts per section */
+	private static final int MAX_SECTION_SOURCES = 2;
+	private final LruCache<SectionKey, Section> sections;
+	private final LruCache<String, String> strings;
+
+	public RenderCache(int maxSize) {
+		this.sections = new LruCache<>(maxSize, MAX_SECTION_CHARS, Section::getLength);
+		this.strings = new LruCache<>(maxSize);
+	}
+
+	/**
+	 * @return Maximum number of characters retained by a cache of the given size,
+	 *         if rendered sections and each of their source texts are at most the
+	 *         given number of characters long; this ignores the fixed overhead per
+	 *         cache entry
+	 */
+	static final long getMaxRetainedChars(int maxSize, int maxSectionLength) {
+		if ( maxSize<=0 ) { return 0; }
+		return Math.min(MAX_SECTION_CHARS, (long)maxSize*maxSectionLength*(1+MAX_SECTION_SOURCES)) + (long)maxSize*MAX_POOLED_STRING_LENGTH;
+	}
+
+	/**
+	 * Get the rendered value for the given attribute, issue type and (at most
+	 * {@value #MAX_SECTION_SOURCES}) source texts, using the given renderer if
+	 * no such value has been cached yet, or if the cached value was rendered
+	 * from other source texts.
+	 */
+	public String getSection(CustomVulnAttribute attribute, String type, Supplier<String> renderer, String... sources) {
+		Section section = sections.get(new SectionKey(attribute, type), key -> new Section(sources, renderer.get()));
+		return section.isRenderedFrom(sources) ? section.getValue() : renderer.get();
+	}
+
+	/**
+	 * Get a pooled instance of the given string, if it's short enough to be pooled.
+	 */
+	public String intern(String value) {
+		return value==null || value.length()>MAX_POOLED_STRING_LENGTH ? value : strings.get(value, v -> v);
+	}
+
+	public LruCache<SectionKey, Section> getSections() {
+		return sections;
+	}
+
+	public LruCache<String, String> getStrings() {
+		return strings;
+	}
+
+	public void logStatistics() {
+		LOG.debug("Rendered sections: {}; pooled strings: {}", sections, strings);
+	}
+
+	static final class SectionKey {
+		private final CustomVulnAttribute attribute;
+		private final String type;
+		private final int hashCode;
+
+		private SectionKey(CustomVulnAttribute attribute, String type) {
+			this.attribute = attribute;
+			this.type = type;
+			this.hashCode = 31*attribute.hashCode() + Objects.hashCode(type);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( this==obj ) { return true; }
+			if ( !(obj instanceof SectionKey) ) { return false; }
+			SectionKey other = (SectionKey)obj;
+			return hashCode==other.hashCode
+				&& attribute==other.attribute
+				&& Objects.equals(type, other.type);
+		}
+	}
+
+	/**
+	 * Rendered section, together with the source texts it was rendered from
+	 */
+	static final class Section {
+		private final String[] sources;
+		private final String value;
+
+		private Section(String[] sources, String value) {
+			this.sources = sources;
+			this.value = value;
+		}
+
+		/**
+		 * @return true if this section was rendered from the given source texts;
+		 *         {@link String#equals(Object)} checks identity and length before
+		 *         comparing contents
+		 */
+		private boolean isRenderedFrom(String[] sources) {
+			return Arrays.equals(this.sources, sources);
+		}
+
+		private String getValue() {
+			return value;
+		}
+
+		private long getLength() {
+			long result = value==null ? 0 : value.length();
+			for ( String source : sources ) {
+				result += source==null ? 0 : source.length();
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.domain.Issue;
+
+/**
+ * This class implements a three-stage pipeline for processing issues:
+ * <ol>
+ *  <li>A binder thread reads {@link Issue} instances from an {@link IssueSource}</li>
+ *  <li>A pool of render threads converts issues into {@link VulnerabilityRecord} instances</li>
+ *  <li>The calling thread emits the rendered records in their original order</li>
+ * </ol>
+ * Render results are passed from the binder to the emitter through a bounded
+ * queue; once the queue is full, the binder blocks until the emitter catches
+ * up, so the number of issues in flight (and thus heap usage) is bounded by
+ * the queue capacity, independent of the size of the input.
+ * <p>
+ * If emitting fails, the binder is aborted and joined before {@link #run}
+ * returns, so the binder never keeps reading from resources that the caller
+ * closes after {@link #run} has returned.
+ */
+final class RenderPipeline {
+	private static final Logger LOG = LoggerFactory.getLogger(RenderPipeline.class);
+	private static final Future<VulnerabilityRecord> END_OF_INPUT = CompletableFuture.completedFuture(null);
+	private static final AtomicInteger PIPELINE_COUNTER = new AtomicInteger();
+	private static final long PUT_POLL_MILLIS = 100;
+	private static final long BINDER_JOIN_TIMEOUT_MILLIS = 30_000;
+
+	/**
+	 * Source of {@link Issue} instances, passing each issue to the given consumer
+	 */
+	@FunctionalInterface
+	interface IssueSource {
+		void read(Consumer<Issue> consumer) throws ScanParsingException, IOException;
+	}
+
+	private final int renderThreads;
+	private final int queueCapacity;
+
+	public RenderPipeline(int renderThreads, int queueCapacity) {
+		this.renderThreads = renderThreads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public final void run(IssueSource source, Function<Issue, VulnerabilityRecord> renderer, Consumer<VulnerabilityRecord> emitter) throws ScanParsingException, IOException {
+		final String name = "burp-parser-"+PIPELINE_COUNTER.incrementAndGet();
+		final BlockingQueue<Future<VulnerabilityRecord>> queue = new ArrayBlockingQueue<>(queueCapacity);
+		final ExecutorService renderPool = Executors.newFixedThreadPool(renderThreads, daemonThreadFactory(name+"-render-"));
+		final Binder binder = new Binder(source, issue -> renderPool.submit(() -> renderer.apply(issue)), queue);
+		final Thread binderThread = daemonThreadFactory(name+"-bind-").newThread(binder);
+		LOG.debug("Starting pipeline {} with {} render threads and queue capacity {}", name, renderThreads, queueCapacity);
+		binderThread.start();
+		try {
+			for ( Future<VulnerabilityRecord> future = take(queue) ; future!=END_OF_INPUT ; future = take(queue) ) {
+				emitter.accept(getResult(future));
+			}
+			join(binderThread);
+			binder.rethrowFailure();
+		} finally {
+			binder.aborted = true;
+			renderPool.shutdownNow();
+			cancelQueued(queue);
+			binderThread.interrupt();
+			joinAborted(name, binderThread);
+			cancelQueued(queue);
+		}
+	}
+
+	private static final class Binder implements Runnable {
+		private final IssueSource source;
+		private final Function<Issue, Future<VulnerabilityRecord>> submitter;
+		private final BlockingQueue<Future<VulnerabilityRecord>> queue;
+		private volatile boolean aborted;
+		private volatile Exception failure;
+
+		Binder(IssueSource source, Function<Issue, Future<VulnerabilityRecord>> submitter, BlockingQueue<Future<VulnerabilityRecord>> queue) {
+			this.source = source;
+			this.submitter = submitter;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			try {
+				source.read(issue -> put(submitter.apply(issue)));
+			} catch ( Exception e ) {
+				failure = e;
+			} finally {
+				try {
+					put(END_OF_INPUT);
+				} catch ( IllegalStateException e ) {
+					// Emitter has been aborted, so nobody is waiting for the end of input marker
+					LOG.trace("Pipeline aborted before end of input");
+				}
+			}
+		}
+
+		/**
+		 * Add the given future to the queue, waiting for space to become available.
+		 * While waiting, this method periodically checks whether the emitter has
+		 * been aborted, in which case the future is cancelled and an exception is
+		 * thrown to stop reading the remaining issues.
+		 */
+		void put(Future<VulnerabilityRecord> future) {
+			try {
+				while ( !aborted ) {
+					if ( queue.offer(future, PUT_POLL_MILLIS, TimeUnit.MILLISECONDS) ) { return; }
+				}
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			future.cancel(true);
+			throw new IllegalStateException("Pipeline aborted while waiting for rendered issues to be emitted");
+		}
+
+		void rethrowFailure() throws ScanParsingException, IOException {
+			if ( failure instanceof ScanParsingException ) { throw (ScanParsingException)failure; }
+			if ( failure instanceof IOException ) { throw (IOException)failure; }
+			if ( failure instanceof RuntimeException ) { throw (RuntimeException)failure; }
+			if ( failure!=null ) { throw new ScanParsingException("Error reading issues", failure); }
+		}
+	}
+
+	private static final Future<VulnerabilityRecord> take(BlockingQueue<Future<VulnerabilityRecord>> queue) throws ScanParsingException {
+		try {
+			return queue.take();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ScanParsingException("Interrupted while waiting for rendered issues", e);
+		}
+	}
+
+	private static final VulnerabilityRecord getResult(Future<VulnerabilityRecord> future) throws ScanParsingException {
+		try {
+			return future.get();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ScanParsingException("Interrupted while waiting for rendered issues", e);
+		} catch ( ExecutionException e ) {
+			if ( e.getCause() instanceof RuntimeException ) { throw (RuntimeException)e.getCause(); }
+			throw new ScanParsingException("Error rendering issue", e.getCause());
+		}
+	}
+
+	private static final void join(Thread thread) throws ScanParsingException {
+		try {
+			thread.join();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ScanParsingException("Interrupted while waiting for issue binding to complete", e);
+		}
+	}
+
+	private static final void cancelQueued(BlockingQueue<Future<VulnerabilityRecord>> queue) {
+		for ( Future<VulnerabilityRecord> future = queue.poll() ; future!=null ; future = queue.poll() ) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Wait for an aborted binder thread to terminate. The interrupt status of the
+	 * calling thread is cleared while waiting (the emitter may have been aborted
+	 * because of an interrupt), and restored afterwards.
+	 */
+	private static final void joinAborted(String name, Thread thread) {
+		boolean interrupted = Thread.interrupted();
+		try {
+			long deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(BINDER_JOIN_TIMEOUT_MILLIS);
+			for ( long remaining = BINDER_JOIN_TIMEOUT_MILLIS ; thread.isAlive() && remaining>0 ; remaining = TimeUnit.NANOSECONDS.toMillis(deadline-System.nanoTime()) ) {
+				try {
+					thread.join(remaining);
+				} catch ( InterruptedException e ) {
+					interrupted = true;
+				}
+			}
+			if ( thread.isAlive() ) {
+				LOG.warn("Binder thread of pipeline {} did not terminate within {} ms after being aborted", name, BINDER_JOIN_TIMEOUT_MILLIS);
+			}
+		} finally {
+			if ( interrupted ) { Thread.currentThread().interrupt(); }
+		}
+	}
+
+	private static final ThreadFactory daemonThreadFactory(String prefix) {
+		final AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix+counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
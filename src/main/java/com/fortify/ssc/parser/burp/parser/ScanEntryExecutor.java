@@ -0,0 +1,153 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+import com.fortify.plugin.api.ScanParsingException;
+
+/**
+ * This class processes the individual Burp exports in an upload that bundles
+ * multiple exports, for example one export per target host, on a bounded
+ * thread pool. Each export is provided to the {@link EntryTask} as a separate
+ * {@link ScanData} instance, so the existing single-export parsing logic can
+ * be reused as-is for every entry.
+ */
+final class ScanEntryExecutor {
+	private static final Logger LOG = LoggerFactory.getLogger(ScanEntryExecutor.class);
+	private static final AtomicInteger EXECUTOR_COUNTER = new AtomicInteger();
+	private static final String[] EXPORT_EXTENSIONS = {".xml", ".json", ".xml.gz", ".json.gz"};
+
+	/**
+	 * Task to be run for a single scan entry
+	 */
+	@FunctionalInterface
+	interface EntryTask<T> {
+		T run(ScanData entryScanData, ScanEntry entry) throws ScanParsingException, IOException;
+	}
+
+	private ScanEntryExecutor() {}
+
+	/**
+	 * Get the scan entries that contain a Burp export, based on their file name
+	 * extension, ordered by entry name. Callers should only process entries
+	 * separately if this returns more than one entry; otherwise the input is
+	 * read as a single export, as was done by previous plugin versions.
+	 */
+	static final List<ScanEntry> getExportEntries(ScanData scanData) {
+		List<ScanEntry> entries = scanData.getScanEntries();
+		if ( entries==null ) { return Collections.emptyList(); }
+		List<ScanEntry> result = new ArrayList<>();
+		for ( ScanEntry entry : entries ) {
+			if ( entry!=null && entry.getEntryName()!=null && isExport(entry.getEntryName()) ) {
+				result.add(entry);
+			}
+		}
+		result.sort(Comparator.comparing(ScanEntry::getEntryName));
+		return result;
+	}
+
+	private static final boolean isExport(String entryName) {
+		String name = entryName.toLowerCase(Locale.ROOT);
+		for ( String extension : EXPORT_EXTENSIONS ) {
+			if ( name.endsWith(extension) ) { return true; }
+		}
+		return false;
+	}
+
+	/**
+	 * Run the given task for every given entry, using at most the given number
+	 * of threads. If any task fails, the remaining tasks are cancelled, and the
+	 * failure of the first failed entry (in entry order) is rethrown.
+	 * @return Task results, in the same order as the given entries
+	 */
+	static final <T> List<T> run(ScanData scanData, List<ScanEntry> entries, int threads, EntryTask<T> task) throws ScanParsingException, IOException {
+		final String name = "burp-entries-"+EXECUTOR_COUNTER.incrementAndGet();
+		final int poolSize = Math.max(1, Math.min(threads, entries.size()));
+		LOG.debug("Processing {} scan entries using {} threads", entries.size(), poolSize);
+		final AtomicInteger threadCounter = new AtomicInteger();
+		final ExecutorService pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+			Thread thread = new Thread(runnable, name+"-"+threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<T>> futures = new ArrayList<>(entries.size());
+			for ( ScanEntry entry : entries ) {
+				futures.add(pool.submit(() -> task.run(new EntryScanData(scanData, entry), entry)));
+			}
+			List<T> results = new ArrayList<>(entries.size());
+			for ( int i = 0 ; i < entries.size() ; i++ ) {
+				results.add(getResult(futures.get(i), entries.get(i)));
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static final <T> T getResult(Future<T> future, ScanEntry entry) throws ScanParsingException, IOException {
+		try {
+			return future.get();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new ScanParsingException("Interrupted while processing scan entry "+entry.getEntryName(), e);
+		} catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			LOG.debug("Error processing scan entry {}", entry.getEntryName(), cause);
+			if ( cause instanceof ScanParsingException ) { throw (ScanParsingException)cause; }
+			if ( cause instanceof IOException ) { throw (IOException)cause; }
+			if ( cause instanceof RuntimeException ) { throw (RuntimeException)cause; }
+			throw new ScanParsingException("Error processing scan entry "+entry.getEntryName(), cause);
+		}
+	}
+
+	/**
+	 * {@link ScanData} view of a single scan entry; the input stream for this entry is
+	 * returned regardless of the requested file name or entry.
+	 */
+	private static final class EntryScanData implements ScanData {
+		private final ScanData delegate;
+		private final ScanEntry entry;
+
+		EntryScanData(ScanData delegate, ScanEntry entry) {
+			this.delegate = delegate;
+			this.entry = entry;
+		}
+
+		@Override
+		public String getSessionId() {
+			return delegate.getSessionId();
+		}
+
+		@Override
+		public List<ScanEntry> getScanEntries() {
+			return Collections.singletonList(entry);
+		}
+
+		@Override
+		public InputStream getInputStream(Predicate<String> matcher) throws IOException {
+			return delegate.getInputStream(entry);
+		}
+
+		@Override
+		public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+			return delegate.getInputStream(entry);
+		}
+	}
+}
@@ -1,50 +1,319 @@
 package com.fortify.ssc.parser.burp.parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fortify.plugin.api.ScanBuilder;
 import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
 import com.fortify.plugin.api.ScanParsingException;
-import com.fortify.util.ssc.parser.xml.ScanDataStreamingXmlParser;
-import com.fortify.util.xml.ExtendedXMLStreamReader;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics;
+import com.fortify.ssc.parser.burp.util.DecompressingScanData;
+import com.fortify.ssc.parser.burp.util.InputFormat;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
 
 public class ScanParser {
 	private static final Logger LOG = LoggerFactory.getLogger(ScanParser.class);
 	private final ScanData scanData;
     private final ScanBuilder scanBuilder;
+    private final BurpParserConfig config;
+    private final ParserMetrics metrics;
     
 	public ScanParser(final ScanData scanData, final ScanBuilder scanBuilder) {
-		this.scanData = scanData;
+		this(scanData, scanBuilder, BurpParserConfig.DEFAULT);
+	}
+	
+	public ScanParser(final ScanData scanData, final ScanBuilder scanBuilder, final BurpParserConfig config) {
+		this(scanData, scanBuilder, config, ParserMetrics.NOOP);
+	}
+	
+	public ScanParser(final ScanData scanData, final ScanBuilder scanBuilder, final BurpParserConfig config, final ParserMetrics metrics) {
+		this.scanData = new DecompressingScanData(scanData, config.getReadAheadBuffers(), config.getReadAheadBufferSize());
 		this.scanBuilder = scanBuilder;
+		this.config = config;
+		this.metrics = metrics;
 	}
 	
+	/**
+	 * Parse the scan metadata. If the input bundles multiple Burp exports, the
+	 * metadata of all exports is parsed concurrently and merged; see
+	 * {@link ScanMetadata#merge(List)}. If enabled, the full input is scanned
+	 * to report a scan summary; see {@link #setScanSummary(ScanMetadata)}.
+	 * All bytes read and the issues counted while parsing are reported to the
+	 * configured {@link ParserMetrics}.
+	 */
 	public final void parse() throws ScanParsingException, IOException {
-		new ScanDataStreamingXmlParser()
-			.handler("/issues", this::processIssuesAttributes)
-			.parse(scanData);
+		ParseProgress progress = new ParseProgress("Burp scan metadata parsing", config);
+		List<ScanEntry> entries = ScanEntryExecutor.getExportEntries(scanData);
+		ScanMetadata metadata = entries.size()<2 ? parseMetadata(scanData, progress)
+				: ScanMetadata.merge(ScanEntryExecutor.run(scanData, entries, config.getScanEntryThreads(), (entryScanData, entry) -> parseMetadata(entryScanData, progress)));
+		metrics.addIssues(metadata.issueCount);
+		scanBuilder.setScanDate(metadata.scanDate==null ? new Date() : metadata.scanDate);
+		if ( metadata.engineVersion!=null ) {
+			scanBuilder.setEngineVersion(metadata.engineVersion);
+		}
+		if ( config.isScanSummaryEnabled() ) {
+			setScanSummary(metadata);
+		}
 		scanBuilder.completeScan();
 	}
 	
-	private final void processIssuesAttributes(ExtendedXMLStreamReader xsr) {
-		scanBuilder.setScanDate(parseScanDate(xsr.getAttributeValue(null, "exportTime")));
-		scanBuilder.setEngineVersion(xsr.getAttributeValue(null, "burpVersion"));
-		xsr.setSkipRemaining(true);
+	/**
+	 * Report the number of distinct hosts as the number of files, as these are
+	 * the targets of a Burp scan, and the number of issues and hosts as scan
+	 * label. The host name is only set if all issues were reported on a single
+	 * host; for multi-host scans, SSC shows the host name of the scan machine.
+	 */
+	private final void setScanSummary(ScanMetadata metadata) {
+		int hostCount = metadata.hosts.size();
+		scanBuilder.setNumFiles(hostCount);
+		if ( hostCount==1 ) {
+			scanBuilder.setHostName(metadata.hosts.iterator().next());
+		}
+		scanBuilder.setScanLabel(String.format("Burp scan: %d issues on %d %s", metadata.issueCount, hostCount, hostCount==1 ? "host" : "hosts"));
+		LOG.debug("Found {} issues on hosts {}", metadata.issueCount, metadata.hosts);
+	}
+	
+	private final ScanMetadata parseMetadata(ScanData scanData, ParseProgress progress) throws ScanParsingException, IOException {
+		ScanMetadata metadata = new ScanMetadata();
+		progress.check();
+		if ( getInputFormat(scanData)==InputFormat.JSON ) {
+			parseJson(scanData, metadata, progress);
+		} else {
+			parseXml(scanData, metadata);
+			if ( config.isScanSummaryEnabled() ) {
+				scanXml(scanData, metadata, progress);
+			}
+		}
+		return metadata;
+	}
+	
+	private static final InputFormat getInputFormat(ScanData scanData) throws IOException {
+		try ( InputStream is = scanData.getInputStream(fileName -> true) ) {
+			return InputFormat.detect(is);
+		}
+	}
+	
+	/**
+	 * Burp JSON exports usually don't include any scan metadata, but we do look
+	 * for top-level exportTime/export_time and burpVersion/burp_version fields,
+	 * for consistency with XML exports. As these fields may appear after the
+	 * issues, the input is tokenized until both fields have been found, skipping
+	 * all nested structures. Only if the scan summary is enabled, the input is
+	 * tokenized until the end, and the issue arrays are walked to collect the
+	 * issue host fields. Top-level arrays, like the issue array, are processed
+	 * one element at a time, allowing us to track progress and abort parsing
+	 * if needed.
+	 */
+	private final void parseJson(ScanData scanData, ScanMetadata metadata, ParseProgress progress) throws ScanParsingException, IOException {
+		boolean summary = config.isScanSummaryEnabled();
+		try ( InputStream is = metrics.countBytesRead(progress.countBytesRead(scanData.getInputStream(fileName -> true))); JsonParser jp = IssueJsonReader.JSON_FACTORY.createParser(is) ) {
+			JsonToken rootToken = jp.nextToken();
+			if ( rootToken==JsonToken.START_ARRAY ) {
+				if ( summary ) { parseJsonIssues(jp, metadata, progress, false); }
+			} else if ( rootToken==JsonToken.START_OBJECT ) {
+				boolean exportTimeFound = false, burpVersionFound = false;
+				while ( (summary || !exportTimeFound || !burpVersionFound) && jp.nextToken()==JsonToken.FIELD_NAME ) {
+					String name = jp.getCurrentName();
+					JsonToken token = jp.nextToken();
+					if ( token==JsonToken.VALUE_STRING && ("exportTime".equals(name) || "export_time".equals(name)) ) {
+						metadata.scanDate = parseScanDate(jp.getText());
+						exportTimeFound = true;
+					} else if ( token==JsonToken.VALUE_STRING && ("burpVersion".equals(name) || "burp_version".equals(name)) ) {
+						metadata.engineVersion = jp.getText();
+						burpVersionFound = true;
+					} else if ( token==JsonToken.START_ARRAY && summary && ("issues".equals(name) || "issue_events".equals(name)) ) {
+						parseJsonIssues(jp, metadata, progress, "issue_events".equals(name));
+					} else if ( token==JsonToken.START_ARRAY ) {
+						skipJsonArray(jp, progress);
+					} else {
+						jp.skipChildren();
+					}
+				}
+			}
+		} catch ( JsonProcessingException e ) {
+			throw new ScanParsingException("Error parsing Burp JSON export", e);
+		}
+	}
+	
+	/**
+	 * Skip the current JSON array one element at a time, checking whether parsing
+	 * must be aborted after every element; the parser is positioned at the start
+	 * of the array. Elements are not counted as processed issues, as they may
+	 * not be issues.
+	 */
+	private final void skipJsonArray(JsonParser jp, ParseProgress progress) throws ScanParsingException, IOException {
+		while ( jp.nextToken()!=JsonToken.END_ARRAY && jp.currentToken()!=null ) {
+			jp.skipChildren();
+			progress.check();
+		}
+	}
+	
+	/**
+	 * Count the issues in the current JSON issues or issue_events array, and
+	 * collect their hosts; the parser is positioned at the start of the array.
+	 */
+	private final void parseJsonIssues(JsonParser jp, ScanMetadata metadata, ParseProgress progress, boolean events) throws ScanParsingException, IOException {
+		for ( JsonToken token ; (token = jp.nextToken())!=JsonToken.END_ARRAY && token!=null ; ) {
+			if ( token!=JsonToken.START_OBJECT ) {
+				jp.skipChildren();
+			} else if ( !events ) {
+				parseJsonIssue(jp, metadata);
+			} else {
+				while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+					String name = jp.getCurrentName();
+					if ( jp.nextToken()==JsonToken.START_OBJECT && "issue".equals(name) ) {
+						parseJsonIssue(jp, metadata);
+					} else {
+						jp.skipChildren();
+					}
+				}
+			}
+			progress.issueProcessed();
+		}
+	}
+	
+	private final void parseJsonIssue(JsonParser jp, ScanMetadata metadata) throws IOException {
+		metadata.issueCount++;
+		while ( jp.nextToken()==JsonToken.FIELD_NAME ) {
+			String name = jp.getCurrentName();
+			if ( jp.nextToken()==JsonToken.VALUE_STRING && ("host".equals(name) || "origin".equals(name)) ) {
+				metadata.addHost(jp.getText());
+			} else {
+				jp.skipChildren();
+			}
+		}
+	}
+	
+	/**
+	 * Read the scan metadata from the attributes of the /issues root element,
+	 * using the configured XML backend. Parsing stops after the root element,
+	 * so only the start of the input is read.
+	 */
+	private final void parseXml(ScanData scanData, ScanMetadata metadata) throws ScanParsingException, IOException {
+		try ( InputStream is = metrics.countBytesRead(scanData.getInputStream(fileName -> true)) ) {
+			XMLStreamReader xsr = XmlInputFactories.get(config.getXmlBackend()).createXMLStreamReader(is);
+			try {
+				// Skip the prolog, which usually contains a DOCTYPE declaration
+				while ( xsr.hasNext() && xsr.next()!=XMLStreamConstants.START_ELEMENT ) {}
+				if ( xsr.isStartElement() && "issues".equals(xsr.getLocalName()) ) {
+					processIssuesAttributes(xsr, metadata);
+				}
+			} finally {
+				xsr.close();
+			}
+		} catch ( XMLStreamException e ) {
+			throw new ScanParsingException("Error parsing Burp XML export", e);
+		}
+	}
+	
+	/**
+	 * Count the issues and collect the hosts of an XML export, using a byte-level
+	 * scan that is much cheaper than StAX-based parsing; see {@link XmlIssueScanner}.
+	 */
+	private final void scanXml(ScanData scanData, ScanMetadata metadata, ParseProgress progress) throws ScanParsingException, IOException {
+		try ( InputStream is = metrics.countBytesRead(progress.countBytesRead(scanData.getInputStream(fileName -> true))) ) {
+			XmlIssueScanner scanner = XmlIssueScanner.scan(is, progress);
+			metadata.issueCount = scanner.getIssueCount();
+			metadata.hosts.addAll(scanner.getHosts());
+		}
 	}
 	
+	private final void processIssuesAttributes(XMLStreamReader xsr, ScanMetadata metadata) {
+		metadata.scanDate = parseScanDate(xsr.getAttributeValue(null, "exportTime"));
+		metadata.engineVersion = xsr.getAttributeValue(null, "burpVersion");
+	}
+	
+	/**
+	 * @return Parsed date, or null if the given string is null or can't be parsed
+	 */
 	private final Date parseScanDate(String dateString) {
+		if ( dateString==null ) { return null; }
 		Date date;
 		try {
 			date = new SimpleDateFormat("EEE MMM dd H:m:s z yyyy").parse(dateString);
 		} catch (ParseException e) {
-			LOG.warn(String.format("Error parsing {} as date", dateString), e);
-			date = new Date();
+			date = parseIsoDate(dateString);
+			if ( date==null ) {
+				LOG.warn(String.format("Error parsing {} as date", dateString), e);
+			}
 		}
 		return date;
 	}
+	
+	/**
+	 * Burp JSON exports may use ISO-8601 timestamps rather than the
+	 * date format used in XML exports
+	 * @return Parsed date, or null if the given string is not an ISO-8601 timestamp
+	 */
+	private final Date parseIsoDate(String dateString) {
+		try {
+			return Date.from(OffsetDateTime.parse(dateString).toInstant());
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Scan metadata of a single Burp export; null values indicate that the
+	 * export doesn't specify (a valid value for) the corresponding field.
+	 */
+	private static final class ScanMetadata {
+		private Date scanDate;
+		private String engineVersion;
+		private long issueCount;
+		private final Set<String> hosts = new LinkedHashSet<>();
+		
+		private void addHost(String host) {
+			if ( host!=null && !host.trim().isEmpty() ) {
+				hosts.add(host.trim());
+			}
+		}
+		
+		/**
+		 * Merge the metadata of multiple Burp exports, using the earliest export time
+		 * as the scan date. All exports are expected to be produced by the same Burp
+		 * version; if not, we use the version of the earliest export. Issue
+		 * counts are summed, and hosts are combined.
+		 */
+		static final ScanMetadata merge(List<ScanMetadata> metadataList) {
+			ScanMetadata result = new ScanMetadata();
+			Set<String> engineVersions = new LinkedHashSet<>();
+			for ( ScanMetadata metadata : metadataList ) {
+				result.issueCount += metadata.issueCount;
+				result.hosts.addAll(metadata.hosts);
+				if ( metadata.engineVersion!=null ) { engineVersions.add(metadata.engineVersion); }
+				if ( metadata.scanDate!=null && (result.scanDate==null || metadata.scanDate.before(result.scanDate)) ) {
+					result.scanDate = metadata.scanDate;
+					result.engineVersion = metadata.engineVersion;
+				}
+			}
+			if ( result.engineVersion==null && !engineVersions.isEmpty() ) {
+				result.engineVersion = engineVersions.iterator().next();
+			}
+			if ( engineVersions.size()>1 ) {
+				LOG.warn("Scan entries were exported by different Burp versions {}, using version {} of the earliest export", engineVersions, result.engineVersion);
+			}
+			return result;
+		}
+	}
 }
@@ -1,27 +1,55 @@
 package com.fortify.ssc.parser.burp.parser;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.file.Paths;
 import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.fortify.plugin.api.BasicVulnerabilityBuilder.Priority;
 import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
 import com.fortify.plugin.api.ScanParsingException;
 import com.fortify.plugin.api.StaticVulnerabilityBuilder;
 import com.fortify.plugin.api.VulnerabilityHandler;
+import com.fortify.plugin.spi.VulnerabilityAttribute.AttrType;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
 import com.fortify.ssc.parser.burp.CustomVulnAttribute;
 import com.fortify.ssc.parser.burp.domain.DynamicAnalysis;
+import com.fortify.ssc.parser.burp.domain.HttpMessage;
 import com.fortify.ssc.parser.burp.domain.Issue;
 import com.fortify.ssc.parser.burp.domain.RequestResponse;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics.Phase;
+import com.fortify.ssc.parser.burp.util.DecompressingScanData;
+import com.fortify.ssc.parser.burp.util.Fingerprint;
+import com.fortify.ssc.parser.burp.util.HttpMessageDecoder;
+import com.fortify.ssc.parser.burp.util.InputFormat;
+import com.fortify.ssc.parser.burp.util.PayloadSpillFile;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
 import com.fortify.util.ssc.parser.PluginXmlHelper;
-import com.fortify.util.ssc.parser.xml.ScanDataStreamingXmlParser;
 
 public class VulnerabilitiesParser {
+	private static final Logger LOG = LoggerFactory.getLogger(VulnerabilitiesParser.class);
 	private static final String ENGINE_TYPE = PluginXmlHelper.getPluginXmlDescriptor().getEngineType();
 	private static final Map<String, Priority> MAP_SEVERITY_TO_PRIORITY = Stream.of(
 		new AbstractMap.SimpleImmutableEntry<>("Information", Priority.Low),
@@ -29,70 +57,618 @@ public class VulnerabilitiesParser {
 		new AbstractMap.SimpleImmutableEntry<>("Medium", Priority.High),
 		new AbstractMap.SimpleImmutableEntry<>("High", Priority.Critical))
 		.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+	/** Issue elements used for the instance id, category, file name and priority, and as render cache key */
+	private static final List<String> ISSUE_ELEMENTS = Arrays.asList("serialNumber", "type", "name", "host", "path", "severity", "confidence");
+	/** Issue elements used to render each attribute; must be kept in sync with the get*Text methods */
+	private static final Map<CustomVulnAttribute, List<String>> ATTRIBUTE_SOURCE_ELEMENTS = new EnumMap<>(CustomVulnAttribute.class);
+	static {
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.severity, Arrays.asList("severity"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.confidence, Arrays.asList("confidence"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.host, Arrays.asList("host"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.path, Arrays.asList("path"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.issue, Arrays.asList("issueDetail"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.remediation, Arrays.asList("remediationBackground"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.dynamicAnalysis, Arrays.asList("dynamicAnalysis/source", "dynamicAnalysis/sink", "dynamicAnalysis/sourceStackTrace", "dynamicAnalysis/sinkStackTrace"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.references, Arrays.asList("vulnerabilityClassifications", "references"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.request, Arrays.asList("requestresponse/request"));
+		ATTRIBUTE_SOURCE_ELEMENTS.put(CustomVulnAttribute.response, Arrays.asList("requestresponse/response"));
+	}
+	/** Issue elements containing (optionally Base64-encoded) HTTP messages */
+	private static final List<String> HTTP_MESSAGE_ELEMENTS = Arrays.asList("requestresponse/request", "requestresponse/response");
+	/** Assumed length of unlimited issue elements and attributes when estimating memory usage */
+	private static final int UNLIMITED_ELEMENT_ESTIMATE = 4096;
+	/** Payload spill threshold used if the memory budget is exhausted */
+	private static final int REDUCED_PAYLOAD_SPILL_THRESHOLD = 8192;
+	/** Long attributes are not truncated below this length if the memory budget is exhausted */
+	private static final int MIN_REDUCED_ATTRIBUTE_MAX_LENGTH = 1024;
+	/** Version of the rendered output, included in issue fingerprints for delta imports */
+	private static final int RENDER_VERSION = 3;
+	private final ScanData rawScanData;
 	private final ScanData scanData;
 	private final VulnerabilityHandler vulnerabilityHandler;
+	private final BurpParserConfig config;
+	private final RenderCache renderCache;
+	private final ParserMetrics metrics;
+	/** Attributes to be rendered, as configured through {@link BurpParserConfig#getAttributeMaxLengths()} */
+	private final Set<CustomVulnAttribute> enabledAttributes = EnumSet.noneOf(CustomVulnAttribute.class);
+	private final Map<String, Integer> projection;
 
 	public VulnerabilitiesParser(final ScanData scanData, final VulnerabilityHandler vulnerabilityHandler) {
-		this.scanData = scanData;
+		this(scanData, vulnerabilityHandler, BurpParserConfig.DEFAULT);
+	}
+
+	public VulnerabilitiesParser(final ScanData scanData, final VulnerabilityHandler vulnerabilityHandler, final BurpParserConfig config) {
+		this(scanData, vulnerabilityHandler, config, ParserMetrics.NOOP);
+	}
+
+	public VulnerabilitiesParser(final ScanData scanData, final VulnerabilityHandler vulnerabilityHandler, final BurpParserConfig config, final ParserMetrics metrics) {
+		this.rawScanData = scanData;
+		this.scanData = new DecompressingScanData(scanData, config.getReadAheadBuffers(), config.getReadAheadBufferSize());
 		this.vulnerabilityHandler = vulnerabilityHandler;
+		this.config = config;
+		this.renderCache = new RenderCache(config.getRenderCacheSize());
+		this.metrics = metrics;
+		for ( CustomVulnAttribute attribute : CustomVulnAttribute.values() ) {
+			if ( config.isAttributeEnabled(attribute) ) { enabledAttributes.add(attribute); }
+		}
+		this.projection = getProjection(config);
 	}
 
 	/**
 	 * Main method to commence parsing the input provided by the configured {@link ScanData}.
+	 * If the input bundles multiple Burp exports, these are parsed concurrently; see
+	 * {@link #parseEntries(List, DeltaIndex, PayloadSpillFile, ParseProgress, Consumer)}.
+	 * Parsing is aborted if the current thread is interrupted or the configured
+	 * time limit is exceeded; see {@link ParseProgress}. If the parse cache is
+	 * enabled and holds the vulnerabilities for the same input, these are passed
+	 * to the {@link VulnerabilityHandler} without parsing; see {@link ParseCache}.
+	 * Otherwise, parsing starts once the memory budget for this parse has been
+	 * reserved, possibly with reduced settings; see {@link MemoryBudget}.
 	 * @throws ScanParsingException
 	 * @throws IOException
 	 */
 	public final void parse() throws ScanParsingException, IOException {
-		new ScanDataStreamingXmlParser()
-			.handler("/issues/issue", Issue.class, this::buildVulnerabilities)
-			.parse(scanData);
+		ParseProgress progress = new ParseProgress("Burp vulnerability parsing", config);
+		List<ScanEntry> entries = ScanEntryExecutor.getExportEntries(scanData);
+		ParseCache parseCache = createParseCache();
+		String cacheKey = parseCache==null ? null : parseCache.getKey(rawScanData, entries, getSettingsFingerprint());
+		try {
+			if ( cacheKey!=null ) {
+				long replayed = parseCache.replay(cacheKey, progress.tracking(this::emitVulnerability));
+				if ( replayed>=0 ) {
+					LOG.info("Parse cache hit: {} vulnerabilities reused without parsing", replayed);
+					return;
+				}
+			}
+			try ( MemoryBudget.Reservation reservation = reserveMemory(entries, progress) ) {
+				if ( reservation==null || reservation.getConfig()==config ) {
+					parse(entries, progress, parseCache, cacheKey);
+				} else {
+					VulnerabilitiesParser parser = new VulnerabilitiesParser(rawScanData, vulnerabilityHandler, reservation.getConfig(), metrics);
+					// Don't cache the output if reduced settings affect the output
+					boolean cacheable = parser.getSettingsFingerprint()==getSettingsFingerprint();
+					parser.parse(entries, progress, cacheable ? parseCache : null, cacheable ? cacheKey : null);
+				}
+			}
+		} catch ( ParseProgress.AbortedException e ) {
+			throw e.getCause();
+		}
+		LOG.debug("Completed {}", progress);
+	}
+
+	private final void parse(List<ScanEntry> entries, ParseProgress progress, ParseCache parseCache, String cacheKey) throws ScanParsingException, IOException {
+		try ( ParseCache.Writer cacheWriter = cacheKey==null ? null : parseCache.createWriter(cacheKey) ) {
+			Consumer<VulnerabilityRecord> emitter = cacheWriter==null ? this::emitVulnerability : cacheWriter.andThen(this::emitVulnerability);
+			parse(entries, progress, emitter);
+			if ( cacheWriter!=null ) {
+				cacheWriter.commit();
+			}
+		}
+	}
+
+	private final void parse(List<ScanEntry> entries, ParseProgress progress, Consumer<VulnerabilityRecord> emitter) throws ScanParsingException, IOException {
+		try ( DeltaIndex deltaIndex = createDeltaIndex(); PayloadSpillFile spillFile = createSpillFile() ) {
+			if ( config.getAggregationKey().isEmpty() ) {
+				parseEntries(entries, deltaIndex, spillFile, progress, progress.tracking(emitter));
+			} else {
+				try ( VulnerabilityAggregator aggregator = new VulnerabilityAggregator(config.getAggregationKey(), config.getAggregationMaxGroups()) ) {
+					parseEntries(entries, deltaIndex, spillFile, progress, progress.tracking(aggregator::add));
+					progress.check();
+					aggregator.emit(group -> emitter.accept(renderAggregatedVulnerability(group)));
+				}
+			}
+			if ( deltaIndex!=null ) {
+				deltaIndex.commit();
+			}
+		} catch ( UncheckedIOException e ) {
+			throw e.getCause();
+		}
+		renderCache.logStatistics();
+	}
+
+	/**
+	 * Reserve the memory budget for parsing the given entries; see {@link MemoryBudget}
+	 * @return Reservation, or null if the memory budget is disabled
+	 */
+	private final MemoryBudget.Reservation reserveMemory(List<ScanEntry> entries, ParseProgress progress) throws ScanParsingException {
+		if ( config.getMemoryBudgetMegabytes()<=0 ) { return null; }
+		int entryCount = entries.size();
+		MemoryBudget.Reservation reservation = MemoryBudget.SHARED.reserve("Burp vulnerability parsing", config,
+				config.getMemoryBudgetMegabytes()*1024L*1024L, TimeUnit.SECONDS.toMillis(config.getMemoryBudgetWaitSeconds()),
+				reserveConfig -> getMaxPayloadBytes(reserveConfig, entryCount), VulnerabilitiesParser::reduceMemoryUsage, progress);
+		BurpParserConfig reduced = reservation.getConfig();
+		metrics.addMemoryReservation(reservation.getBytes(), reservation.getWaitMillis(), reduced!=config);
+		if ( reduced!=config ) {
+			LOG.warn("Memory budget of {} MB exhausted, parsing with reduced settings payloadSpillThreshold={}, parallelism={}, pipelineQueueSize={}, "
+					+ "scanEntryThreads={}, aggregationMaxGroups={}, renderCacheSize={}, attributeMaxLengths={}", config.getMemoryBudgetMegabytes(),
+					reduced.getPayloadSpillThreshold(), reduced.getParallelism(), reduced.getPipelineQueueSize(),
+					reduced.getScanEntryThreads(), reduced.getAggregationMaxGroups(), reduced.getRenderCacheSize(), reduced.getAttributeMaxLengths());
+		}
+		return reservation;
+	}
+
+	/**
+	 * Estimate the maximum number of payload bytes held in memory when parsing with
+	 * the given configuration: the bound elements of every issue that may be in flight
+	 * between reading and emitting, as limited by the projection and payload spilling,
+	 * and the attributes rendered from these, plus the vulnerabilities held while
+	 * aggregating and the sections and strings retained by the {@link RenderCache}.
+	 * Elements and attributes that are not limited, like issue name and host, are
+	 * assumed to be {@link #UNLIMITED_ELEMENT_ESTIMATE} characters long.
+	 */
+	static final long getMaxPayloadBytes(BurpParserConfig config, int entryCount) {
+		long issueChars = 0;
+		for ( Map.Entry<String, Integer> element : getProjection(config).entrySet() ) {
+			long maxLength = element.getValue()==Integer.MAX_VALUE ? UNLIMITED_ELEMENT_ESTIMATE : element.getValue();
+			if ( config.getPayloadSpillThreshold()>0 && HTTP_MESSAGE_ELEMENTS.contains(element.getKey()) ) {
+				maxLength = Math.min(maxLength, config.getPayloadSpillThreshold());
+			}
+			issueChars += maxLength;
+		}
+		long recordChars = 0;
+		for ( CustomVulnAttribute attribute : CustomVulnAttribute.values() ) {
+			int maxLength = config.getAttributeMaxLength(attribute);
+			recordChars += maxLength==Integer.MAX_VALUE ? UNLIMITED_ELEMENT_ESTIMATE : maxLength;
+		}
+		long issuesInFlight = 1;
+		if ( config.getParallelism()>1 ) {
+			issuesInFlight += (long)config.getParallelism()*ParallelIssueReader.TASKS_PER_THREAD;
+		}
+		if ( config.getPipelineThreads()>0 ) {
+			issuesInFlight += (long)config.getPipelineQueueSize()+config.getPipelineThreads();
+		}
+		issuesInFlight *= Math.max(1, Math.min(entryCount, config.getScanEntryThreads()));
+		long aggregatedRecords = config.getAggregationKey().isEmpty() ? 0 : config.getAggregationMaxGroups();
+		int maxSectionLength = Math.max(config.getAttributeMaxLength(CustomVulnAttribute.remediation), config.getAttributeMaxLength(CustomVulnAttribute.references));
+		long renderCacheChars = RenderCache.getMaxRetainedChars(config.getRenderCacheSize(), maxSectionLength);
+		return 2*(issuesInFlight*(issueChars+recordChars)+aggregatedRecords*recordChars+renderCacheChars);
+	}
+
+	/**
+	 * Reduce the settings that determine the payload held in memory, preferring
+	 * settings that don't affect the output: first spill requests and responses
+	 * to disk, then halve the number of issues and vulnerabilities held concurrently
+	 * and the render cache size, and only then halve the maximum length of long
+	 * attributes, down to
+	 * {@link #MIN_REDUCED_ATTRIBUTE_MAX_LENGTH}.
+	 * @return Reduced configuration, or null if the given configuration can't be reduced any further
+	 */
+	static final BurpParserConfig reduceMemoryUsage(BurpParserConfig config) {
+		if ( config.getPayloadSpillThreshold()<=0 || config.getPayloadSpillThreshold()>REDUCED_PAYLOAD_SPILL_THRESHOLD ) {
+			return config.toBuilder().payloadSpillThreshold(REDUCED_PAYLOAD_SPILL_THRESHOLD).build();
+		}
+		boolean pipelined = config.getPipelineThreads()>0 && config.getPipelineQueueSize()>1;
+		boolean aggregated = !config.getAggregationKey().isEmpty() && config.getAggregationMaxGroups()>1;
+		if ( pipelined || aggregated || config.getParallelism()>1 || config.getScanEntryThreads()>1 || config.getRenderCacheSize()>1 ) {
+			return config.toBuilder()
+				.pipelineQueueSize(pipelined ? config.getPipelineQueueSize()/2 : config.getPipelineQueueSize())
+				.aggregationMaxGroups(aggregated ? config.getAggregationMaxGroups()/2 : config.getAggregationMaxGroups())
+				.parallelism(Math.max(1, config.getParallelism()/2))
+				.scanEntryThreads(Math.max(1, config.getScanEntryThreads()/2))
+				.renderCacheSize((config.getRenderCacheSize()+1)/2)
+				.build();
+		}
+		Map<CustomVulnAttribute, Integer> maxLengths = new EnumMap<>(CustomVulnAttribute.class);
+		boolean reduced = false;
+		for ( CustomVulnAttribute attribute : CustomVulnAttribute.values() ) {
+			int maxLength = config.getAttributeMaxLength(attribute);
+			if ( attribute.attributeType()==AttrType.LONG_STRING && maxLength>MIN_REDUCED_ATTRIBUTE_MAX_LENGTH ) {
+				maxLength = Math.max(MIN_REDUCED_ATTRIBUTE_MAX_LENGTH, maxLength/2);
+				reduced = true;
+			}
+			maxLengths.put(attribute, maxLength);
+		}
+		return reduced ? config.toBuilder().attributeMaxLengths(Collections.unmodifiableMap(maxLengths)).build() : null;
+	}
+
+	private final DeltaIndex createDeltaIndex() throws IOException {
+		String directory = config.getDeltaIndexDirectory();
+		return StringUtils.isBlank(directory) ? null
+				: new DeltaIndex(Paths.get(directory), config.getDeltaIndexMaxMegabytesPerHost()*1024L*1024L);
+	}
+
+	private final ParseCache createParseCache() throws IOException {
+		String directory = config.getParseCacheDirectory();
+		return StringUtils.isBlank(directory) ? null
+				: new ParseCache(Paths.get(directory), config.getParseCacheMaxMegabytes()*1024L*1024L);
+	}
+
+	private final PayloadSpillFile createSpillFile() {
+		return config.getPayloadSpillThreshold()>0 ? new PayloadSpillFile(config.getPayloadSpillThreshold()) : null;
+	}
+
+	/**
+	 * Parse the given Burp export entries concurrently, using one thread per entry,
+	 * or parse the input as a single export if there are less than two entries.
+	 * All vulnerabilities are passed to the given emitter one at a time, in no
+	 * particular order across entries.
+	 * 
+	 * Serial numbers are only unique within a single export, so before parsing,
+	 * we collect the serial numbers of all entries to identify serial numbers
+	 * that occur in multiple entries. As SSC requires unique instance ids, every
+	 * occurrence of such serial numbers is qualified with the entry name, independent
+	 * of the order in which entries are parsed.
+	 * 
+	 * If delta import is enabled, records are stored in the delta index while
+	 * holding the emitter lock, as {@link DeltaIndex#store(String, VulnerabilityRecord, long)}
+	 * must be called from a single thread at a time.
+	 */
+	private final void parseEntries(List<ScanEntry> entries, DeltaIndex deltaIndex, PayloadSpillFile spillFile, ParseProgress progress, Consumer<VulnerabilityRecord> emitter) throws ScanParsingException, IOException {
+		Consumer<VulnerabilityRecord> storingEmitter = deltaIndex==null ? emitter : storeAndEmit(deltaIndex, emitter);
+		if ( entries.size()<2 ) {
+			parse(scanData, deltaIndex, spillFile, progress, storingEmitter, issue -> {});
+			return;
+		}
+		Set<String> collisions = getSerialNumberCollisions(entries, progress);
+		Object emitterLock = new Object();
+		Consumer<VulnerabilityRecord> synchronizedEmitter = record -> {
+			synchronized (emitterLock) {
+				storingEmitter.accept(record);
+			}
+		};
+		ScanEntryExecutor.run(scanData, entries, config.getScanEntryThreads(), (entryScanData, entry) -> {
+			progress.check();
+			parse(entryScanData, deltaIndex, spillFile, progress, synchronizedEmitter, issue -> {
+				if ( collisions.contains(issue.getSerialNumber()) ) {
+					issue.setSerialNumber(issue.getSerialNumber()+"@"+entry.getEntryName());
+				}
+			});
+			return null;
+		});
+	}
+
+	/**
+	 * Get the serial numbers that occur in more than one of the given entries,
+	 * reading only the serial numbers of all issues. This pass reads all entries
+	 * in full, so we check for interruption and the time limit while reading, but
+	 * the issues and bytes read are not counted as parse progress.
+	 */
+	private final Set<String> getSerialNumberCollisions(List<ScanEntry> entries, ParseProgress progress) throws ScanParsingException, IOException {
+		Map<String, Integer> projection = Collections.singletonMap("serialNumber", Integer.MAX_VALUE);
+		List<Set<String>> serialNumbers = ScanEntryExecutor.run(scanData, entries, config.getScanEntryThreads(), (entryScanData, entry) -> {
+			progress.check();
+			Set<String> result = new HashSet<>();
+			readIssues(entryScanData, projection, null, ParseProgress.NOOP, ParserMetrics.NOOP, progress.checking(issue -> result.add(issue.getSerialNumber())));
+			return result;
+		});
+		Set<String> seen = new HashSet<>(), collisions = new HashSet<>();
+		for ( Set<String> entrySerialNumbers : serialNumbers ) {
+			for ( String serialNumber : entrySerialNumbers ) {
+				if ( !seen.add(serialNumber) ) { collisions.add(serialNumber); }
+			}
+		}
+		LOG.debug("Found {} serial numbers occurring in multiple scan entries", collisions.size());
+		return collisions;
+	}
+
+	/**
+	 * Parse a single Burp export; if delta import is enabled, issues are looked
+	 * up in the delta index before rendering, but the given emitter is responsible
+	 * for storing the resulting records
+	 * @param preprocessor Invoked for every issue before rendering
+	 */
+	private final void parse(ScanData scanData, DeltaIndex deltaIndex, PayloadSpillFile spillFile, ParseProgress progress, Consumer<VulnerabilityRecord> emitter, Consumer<Issue> preprocessor) throws ScanParsingException, IOException {
+		Function<Issue, VulnerabilityRecord> renderer = deltaIndex==null ? this::renderVulnerability : issue -> renderVulnerability(deltaIndex, issue);
+		RenderPipeline.IssueSource source = consumer -> readIssues(scanData, projection, spillFile, progress, metrics, preprocessor.andThen(consumer));
+		if ( config.getPipelineThreads()>0 ) {
+			new RenderPipeline(config.getPipelineThreads(), config.getPipelineQueueSize())
+				.run(source, renderer, emitter);
+		} else {
+			Function<Issue, VulnerabilityRecord> sequentialRenderer = renderer;
+			Consumer<VulnerabilityRecord> sequentialEmitter = emitter;
+			source.read(issue -> sequentialEmitter.accept(sequentialRenderer.apply(issue)));
+		}
+	}
+
+	/**
+	 * Reuse the record rendered during the previous import if the issue hasn't
+	 * changed, otherwise render the issue.
+	 */
+	private final VulnerabilityRecord renderVulnerability(DeltaIndex deltaIndex, Issue issue) {
+		long fingerprint = getFingerprint(issue);
+		VulnerabilityRecord record = deltaIndex.lookup(issue.getHost(), getInstanceId(issue), fingerprint);
+		if ( record==null ) {
+			record = renderVulnerability(issue);
+		}
+		record.setFingerprint(fingerprint);
+		setIssueFields(record, issue);
+		return record;
+	}
+
+	private static final Consumer<VulnerabilityRecord> storeAndEmit(DeltaIndex deltaIndex, Consumer<VulnerabilityRecord> emitter) {
+		return record -> {
+			deltaIndex.store(record.getIssueHost(), record, record.getFingerprint());
+			emitter.accept(record);
+		};
+	}
+
+	/**
+	 * Get a fingerprint of all issue data used to render a vulnerability; see
+	 * {@link #getProjection(BurpParserConfig)}, and of the configuration settings that affect
+	 * rendering. {@link #RENDER_VERSION} must be incremented whenever rendering
+	 * changes, to invalidate previously rendered records.
+	 */
+	final long getFingerprint(Issue issue) {
+		Fingerprint fingerprint = addSettings(new Fingerprint())
+			.add(issue.getSerialNumber()).add(issue.getType()).add(issue.getName())
+			.add(issue.getHost()).add(issue.getPath()).add(issue.getSeverity()).add(issue.getConfidence())
+			.add(issue.getIssueDetail()).add(issue.getRemediationBackground())
+			.add(issue.getVulnerabilityClassifications()).add(issue.getReferences());
+		List<DynamicAnalysis> dynamicAnalysisList = issue.getDynamicAnalysis();
+		fingerprint.add(dynamicAnalysisList==null ? -1 : dynamicAnalysisList.size());
+		if ( dynamicAnalysisList!=null ) {
+			for ( DynamicAnalysis da : dynamicAnalysisList ) {
+				fingerprint.add(da.getSource()).add(da.getSink()).add(da.getSourceStackTrace()).add(da.getSinkStackTrace());
+			}
+		}
+		RequestResponse requestResponse = issue.getRequestresponse();
+		addFingerprint(fingerprint, requestResponse==null ? null : requestResponse.getRequest());
+		addFingerprint(fingerprint, requestResponse==null ? null : requestResponse.getResponse());
+		for ( String element : HTTP_MESSAGE_ELEMENTS ) {
+			fingerprint.add(issue.isTruncated(element));
+		}
+		return fingerprint.getValue();
+	}
+
+	/**
+	 * Get a fingerprint of all configuration settings that affect the vulnerabilities
+	 * produced for a given input, used as part of the parse cache key. Besides the
+	 * rendering settings, this includes the aggregation settings, as the parse cache
+	 * stores aggregated vulnerabilities.
+	 */
+	final long getSettingsFingerprint() {
+		Fingerprint fingerprint = addSettings(new Fingerprint())
+			.add(config.getAggregationMaxGroups())
+			.add(config.getAggregationKey().size());
+		for ( String field : config.getAggregationKey() ) {
+			fingerprint.add(field);
+		}
+		return fingerprint.getValue();
+	}
+
+	/**
+	 * Add {@link #RENDER_VERSION} and all configuration settings that affect rendering
+	 * to the given {@link Fingerprint}
+	 */
+	private final Fingerprint addSettings(Fingerprint fingerprint) {
+		fingerprint.add(RENDER_VERSION).add(config.getMaxTextBodySize());
+		for ( CustomVulnAttribute attribute : CustomVulnAttribute.values() ) {
+			fingerprint.add(config.getAttributeMaxLength(attribute));
+		}
+		return fingerprint;
+	}
+
+	private static final void addFingerprint(Fingerprint fingerprint, HttpMessage message) {
+		fingerprint.add(message!=null);
+		if ( message!=null ) {
+			fingerprint.add(message.isBase64Encoded()).add(message.getContent());
+		}
+	}
+
+	/**
+	 * Read all issues from either a Burp XML export or a Burp JSON issue export,
+	 * binding only the given projection; parallel parsing is only supported for
+	 * XML exports. Zip files containing multiple exports are rejected once the
+	 * first export has been read.
+	 */
+	private final void readIssues(ScanData scanData, Map<String, Integer> projection, PayloadSpillFile spillFile, ParseProgress progress, ParserMetrics metrics, Consumer<Issue> consumer) throws ScanParsingException, IOException {
+		try ( InputStream input = scanData.getInputStream(fileName -> true) ) {
+			InputFormat format = InputFormat.detect(input);
+			InputStream is = metrics.countBytesRead(progress.countBytesRead(input));
+			if ( format==InputFormat.JSON ) {
+				new IssueJsonReader(projection, spillFile, metrics).read(is, consumer);
+			} else {
+				IssueXmlReader reader = new IssueXmlReader(new IssueBinder(projection, spillFile), metrics, XmlInputFactories.get(config.getXmlBackend()));
+				if ( config.getParallelism()>1 ) {
+					new ParallelIssueReader(config.getParallelism(), reader).read(is, progress, consumer);
+				} else {
+					reader.read(is, consumer);
+				}
+			}
+			DecompressingScanData.checkSingleExport(input);
+		}
+	}
+
+	/**
+	 * Get the issue elements that need to be bound to render all vulnerability
+	 * data, using the default configuration; see {@link #getProjection(BurpParserConfig)}.
+	 */
+	static final Map<String, Integer> getProjection() {
+		return getProjection(BurpParserConfig.DEFAULT);
+	}
+
+	/**
+	 * Get the issue elements that need to be bound to render all vulnerability
+	 * data; see {@link #ISSUE_ELEMENTS} and {@link #ATTRIBUTE_SOURCE_ELEMENTS}.
+	 * Any other elements, including elements that are only used by disabled
+	 * attributes, are skipped while reading the input.
+	 * 
+	 * Each element is mapped to the maximum number of characters to be read.
+	 * Elements that are rendered as-is are read in full. Elements that are
+	 * rendered into abbreviated attributes are read up to one character more
+	 * than the maximum attribute length, so the rendered output, including
+	 * the "..." suffix, is identical to rendering the full element text. For
+	 * HTTP messages, we read as much encoded data as may be needed to decode
+	 * the maximum code length plus one character.
+	 */
+	static final Map<String, Integer> getProjection(BurpParserConfig config) {
+		Map<String, Integer> result = new HashMap<>();
+		ATTRIBUTE_SOURCE_ELEMENTS.forEach((attribute, elements) -> {
+			int maxLength = config.getAttributeMaxLength(attribute);
+			if ( maxLength>0 ) {
+				int maxElementLength = HTTP_MESSAGE_ELEMENTS.containsAll(elements)
+						? HttpMessageDecoder.getMaxEncodedLength(getMaxCodeLength(maxLength)+1)
+						: maxLength==Integer.MAX_VALUE ? maxLength : maxLength+1;
+				elements.forEach(element -> result.merge(element, maxElementLength, Math::max));
+			}
+		});
+		ISSUE_ELEMENTS.forEach(element -> result.put(element, Integer.MAX_VALUE));
+		return result;
+	}
+
+	final VulnerabilityRecord renderVulnerability(Issue issue) {
+		long start = metrics.startTimer();
+		VulnerabilityRecord record = new VulnerabilityRecord(getInstanceId(issue), renderCache.intern(issue.getName()), getConfidence(issue), getFileName(issue), getPriority(issue));
+		for ( CustomVulnAttribute attribute : enabledAttributes ) {
+			record.attribute(attribute, renderAttribute(attribute, issue, config.getAttributeMaxLength(attribute)));
+		}
+		setIssueFields(record, issue);
+		metrics.stopTimer(Phase.RENDER, start);
+		return record;
+	}
+
+	/**
+	 * Carry the unabbreviated issue fields used for delta import and aggregation
+	 * on the given record, independent of whether the corresponding attributes
+	 * are enabled or shortened.
+	 */
+	private final void setIssueFields(VulnerabilityRecord record, Issue issue) {
+		record.setIssueHost(renderCache.intern(issue.getHost()));
+		record.setIssuePath(issue.getPath());
+		record.setIssueSeverity(renderCache.intern(issue.getSeverity()));
+		record.setIssueConfidence(renderCache.intern(issue.getConfidence()));
+	}
+
+	private final String renderAttribute(CustomVulnAttribute attribute, Issue issue, int maxLength) {
+		switch ( attribute ) {
+		case severity: return abbreviate(renderCache.intern(issue.getSeverity()), maxLength);
+		case confidence: return abbreviate(renderCache.intern(issue.getConfidence()), maxLength);
+		case host: return abbreviate(renderCache.intern(issue.getHost()), maxLength);
+		case path: return abbreviate(issue.getPath(), maxLength);
+		case issue: return getIssueText(issue, maxLength);
+		case remediation: return renderCache.getSection(CustomVulnAttribute.remediation, issue.getType(),
+				() -> getRemediationText(issue, maxLength), issue.getRemediationBackground());
+		case dynamicAnalysis: return getDynamicAnalysisText(issue, maxLength);
+		case references: return renderCache.getSection(CustomVulnAttribute.references, issue.getType(),
+				() -> getReferencesText(issue, maxLength), issue.getVulnerabilityClassifications(), issue.getReferences());
+		case request: return getRequestText(issue, maxLength);
+		case response: return getResponseText(issue, maxLength);
+		default: throw new IllegalArgumentException("Unsupported attribute "+attribute);
+		}
+	}
+
+	/**
+	 * Abbreviate the given attribute value, counting it as a truncated field if
+	 * it exceeds the given maximum length
+	 */
+	private final String abbreviate(String value, int maxLength) {
+		if ( value!=null && value.length()>maxLength ) {
+			metrics.addTruncatedField();
+		}
+		return StringUtils.abbreviate(value, maxLength);
+	}
+
+	/**
+	 * Get the output of the given {@link HtmlRenderer}, counting it as a truncated
+	 * field if any of the output was abbreviated or truncated while reading
+	 */
+	private final String getText(HtmlRenderer renderer) {
+		if ( renderer.isTruncated() ) {
+			metrics.addTruncatedField();
+		}
+		return renderer.toString();
+	}
+
+	/**
+	 * Render a single vulnerability for the given group of issues, based on the
+	 * representative (first) issue in the group, with an instance id derived from
+	 * the group key and the affected paths listed in the issue attribute.
+	 */
+	private final VulnerabilityRecord renderAggregatedVulnerability(VulnerabilityAggregator.Group group) {
+		VulnerabilityRecord representative = group.getRepresentative();
+		VulnerabilityRecord record = new VulnerabilityRecord(group.getInstanceId(), representative.getCategory(),
+				representative.getConfidence(), representative.getFileName(), representative.getPriority());
+		representative.getAttributes().forEach(record::attribute);
+		if ( enabledAttributes.contains(CustomVulnAttribute.issue) ) {
+			record.attribute(CustomVulnAttribute.issue, getAggregatedIssueText(group, representative.getAttributes().get(CustomVulnAttribute.issue),
+					config.getAttributeMaxLength(CustomVulnAttribute.issue)));
+		}
+		return record;
+	}
+
+	private String getAggregatedIssueText(VulnerabilityAggregator.Group group, String issueText, int maxLength) {
+		StringBuilder paths = new StringBuilder();
+		for ( String path : group.getPaths() ) {
+			if ( paths.length()>0 ) { paths.append("<br/>\n"); }
+			paths.append(path);
+		}
+		if ( group.getPaths().size()>=VulnerabilityAggregator.MAX_PATHS_PER_GROUP ) {
+			paths.append("<br/>\n...");
+		}
+		HtmlRenderer renderer = HtmlRenderer.get(maxLength)
+			.section("Affected Paths ("+group.getCount()+" issues)", paths);
+		if ( issueText != null ) {
+			renderer.raw(issueText);
+		}
+		return getText(renderer);
 	}
 
-	private final void buildVulnerabilities(Issue issue) {
-		StaticVulnerabilityBuilder vb = vulnerabilityHandler.startStaticVulnerability(getInstanceId(issue));
+	private final void emitVulnerability(VulnerabilityRecord record) {
+		long start = metrics.startTimer();
+		StaticVulnerabilityBuilder vb = vulnerabilityHandler.startStaticVulnerability(record.getInstanceId());
 		vb.setEngineType(ENGINE_TYPE);
 		// vb.setKingdom(FortifyKingdom.ENVIRONMENT.getKingdomName());
 		vb.setAnalyzer("BURP");
-		vb.setCategory(issue.getName());
+		vb.setCategory(record.getCategory());
 
 		// Set mandatory values to JavaDoc-recommended values
 		vb.setAccuracy(5.0f);
-		vb.setConfidence(getConfidence(issue));
+		vb.setConfidence(record.getConfidence());
 		vb.setLikelihood(2.5f);
 
-		vb.setFileName(getFileName(issue));
-		vb.setPriority(getPriority(issue));
-
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.severity, issue.getSeverity());
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.confidence, issue.getConfidence());
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.host, issue.getHost());
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.path, issue.getPath());
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.issue, getIssueText(issue));
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.remediation, getRemediationText(issue));
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.dynamicAnalysis, getDynamicAnalysisText(issue));
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.references, getReferencesText(issue));
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.request, getRequestText(issue));
-		vb.setStringCustomAttributeValue(CustomVulnAttribute.response, getResponseText(issue));
+		vb.setFileName(record.getFileName());
+		vb.setPriority(record.getPriority());
+
+		long payloadLength = 0;
+		for ( Map.Entry<CustomVulnAttribute, String> attribute : record.getAttributes().entrySet() ) {
+			String value = attribute.getValue();
+			vb.setStringCustomAttributeValue(attribute.getKey(), value);
+			if ( value!=null ) {
+				payloadLength += value.length();
+			}
+		}
 		vb.completeVulnerability();
+		metrics.stopTimer(Phase.EMIT, start);
+		metrics.addIssue(payloadLength);
 	}
 
-	private String getDynamicAnalysisText(Issue issue) {
-		StringBuilder sb = new StringBuilder();
+	private String getDynamicAnalysisText(Issue issue, int maxLength) {
+		HtmlRenderer renderer = HtmlRenderer.get(maxLength);
 		List<DynamicAnalysis> dynamicAnalysisList = issue.getDynamicAnalysis();
 		if (dynamicAnalysisList != null) {
 			boolean first = true;
 			for (DynamicAnalysis da : dynamicAnalysisList) {
 				if (!first) {
-					sb.append("<hr/>\n");
+					renderer.raw("<hr/>\n");
 				}
 				first = false;
-				appendSection(sb, "Source", da.getSource());
-				appendSection(sb, "Sink", da.getSink());
-				appendSection(sb, "Source Stack Trace", da.getSourceStackTrace());
-				appendSection(sb, "Sink Stack Trace", da.getSinkStackTrace());
+				renderer.section("Source", da.getSource())
+					.section("Sink", da.getSink())
+					.section("Source Stack Trace", da.getSourceStackTrace())
+					.section("Sink Stack Trace", da.getSinkStackTrace());
 			}
 		}
-		return StringUtils.abbreviate(sb.toString(), 20000);
+		return getText(renderer);
 	}
 
 	private String getInstanceId(Issue issue) {
@@ -104,63 +680,85 @@ public class VulnerabilitiesParser {
 	}
 
 	private String getFileName(Issue issue) {
-		String host = issue.getHost();
-		String path = issue.getPath();
+		String host = StringUtils.isBlank(issue.getHost()) ? "" : issue.getHost();
+		String path = StringUtils.isBlank(issue.getPath()) ? "" : issue.getPath();
 
-		return Stream.of(host, path)
-			.filter(StringUtils::isNotBlank)
-			.collect(Collectors.joining());
+		return host.isEmpty() ? path : path.isEmpty() ? host : host+path;
 	}
 
-	private String getIssueText(Issue issue) {
-		StringBuilder sb = new StringBuilder();
-		appendSection(sb, "Details", issue.getIssueDetail());
-		// appendSection(sb, "Background", issue.getIssueBackground());
-		return StringUtils.abbreviate(sb.toString(), 20000);
+	private String getIssueText(Issue issue, int maxLength) {
+		HtmlRenderer renderer = HtmlRenderer.get(maxLength)
+			.section("Details", issue.getIssueDetail());
+			// .section("Background", issue.getIssueBackground());
+		return getText(renderer);
 	}
 
-	private String getRemediationText(Issue issue) {
-		StringBuilder sb = new StringBuilder();
-		// appendSection(sb, "Details", issue.getRemediationDetail());
-		appendSection(sb, "Background", issue.getRemediationBackground());
-		return StringUtils.abbreviate(sb.toString(), 20000);
+	private String getRemediationText(Issue issue, int maxLength) {
+		return getText(HtmlRenderer.get(maxLength)
+			// .section("Details", issue.getRemediationDetail())
+			.section("Background", issue.getRemediationBackground()));
 	}
 
-	private String getReferencesText(Issue issue) {
-		StringBuilder sb = new StringBuilder();
-		appendSection(sb, "Classifications", issue.getVulnerabilityClassifications());
-		appendSection(sb, "References", issue.getReferences());
-		return StringUtils.abbreviate(sb.toString(), 20000);
+	private String getReferencesText(Issue issue, int maxLength) {
+		return getText(HtmlRenderer.get(maxLength)
+			.section("Classifications", issue.getVulnerabilityClassifications())
+			.section("References", issue.getReferences()));
 	}
 
-	private String getRequestText(Issue issue) {
+	private String getRequestText(Issue issue, int maxLength) {
 		RequestResponse requestResponse = issue.getRequestresponse();
-		return requestResponse == null ? "" : getCodeAsHtml(requestResponse.getRequestDecoded(), 20000);
+		return requestResponse == null ? "" : getHttpMessageText(requestResponse.getRequest(), issue.isTruncated("requestresponse/request"), maxLength);
 	}
 
-	private String getResponseText(Issue issue) {
+	private String getResponseText(Issue issue, int maxLength) {
 		RequestResponse requestResponse = issue.getRequestresponse();
-		return requestResponse == null ? "" : getCodeAsHtml(requestResponse.getResponseDecoded(), 20000);
+		return requestResponse == null ? "" : getHttpMessageText(requestResponse.getResponse(), issue.isTruncated("requestresponse/response"), maxLength);
 	}
 
-	private final String getCodeAsHtml(String code, int maxTotalLength) {
-		StringBuilder sb = new StringBuilder();
-		if (StringUtils.isNotBlank(code)) {
-			final String codePrefix = "<pre><code>";
-			final String codeSuffix = "</code></pre>";
-			final int maxCodeLength = maxTotalLength - codePrefix.length() - codeSuffix.length();
+	/**
+	 * Decode the given {@link HttpMessage} into the renderer's decode buffer, and
+	 * render it as an HTML code block.
+	 */
+	private String getHttpMessageText(HttpMessage message, boolean truncated, int maxLength) {
+		if ( message == null ) { return ""; }
+		HtmlRenderer renderer = HtmlRenderer.get(maxLength);
+		CharBuffer code = renderer.getDecodeBuffer(getMaxCodeLength(maxLength)+1);
+		long start = metrics.startTimer();
+		message.decode(code, config.getMaxTextBodySize());
+		metrics.stopTimer(Phase.DECODE, start);
+		code.flip();
+		metrics.addDecodedChars(code.length());
+		return getText(renderer.code(code, truncated));
+	}
 
-			sb.append(codePrefix)
-				.append(StringUtils.abbreviate(code, maxCodeLength))
-				.append(codeSuffix);
-		}
-		return sb.toString();
+	/**
+	 * Decode the given {@link HttpMessage} and format it as HTML code. As decoding
+	 * is limited to one character more than what fits in the code block, the
+	 * output is identical to formatting the fully decoded message.
+	 */
+	static final String getCodeAsHtml(HttpMessage message, int maxTotalLength) {
+		return getCodeAsHtml(message, maxTotalLength, false);
 	}
 
-	private final void appendSection(StringBuilder sb, String header, String text) {
-		if (StringUtils.isNotBlank(text)) {
-			sb.append("<b>").append(header).append("</b><br/>\n").append(text).append("<br/>\n");
-		}
+	/**
+	 * As {@link #getCodeAsHtml(HttpMessage, int)}, but if the message content was
+	 * truncated while reading, the code is always abbreviated, even if the
+	 * truncated message decodes to fewer characters than fit in the code block.
+	 */
+	static final String getCodeAsHtml(HttpMessage message, int maxTotalLength, boolean truncated) {
+		return message == null ? "" : getCodeAsHtml(message.getDecoded(getMaxCodeLength(maxTotalLength)+1), maxTotalLength, truncated);
+	}
+
+	static final String getCodeAsHtml(String code, int maxTotalLength) {
+		return getCodeAsHtml(code, maxTotalLength, false);
+	}
+
+	private static final String getCodeAsHtml(String code, int maxTotalLength, boolean truncated) {
+		return HtmlRenderer.get(maxTotalLength).code(code, truncated).toString();
+	}
+
+	private static final int getMaxCodeLength(int maxTotalLength) {
+		return maxTotalLength - HtmlRenderer.CODE_PREFIX.length() - HtmlRenderer.CODE_SUFFIX.length();
 	}
 
 	private Priority getPriority(Issue issue) {
@@ -0,0 +1,321 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+
+/**
+ * This class groups {@link VulnerabilityRecord} instances by a configurable key,
+ * like issue name and host, such that findings reported on many paths can be
+ * passed to SSC as a single vulnerability. For each group, we keep the first
+ * record as the representative record, the distinct paths (up to
+ * {@value #MAX_PATHS_PER_GROUP}), and the total number of records.
+ *
+ * Groups are keyed on the issue data carried by the records (see
+ * {@link VulnerabilityRecord#getIssueHost()} and related fields) rather than on
+ * the rendered attributes, so grouping doesn't depend on attribute length limits
+ * or disabled attributes.
+ *
+ * Groups are kept in memory, sorted by key, up to the configured maximum number
+ * of groups. Once this maximum is exceeded, all groups are written to a spill
+ * file as a sorted run, and removed from memory. When all records have been
+ * added, the remaining in-memory groups are spilled as well, and the runs are
+ * merged by key, at most {@value #MERGE_FAN_IN} runs at a time; if there are
+ * more runs, consecutive runs are first merged into intermediate runs, in as
+ * many passes as needed. Memory usage and the number of open files are thus
+ * bounded by the maximum number of in-memory groups plus {@value #MERGE_FAN_IN}
+ * groups being merged, while groups are always emitted in key order, independent
+ * of whether they were spilled.
+ */
+final class VulnerabilityAggregator implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(VulnerabilityAggregator.class);
+	static final int MAX_PATHS_PER_GROUP = 1000;
+	/** Maximum number of runs merged at once */
+	static final int MERGE_FAN_IN = 64;
+	private static final int BUFFER_SIZE = 64*1024;
+	private static final char KEY_SEPARATOR = '\u0000';
+	private final List<Function<VulnerabilityRecord, String>> keyFields = new ArrayList<>();
+	private final int maxGroups;
+	private final TreeMap<String, Group> groups = new TreeMap<>();
+	private final List<Path> spillFiles = new ArrayList<>();
+
+	/**
+	 * Create an aggregator that groups records by the given key fields, keeping
+	 * at most the given number of groups in memory. Supported key fields are
+	 * 'name' (the vulnerability category) and the issue host, path, severity and
+	 * confidence.
+	 */
+	public VulnerabilityAggregator(List<String> keyFields, int maxGroups) {
+		for ( String keyField : keyFields ) {
+			this.keyFields.add(getKeyField(keyField));
+		}
+		this.maxGroups = Math.max(1, maxGroups);
+	}
+
+	private static final Function<VulnerabilityRecord, String> getKeyField(String name) {
+		switch ( name ) {
+		case "name": return VulnerabilityRecord::getCategory;
+		case "host": return VulnerabilityRecord::getIssueHost;
+		case "path": return VulnerabilityRecord::getIssuePath;
+		case "severity": return VulnerabilityRecord::getIssueSeverity;
+		case "confidence": return VulnerabilityRecord::getIssueConfidence;
+		default: throw new IllegalArgumentException("Unsupported aggregation key field "+name);
+		}
+	}
+
+	/**
+	 * Add the given record to its group, spilling all groups to disk if the
+	 * maximum number of in-memory groups is exceeded.
+	 */
+	public final void add(VulnerabilityRecord record) {
+		String key = getKey(record);
+		groups.computeIfAbsent(key, k -> new Group(k, record)).add(record.getIssuePath());
+		if ( groups.size()>maxGroups ) {
+			try {
+				spill();
+			} catch ( IOException e ) {
+				throw new UncheckedIOException("Error writing aggregation spill file", e);
+			}
+		}
+	}
+
+	/**
+	 * Pass all groups, in key order, to the given consumer
+	 */
+	public final void emit(GroupConsumer consumer) throws IOException {
+		if ( spillFiles.isEmpty() ) {
+			for ( Group group : groups.values() ) {
+				consumer.accept(group);
+			}
+		} else {
+			spill();
+			List<Path> runs = new ArrayList<>(spillFiles);
+			while ( runs.size()>MERGE_FAN_IN ) {
+				runs = mergePass(runs);
+			}
+			merge(runs, consumer);
+		}
+	}
+
+	private final String getKey(VulnerabilityRecord record) {
+		StringBuilder sb = new StringBuilder();
+		for ( Function<VulnerabilityRecord, String> keyField : keyFields ) {
+			String value = keyField.apply(record);
+			sb.append(value==null ? "" : value).append(KEY_SEPARATOR);
+		}
+		return sb.toString();
+	}
+
+	private final void spill() throws IOException {
+		Path file = createSpillFile();
+		LOG.debug("Spilling {} groups to {}", groups.size(), file);
+		try ( DataOutputStream out = newOutputStream(file) ) {
+			for ( Group group : groups.values() ) {
+				group.write(out);
+			}
+		}
+		groups.clear();
+	}
+
+	private final Path createSpillFile() throws IOException {
+		Path file = Files.createTempFile("burp-aggregation-", ".bin");
+		spillFiles.add(file);
+		return file;
+	}
+
+	/**
+	 * Merge every {@value #MERGE_FAN_IN} consecutive runs into a single intermediate
+	 * run, deleting the merged runs. Merging consecutive runs keeps the runs in order
+	 * of creation, as required by {@link #merge(List, GroupConsumer)}.
+	 * @return Intermediate runs, in order
+	 */
+	private final List<Path> mergePass(List<Path> runs) throws IOException {
+		LOG.debug("Merging {} aggregation spill files", runs.size());
+		List<Path> result = new ArrayList<>();
+		for ( int start = 0 ; start < runs.size() ; start += MERGE_FAN_IN ) {
+			List<Path> merged = new ArrayList<>(runs.subList(start, Math.min(runs.size(), start+MERGE_FAN_IN)));
+			Path file = createSpillFile();
+			try ( DataOutputStream out = newOutputStream(file) ) {
+				merge(merged, group -> group.write(out));
+			}
+			for ( Path run : merged ) {
+				Files.deleteIfExists(run);
+				spillFiles.remove(run);
+			}
+			result.add(file);
+		}
+		return result;
+	}
+
+	/**
+	 * Merge the given runs by key. On equal keys, runs are ordered by creation, so
+	 * the representative record and paths of the earliest run come first.
+	 */
+	private static final void merge(List<Path> runs, GroupConsumer consumer) throws IOException {
+		PriorityQueue<SpillFileReader> readers = new PriorityQueue<>(Comparator
+				.comparing((SpillFileReader reader) -> reader.getCurrent().getKey())
+				.thenComparingInt(SpillFileReader::getIndex));
+		try {
+			for ( int i = 0 ; i < runs.size() ; i++ ) {
+				SpillFileReader reader = new SpillFileReader(i, runs.get(i));
+				if ( reader.next() ) { readers.add(reader); } else { reader.close(); }
+			}
+			while ( !readers.isEmpty() ) {
+				SpillFileReader reader = readers.poll();
+				Group group = reader.getCurrent();
+				advance(readers, reader);
+				while ( !readers.isEmpty() && readers.peek().getCurrent().getKey().equals(group.getKey()) ) {
+					SpillFileReader other = readers.poll();
+					group.merge(other.getCurrent());
+					advance(readers, other);
+				}
+				consumer.accept(group);
+			}
+		} finally {
+			for ( SpillFileReader reader : readers ) {
+				reader.close();
+			}
+		}
+	}
+
+	private static final DataOutputStream newOutputStream(Path file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+	}
+
+	private static final void advance(PriorityQueue<SpillFileReader> readers, SpillFileReader reader) throws IOException {
+		if ( reader.next() ) {
+			readers.add(reader);
+		} else {
+			reader.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		groups.clear();
+		for ( Path file : spillFiles ) {
+			Files.deleteIfExists(file);
+		}
+		spillFiles.clear();
+	}
+
+	@FunctionalInterface
+	interface GroupConsumer {
+		void accept(Group group) throws IOException;
+	}
+
+	/**
+	 * Group of records sharing the same key
+	 */
+	@Getter
+	static final class Group {
+		private final String key;
+		private final VulnerabilityRecord representative;
+		private final Set<String> paths = new LinkedHashSet<>();
+		private int count;
+
+		private Group(String key, VulnerabilityRecord representative) {
+			this.key = key;
+			this.representative = representative;
+		}
+
+		/**
+		 * @return Instance id derived from the group key, such that the same group
+		 *         gets the same instance id across scans
+		 */
+		public String getInstanceId() {
+			return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+		}
+
+		private void add(String path) {
+			count++;
+			if ( paths.size()<MAX_PATHS_PER_GROUP ) {
+				paths.add(path==null ? "" : path);
+			}
+		}
+
+		private void merge(Group other) {
+			count += other.count;
+			for ( String path : other.paths ) {
+				if ( paths.size()>=MAX_PATHS_PER_GROUP ) { break; }
+				paths.add(path);
+			}
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			VulnerabilityRecord.writeString(out, key);
+			out.writeInt(count);
+			out.writeInt(paths.size());
+			for ( String path : paths ) {
+				VulnerabilityRecord.writeString(out, path);
+			}
+			representative.write(out);
+		}
+
+		private static Group read(DataInputStream in) throws IOException {
+			String key = VulnerabilityRecord.readString(in);
+			int count = in.readInt();
+			int pathCount = in.readInt();
+			List<String> paths = new ArrayList<>(pathCount);
+			for ( int i = 0 ; i < pathCount ; i++ ) {
+				paths.add(VulnerabilityRecord.readString(in));
+			}
+			VulnerabilityRecord representative = VulnerabilityRecord.read(in);
+			Group group = new Group(key, representative);
+			group.count = count;
+			group.paths.addAll(paths);
+			return group;
+		}
+	}
+
+	/**
+	 * Sequentially reads the groups from a single spill file
+	 */
+	private static final class SpillFileReader implements Closeable {
+		@Getter private final int index;
+		private final DataInputStream in;
+		@Getter private Group current;
+
+		private SpillFileReader(int index, Path file) throws IOException {
+			this.index = index;
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+		}
+
+		private boolean next() throws IOException {
+			try {
+				current = Group.read(in);
+				return true;
+			} catch ( EOFException e ) {
+				current = null;
+				return false;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.fortify.plugin.api.BasicVulnerabilityBuilder.Priority;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * This class holds the fully rendered, issue-specific data for a single
+ * vulnerability. Separating rendering from passing data to the
+ * {@link com.fortify.plugin.api.VulnerabilityHandler} allows issues to be
+ * rendered on other threads than the thread that emits the vulnerabilities.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class VulnerabilityRecord {
+	private final String instanceId;
+	private final String category;
+	private final float confidence;
+	private final String fileName;
+	private final Priority priority;
+	private final Map<CustomVulnAttribute, String> attributes = new EnumMap<>(CustomVulnAttribute.class);
+	/** Fingerprint of the issue this record was rendered from, if delta import is enabled; not serialized */
+	@Setter private long fingerprint;
+	/** Host of the issue this record was rendered from; not serialized */
+	@Setter private String issueHost;
+	/** Path of the issue this record was rendered from; not serialized */
+	@Setter private String issuePath;
+	/** Severity of the issue this record was rendered from; not serialized */
+	@Setter private String issueSeverity;
+	/** Confidence of the issue this record was rendered from; not serialized */
+	@Setter private String issueConfidence;
+
+	public final VulnerabilityRecord attribute(CustomVulnAttribute attribute, String value) {
+		attributes.put(attribute, value);
+		return this;
+	}
+
+	/**
+	 * Write this record to the given {@link DataOutput}, in a format that can be
+	 * read back using {@link #read(DataInput)}.
+	 */
+	public final void write(DataOutput out) throws IOException {
+		writeString(out, instanceId);
+		writeString(out, category);
+		out.writeFloat(confidence);
+		writeString(out, fileName);
+		writeString(out, priority==null ? null : priority.name());
+		out.writeInt(attributes.size());
+		for ( Map.Entry<CustomVulnAttribute, String> attribute : attributes.entrySet() ) {
+			writeString(out, attribute.getKey().name());
+			writeString(out, attribute.getValue());
+		}
+	}
+
+	/**
+	 * Read a record previously written using {@link #write(DataOutput)}
+	 */
+	public static final VulnerabilityRecord read(DataInput in) throws IOException {
+		String instanceId = readString(in);
+		String category = readString(in);
+		float confidence = in.readFloat();
+		String fileName = readString(in);
+		String priority = readString(in);
+		VulnerabilityRecord result = new VulnerabilityRecord(instanceId, category, confidence, fileName, priority==null ? null : Priority.valueOf(priority));
+		int attributeCount = in.readInt();
+		for ( int i = 0 ; i < attributeCount ; i++ ) {
+			result.attribute(CustomVulnAttribute.valueOf(readString(in)), readString(in));
+		}
+		return result;
+	}
+
+	static final void writeString(DataOutput out, String value) throws IOException {
+		if ( value==null ) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	static final String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if ( length<0 ) { return null; }
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,197 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.fortify.plugin.api.ScanParsingException;
+
+/**
+ * Byte-level scanner that counts the issues in a Burp XML export and collects
+ * the distinct issue hosts, without tokenizing the input as XML. The scanner
+ * only looks for {@code <issue>} and {@code <host>} start tags, skipping CDATA
+ * sections and comments, so the bulk of the input, like Base64-encoded
+ * requests and responses, is processed by a simple search for the next '<'.
+ *
+ * This relies on Burp XML exports using an ASCII-compatible encoding like
+ * UTF-8; host names are decoded as UTF-8. Hosts longer than
+ * {@link #MAX_HOST_LENGTH} bytes are ignored.
+ */
+final class XmlIssueScanner {
+	private static final int BUFFER_SIZE = 64*1024;
+	private static final int MAX_HOST_LENGTH = 4096;
+	private static final byte[] ISSUE = ascii("issue");
+	private static final byte[] HOST = ascii("host");
+	private static final byte[] CDATA = ascii("![CDATA[");
+	private static final byte[] CDATA_END = ascii("]]>");
+	private static final byte[] COMMENT = ascii("!--");
+	private static final byte[] COMMENT_END = ascii("-->");
+	private final InputStream input;
+	private final ParseProgress progress;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int pos;
+	private int limit;
+	private long issueCount;
+	private final Set<String> hosts = new LinkedHashSet<>();
+
+	private XmlIssueScanner(InputStream input, ParseProgress progress) {
+		this.input = input;
+		this.progress = progress;
+	}
+
+	/**
+	 * Scan the given {@link InputStream} until the end, calling
+	 * {@link ParseProgress#issueProcessed()} for every issue
+	 */
+	static final XmlIssueScanner scan(InputStream input, ParseProgress progress) throws ScanParsingException, IOException {
+		XmlIssueScanner scanner = new XmlIssueScanner(input, progress);
+		scanner.scan();
+		return scanner;
+	}
+
+	long getIssueCount() {
+		return issueCount;
+	}
+
+	/**
+	 * @return Distinct hosts, in order of first occurrence
+	 */
+	Set<String> getHosts() {
+		return hosts;
+	}
+
+	private final void scan() throws ScanParsingException, IOException {
+		while ( skipTo((byte)'<') ) {
+			pos++;
+			ensure(CDATA.length);
+			if ( isStartTag(ISSUE) ) {
+				pos += ISSUE.length;
+				issueCount++;
+				progress.issueProcessed();
+			} else if ( isStartTag(HOST) ) {
+				pos += HOST.length;
+				readHost();
+			} else if ( startsWith(CDATA) ) {
+				pos += CDATA.length;
+				skipPast(CDATA_END);
+			} else if ( startsWith(COMMENT) ) {
+				pos += COMMENT.length;
+				skipPast(COMMENT_END);
+			}
+		}
+	}
+
+	private final void readHost() throws IOException {
+		if ( !skipTo((byte)'>') ) { return; }
+		boolean empty = pos>0 && buffer[pos-1]=='/';
+		pos++;
+		if ( empty ) { return; }
+		int end = pos;
+		while ( true ) {
+			for ( ; end < limit ; end++ ) {
+				if ( buffer[end]=='<' ) {
+					addHost(new String(buffer, pos, end-pos, StandardCharsets.UTF_8));
+					pos = end;
+					return;
+				}
+			}
+			if ( end-pos>MAX_HOST_LENGTH ) {
+				pos = end;
+				return;
+			}
+			int offset = end-pos;
+			if ( !fill() ) { return; }
+			end = pos+offset;
+		}
+	}
+
+	private final void addHost(String host) {
+		host = host.trim();
+		if ( host.indexOf('&')>=0 ) {
+			host = host.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+		}
+		if ( !host.isEmpty() ) {
+			hosts.add(host);
+		}
+	}
+
+	/**
+	 * Skip past the next occurrence of the given end marker, or to the end of the input
+	 */
+	private final void skipPast(byte[] end) throws IOException {
+		while ( skipTo(end[0]) ) {
+			ensure(end.length);
+			if ( startsWith(end) ) {
+				pos += end.length;
+				return;
+			}
+			pos++;
+		}
+	}
+
+	/**
+	 * Advance to the next occurrence of the given byte
+	 * @return false if the end of the input has been reached
+	 */
+	private final boolean skipTo(byte b) throws IOException {
+		while ( true ) {
+			for ( ; pos < limit ; pos++ ) {
+				if ( buffer[pos]==b ) { return true; }
+			}
+			if ( !fill() ) { return false; }
+		}
+	}
+
+	/**
+	 * @return true if the buffer contains the given tag name at the current
+	 *         position, followed by the end of the tag name
+	 */
+	private final boolean isStartTag(byte[] name) {
+		if ( !startsWith(name) || pos+name.length>=limit ) { return false; }
+		byte next = buffer[pos+name.length];
+		return next=='>' || next=='/' || next==' ' || next=='\t' || next=='\r' || next=='\n';
+	}
+
+	private final boolean startsWith(byte[] prefix) {
+		if ( limit-pos<prefix.length ) { return false; }
+		for ( int i = 0 ; i < prefix.length ; i++ ) {
+			if ( buffer[pos+i]!=prefix[i] ) { return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * Try to make at least the given number of bytes (plus one for the end of
+	 * a tag name) available from the current position; fewer bytes may be
+	 * available if the end of the input has been reached.
+	 */
+	private final void ensure(int length) throws IOException {
+		while ( limit-pos<=length && fill() ) {}
+	}
+
+	/**
+	 * Move the unread bytes to the start of the buffer and read more input
+	 * @return false if no more input could be read
+	 */
+	private final boolean fill() throws IOException {
+		if ( pos>0 ) {
+			System.arraycopy(buffer, pos, buffer, 0, limit-pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if ( limit==buffer.length ) { return false; }
+		int read;
+		do {
+			read = input.read(buffer, limit, buffer.length-limit);
+		} while ( read==0 );
+		if ( read<0 ) { return false; }
+		limit += read;
+		return true;
+	}
+
+	private static final byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,98 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.Writer;
+
+/**
+ * {@link Writer} implementation that collects at most a given number of
+ * characters; any characters written after this limit has been reached are
+ * discarded, and {@link #isTruncated()} will return true. Instances can be
+ * reused through {@link #reset(int)}, avoiding the need to re-grow the
+ * underlying buffer for every string to be collected.
+ */
+public final class BoundedStringWriter extends Writer {
+	private final StringBuilder sb = new StringBuilder();
+	private int maxLength;
+	private boolean truncated;
+
+	public BoundedStringWriter() {
+		this(Integer.MAX_VALUE);
+	}
+
+	public BoundedStringWriter(int maxLength) {
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Discard all collected characters, and set a new maximum length
+	 * @return This instance, for chaining
+	 */
+	public BoundedStringWriter reset(int maxLength) {
+		this.sb.setLength(0);
+		this.maxLength = maxLength;
+		this.truncated = false;
+		return this;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		int count = Math.min(len, maxLength-sb.length());
+		if ( count>0 ) {
+			sb.append(cbuf, off, count);
+		}
+		if ( count<len ) {
+			truncated = true;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		int count = Math.min(len, maxLength-sb.length());
+		if ( count>0 ) {
+			sb.append(str, off, off+count);
+		}
+		if ( count<len ) {
+			truncated = true;
+		}
+	}
+
+	@Override
+	public void write(int c) {
+		if ( sb.length()<maxLength ) {
+			sb.append((char)c);
+		} else {
+			truncated = true;
+		}
+	}
+
+	/**
+	 * @return true if any characters were discarded because the maximum length was reached
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * @return Number of characters collected
+	 */
+	public int length() {
+		return sb.length();
+	}
+
+	/**
+	 * Copy collected characters into the given array, as {@link StringBuilder#getChars(int, int, char[], int)}
+	 */
+	public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+		sb.getChars(srcBegin, srcEnd, dst, dstBegin);
+	}
+
+	@Override
+	public String toString() {
+		return sb.toString();
+	}
+
+	@Override
+	public void flush() {}
+
+	@Override
+	public void close() {}
+}
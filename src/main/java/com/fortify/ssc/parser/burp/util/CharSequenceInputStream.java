@@ -0,0 +1,47 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} implementation that returns the characters of a
+ * {@link CharSequence} as single bytes. This is only suitable for character
+ * sequences that contain US-ASCII characters only, like Base64-encoded data,
+ * but avoids copying the full character sequence into a byte array.
+ */
+public final class CharSequenceInputStream extends InputStream {
+	private final CharSequence chars;
+	private int position;
+
+	public CharSequenceInputStream(CharSequence chars) {
+		this.chars = chars;
+	}
+
+	@Override
+	public int read() {
+		return position < chars.length() ? chars.charAt(position++) & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		int remaining = chars.length() - position;
+		if ( len==0 ) { return 0; }
+		if ( remaining<=0 ) { return -1; }
+		int count = Math.min(len, remaining);
+		for ( int i = 0 ; i < count ; i++ ) {
+			b[off+i] = (byte)chars.charAt(position++);
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(long n) {
+		int count = (int)Math.max(0, Math.min(n, chars.length() - position));
+		position += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return chars.length() - position;
+	}
+}
@@ -0,0 +1,187 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * {@link ScanData} decorator that transparently decompresses gzip- or
+ * zip-compressed input, based on the magic bytes at the start of the input
+ * provided by the wrapped {@link ScanData} instance. Uncompressed input is
+ * passed through as-is. Decompression is done on the fly, so compressed
+ * input is never fully decompressed in memory or on disk. The returned
+ * {@link InputStream} instances support mark/reset, allowing callers to
+ * detect the {@link InputFormat} of the (decompressed) input.
+ *
+ * For zip files, the first entry with an .xml or .json extension is used.
+ * As zip files are read as a stream, any further .xml or .json entries can
+ * only be detected once the first entry has been processed; callers should
+ * invoke {@link #checkSingleExport(InputStream)} after processing the input
+ * to reject zip files containing multiple exports.
+ *
+ * Optionally, the (compressed) input is read ahead on a background thread;
+ * see {@link ReadAheadInputStream}.
+ */
+public final class DecompressingScanData implements ScanData {
+	private static final Logger LOG = LoggerFactory.getLogger(DecompressingScanData.class);
+	private static final int BUFFER_SIZE = 64*1024;
+	private static final int MAGIC_LENGTH = 4;
+	private final ScanData delegate;
+	private final int readAheadBuffers;
+	private final int readAheadBufferSize;
+
+	public DecompressingScanData(ScanData delegate) {
+		this(delegate, 0, 0);
+	}
+
+	/**
+	 * @param readAheadBuffers Number of read-ahead buffers; less than 2 disables read-ahead
+	 * @param readAheadBufferSize Size of each read-ahead buffer in bytes
+	 */
+	public DecompressingScanData(ScanData delegate, int readAheadBuffers, int readAheadBufferSize) {
+		this.delegate = delegate;
+		this.readAheadBuffers = readAheadBuffers;
+		this.readAheadBufferSize = readAheadBufferSize;
+	}
+
+	@Override
+	public String getSessionId() {
+		return delegate.getSessionId();
+	}
+
+	@Override
+	public List<ScanEntry> getScanEntries() {
+		return delegate.getScanEntries();
+	}
+
+	@Override
+	public InputStream getInputStream(Predicate<String> matcher) throws IOException {
+		return decompress(readAhead(delegate.getInputStream(matcher)));
+	}
+
+	@Override
+	public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+		return decompress(readAhead(delegate.getInputStream(scanEntry)));
+	}
+
+	private final InputStream readAhead(InputStream is) {
+		return ReadAheadInputStream.wrap(is, readAheadBuffers, readAheadBufferSize);
+	}
+
+	/**
+	 * Return an {@link InputStream} that provides the decompressed contents of the
+	 * given {@link InputStream} if it contains gzip- or zip-compressed data, or
+	 * the original contents otherwise. The returned {@link InputStream} supports
+	 * mark/reset; closing it closes the given {@link InputStream}.
+	 */
+	public static final InputStream decompress(InputStream is) throws IOException {
+		if ( is==null ) { return null; }
+		BufferedInputStream bis = new BufferedInputStream(is, BUFFER_SIZE);
+		byte[] magic = readMagic(bis);
+		if ( isGzip(magic) ) {
+			LOG.debug("Decompressing gzip input");
+			return new DecompressedInputStream(new GZIPInputStream(bis, BUFFER_SIZE));
+		} else if ( isZip(magic) ) {
+			ZipInputStream zis = new ZipInputStream(bis);
+			return new DecompressedInputStream(zis, openZipEntry(zis));
+		} else {
+			return bis;
+		}
+	}
+
+	/**
+	 * @return true if the given {@link InputStream}, as returned by {@link #decompress(InputStream)},
+	 *         provides decompressed data, in which case {@link InputStream#available()} doesn't
+	 *         give any indication of the size of the input
+	 */
+	public static final boolean isDecompressed(InputStream is) {
+		return is instanceof DecompressedInputStream;
+	}
+
+	/**
+	 * Verify that the given {@link InputStream}, as returned by {@link #decompress(InputStream)},
+	 * doesn't provide the first of multiple .xml or .json entries in a zip file.
+	 * This skips the remaining contents of the zip file, so this method should only
+	 * be called once the current entry has been processed.
+	 * @throws IOException if the zip file contains more than one .xml or .json entry
+	 */
+	public static final void checkSingleExport(InputStream is) throws IOException {
+		if ( !(is instanceof DecompressedInputStream) || ((DecompressedInputStream)is).zipEntryName==null ) { return; }
+		DecompressedInputStream dis = (DecompressedInputStream)is;
+		List<String> names = new ArrayList<>();
+		for ( ZipEntry entry = dis.zis.getNextEntry() ; entry!=null ; entry = dis.zis.getNextEntry() ) {
+			if ( isExport(entry) ) { names.add(entry.getName()); }
+		}
+		if ( !names.isEmpty() ) {
+			names.add(0, dis.zipEntryName);
+			throw new IOException("Zip file contains multiple .xml or .json entries "+names+"; only a single Burp export per zip file is supported");
+		}
+	}
+
+	private static final byte[] readMagic(BufferedInputStream bis) throws IOException {
+		byte[] magic = new byte[MAGIC_LENGTH];
+		bis.mark(MAGIC_LENGTH);
+		int length = 0, read;
+		while ( length<MAGIC_LENGTH && (read = bis.read(magic, length, MAGIC_LENGTH-length))>=0 ) {
+			length += read;
+		}
+		bis.reset();
+		return magic;
+	}
+
+	private static final boolean isGzip(byte[] magic) {
+		return (magic[0]&0xff)==0x1f && (magic[1]&0xff)==0x8b;
+	}
+
+	private static final boolean isZip(byte[] magic) {
+		return magic[0]=='P' && magic[1]=='K' && magic[2]==3 && magic[3]==4;
+	}
+
+	/**
+	 * Position the given {@link ZipInputStream} at the first .xml or .json entry
+	 * @return Name of the entry
+	 */
+	private static final String openZipEntry(ZipInputStream zis) throws IOException {
+		for ( ZipEntry entry = zis.getNextEntry() ; entry!=null ; entry = zis.getNextEntry() ) {
+			if ( isExport(entry) ) {
+				LOG.debug("Decompressing zip entry {}", entry.getName());
+				return entry.getName();
+			}
+		}
+		zis.close();
+		throw new IOException("Zip file doesn't contain any .xml or .json entries");
+	}
+
+	private static final boolean isExport(ZipEntry entry) {
+		String name = entry.getName().toLowerCase(Locale.ROOT);
+		return !entry.isDirectory() && (name.endsWith(".xml") || name.endsWith(".json"));
+	}
+
+	private static final class DecompressedInputStream extends BufferedInputStream {
+		private final ZipInputStream zis;
+		private final String zipEntryName;
+
+		DecompressedInputStream(InputStream is) {
+			this(is, null);
+		}
+
+		DecompressedInputStream(InputStream is, String zipEntryName) {
+			super(is, BUFFER_SIZE);
+			this.zis = is instanceof ZipInputStream ? (ZipInputStream)is : null;
+			this.zipEntryName = zipEntryName;
+		}
+	}
+}
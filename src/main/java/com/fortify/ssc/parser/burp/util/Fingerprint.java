@@ -0,0 +1,50 @@
+package com.fortify.ssc.parser.burp.util;
+
+/**
+ * Fast, non-cryptographic 64-bit fingerprint (FNV-1a) over a sequence of
+ * strings. Each string is prefixed with its length, so different sequences
+ * of strings with the same concatenation produce different fingerprints.
+ * This is meant for detecting changed content, not for security purposes.
+ */
+public final class Fingerprint {
+	private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+	private long hash = OFFSET_BASIS;
+
+	public Fingerprint add(CharSequence value) {
+		if ( value==null ) {
+			return add(-1);
+		}
+		add(value.length());
+		long h = hash;
+		for ( int i = 0, length = value.length() ; i < length ; i++ ) {
+			h = (h ^ value.charAt(i)) * PRIME;
+		}
+		hash = h;
+		return this;
+	}
+
+	public Fingerprint add(long value) {
+		long h = hash;
+		for ( int i = 0 ; i < 8 ; i++ ) {
+			h = (h ^ ((value >>> (i*8)) & 0xff)) * PRIME;
+		}
+		hash = h;
+		return this;
+	}
+
+	public Fingerprint add(boolean value) {
+		return add(value ? 1 : 0);
+	}
+
+	public long getValue() {
+		return hash;
+	}
+
+	/**
+	 * @return 64-bit fingerprint of the given string
+	 */
+	public static final long of(String value) {
+		return new Fingerprint().add(value).getValue();
+	}
+}
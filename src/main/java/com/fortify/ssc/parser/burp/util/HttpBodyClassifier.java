@@ -0,0 +1,168 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This class classifies HTTP message bodies as either text or binary, based on
+ * the Content-Type and Content-Encoding headers, and on a small sample of the
+ * body. Binary bodies, and text bodies with a declared Content-Length larger
+ * than a given maximum, are rendered as a short summary listing the content
+ * type and body size, rather than being decoded.
+ */
+final class HttpBodyClassifier {
+	/** Maximum number of body bytes or characters to sample */
+	static final int SAMPLE_SIZE = 512;
+	private static final Set<String> BINARY_CONTENT_TYPE_PREFIXES = new HashSet<>(Arrays.asList(
+		"image/", "audio/", "video/", "font/", "application/vnd.openxmlformats-", "application/x-font-"));
+	private static final Set<String> BINARY_CONTENT_TYPES = new HashSet<>(Arrays.asList(
+		"application/octet-stream", "application/pdf", "application/zip", "application/gzip",
+		"application/x-gzip", "application/x-tar", "application/x-7z-compressed", "application/x-rar-compressed",
+		"application/java-archive", "application/x-shockwave-flash", "application/vnd.ms-fontobject",
+		"application/font-woff", "application/msword", "application/vnd.ms-excel", "application/vnd.ms-powerpoint",
+		"application/x-protobuf", "application/protobuf", "application/grpc", "application/wasm"));
+	private static final Set<String> TEXT_CONTENT_TYPES = new HashSet<>(Arrays.asList("image/svg+xml"));
+	private static final String PDF_MAGIC = "%PDF-";
+	private final String contentType;
+	private final String contentEncoding;
+	private final long contentLength;
+	private final boolean multiByteCharset;
+
+	/**
+	 * @param headers HTTP message headers, including the request or status line
+	 */
+	HttpBodyClassifier(String headers) {
+		String contentType = null, contentEncoding = null;
+		long contentLength = -1;
+		for ( String line : headers.split("\r?\n") ) {
+			int colon = line.indexOf(':');
+			if ( colon>0 ) {
+				String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+				String value = line.substring(colon+1).trim().toLowerCase(Locale.ROOT);
+				switch ( name ) {
+				case "content-type": contentType = value; break;
+				case "content-encoding": contentEncoding = value; break;
+				case "content-length": contentLength = parseContentLength(value); break;
+				default: break;
+				}
+			}
+		}
+		this.contentType = contentType==null ? null : stripParameters(contentType);
+		this.contentEncoding = "identity".equals(contentEncoding) || "".equals(contentEncoding) ? null : contentEncoding;
+		this.contentLength = contentLength;
+		// UTF-16 and UTF-32 text contains NUL bytes, so we can't sample those bodies
+		this.multiByteCharset = contentType!=null && contentType.matches(".*charset=[\"']?utf-?(16|32).*");
+	}
+
+	/**
+	 * @return Body size as declared by the Content-Length header, or -1 if not declared
+	 */
+	long getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * @return true if the declared Content-Length is larger than the given maximum,
+	 *         which is ignored if 0 or negative
+	 */
+	boolean isOversized(long maxTextBodySize) {
+		return maxTextBodySize>0 && contentLength>maxTextBodySize;
+	}
+
+	/**
+	 * @param sample Readable buffer positioned at the start of the body, containing
+	 *        (up to) the first {@link #SAMPLE_SIZE} body bytes; the buffer position
+	 *        is not modified
+	 * @return true if the body is binary
+	 */
+	boolean isBinary(ByteBuffer sample) {
+		if ( isBinaryContentType() ) { return true; }
+		int start = sample.position(), end = start+Math.min(SAMPLE_SIZE, sample.remaining());
+		if ( startsWith(sample, start, end, PDF_MAGIC) ) { return true; }
+		if ( multiByteCharset ) { return false; }
+		int controlChars = 0;
+		for ( int i = start ; i < end ; i++ ) {
+			int b = sample.get(i) & 0xff;
+			if ( b==0 ) { return true; }
+			if ( isControlChar(b) ) { controlChars++; }
+		}
+		return isMostlyControlChars(controlChars, end-start);
+	}
+
+	/**
+	 * As {@link #isBinary(ByteBuffer)}, for HTTP messages stored as characters
+	 */
+	boolean isBinary(CharSequence content, int start) {
+		if ( isBinaryContentType() ) { return true; }
+		int end = Math.min(content.length(), start+SAMPLE_SIZE);
+		if ( end-start>=PDF_MAGIC.length() && PDF_MAGIC.contentEquals(content.subSequence(start, start+PDF_MAGIC.length())) ) { return true; }
+		int controlChars = 0;
+		for ( int i = start ; i < end ; i++ ) {
+			char c = content.charAt(i);
+			if ( c==0 ) { return true; }
+			if ( isControlChar(c) ) { controlChars++; }
+		}
+		return isMostlyControlChars(controlChars, end-start);
+	}
+
+	/**
+	 * Get the summary that replaces a binary or oversized body
+	 * @param binary Whether the body was classified as binary, rather than oversized
+	 * @param size Body size in bytes, or -1 if unknown
+	 */
+	String getSummary(boolean binary, long size) {
+		StringBuilder sb = new StringBuilder(binary ? "[Binary body omitted: " : "[Large body omitted: ")
+			.append(contentType==null ? "unknown content type" : contentType);
+		if ( contentEncoding!=null ) {
+			sb.append(", ").append(contentEncoding).append(" encoded");
+		}
+		return sb.append(", ").append(size<0 ? "unknown size" : size+" bytes").append("]").toString();
+	}
+
+	private boolean isBinaryContentType() {
+		if ( contentEncoding!=null ) { return true; }
+		if ( contentType==null || TEXT_CONTENT_TYPES.contains(contentType) ) { return false; }
+		if ( BINARY_CONTENT_TYPES.contains(contentType) ) { return true; }
+		for ( String prefix : BINARY_CONTENT_TYPE_PREFIXES ) {
+			if ( contentType.startsWith(prefix) ) { return true; }
+		}
+		return false;
+	}
+
+	/**
+	 * Text rarely contains control characters other than tab, line feed, form
+	 * feed, carriage return and escape; we consider more than 10% of those
+	 * characters to indicate binary data.
+	 */
+	private static final boolean isMostlyControlChars(int controlChars, int sampleLength) {
+		return controlChars*10>sampleLength;
+	}
+
+	private static final boolean isControlChar(int c) {
+		return (c<0x20 && c!='\t' && c!='\n' && c!='\f' && c!='\r' && c!=0x1b) || c==0x7f;
+	}
+
+	private static final boolean startsWith(ByteBuffer buffer, int start, int end, String prefix) {
+		if ( end-start<prefix.length() ) { return false; }
+		for ( int i = 0 ; i < prefix.length() ; i++ ) {
+			if ( buffer.get(start+i)!=prefix.charAt(i) ) { return false; }
+		}
+		return true;
+	}
+
+	private static final String stripParameters(String contentType) {
+		int semicolon = contentType.indexOf(';');
+		return (semicolon<0 ? contentType : contentType.substring(0, semicolon)).trim();
+	}
+
+	private static final long parseContentLength(String value) {
+		try {
+			return Long.parseLong(value);
+		} catch ( NumberFormatException e ) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Base64;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class decodes the (optionally Base64-encoded) HTTP requests and
+ * responses stored in Burp exports into a bounded number of characters.
+ * Base64 data is decoded in a streaming fashion, and decoding stops as
+ * soon as the requested number of characters has been produced, so the
+ * cost of decoding doesn't depend on the size of the original message.
+ *
+ * HTTP headers are decoded as ISO-8859-1; the message body is decoded
+ * using the charset specified in the Content-Type header, or UTF-8 if
+ * no (supported) charset is specified. Malformed input is replaced
+ * rather than causing an error.
+ *
+ * Once the headers have been decoded, the body is classified using
+ * {@link HttpBodyClassifier}. Binary bodies, like images, fonts and
+ * compressed data, and text bodies that are larger than a given maximum
+ * size, are replaced with a summary listing the content type and body
+ * size; the bytes of such bodies are never decoded into characters.
+ */
+public final class HttpMessageDecoder {
+	private static final Logger LOG = LoggerFactory.getLogger(HttpMessageDecoder.class);
+	public static final Charset DEFAULT_BODY_CHARSET = StandardCharsets.UTF_8;
+	private static final Base64.Decoder BASE64_DECODER = Base64.getMimeDecoder();
+	private static final int BUFFER_SIZE = 8192;
+	private static final String CONTENT_TYPE_HEADER = "content-type:";
+	private static final String CHARSET_PARAMETER = "charset=";
+	/** Upper bound for the number of bytes per character in any supported body charset */
+	private static final int MAX_BYTES_PER_CHAR = 4;
+
+	private HttpMessageDecoder() {}
+
+	/**
+	 * Decode the given HTTP message into at most maxLength characters, without
+	 * limiting the size of text bodies.
+	 * @param content HTTP message as stored in the Burp export
+	 * @param base64 Whether the given content is Base64-encoded
+	 * @param maxLength Maximum number of characters to return
+	 * @return Decoded HTTP message
+	 */
+	public static final String decode(CharSequence content, boolean base64, int maxLength) {
+		return decode(content, base64, maxLength, 0);
+	}
+
+	/**
+	 * As {@link #decode(CharSequence, boolean, int)}, but replacing text bodies
+	 * with a declared Content-Length larger than maxTextBodySize bytes with a
+	 * summary; a maxTextBodySize of 0 doesn't limit the size of text bodies.
+	 */
+	public static final String decode(CharSequence content, boolean base64, int maxLength, long maxTextBodySize) {
+		CharBuffer out = CharBuffer.allocate((int)Math.min(maxLength, base64 ? getMaxDecodedLength(content) : content.length()));
+		String bodySummary = decodeUntilSummary(content, base64, maxTextBodySize, out);
+		out.flip();
+		return bodySummary==null ? out.toString() : left(out+bodySummary, maxLength);
+	}
+
+	/**
+	 * As {@link #decode(CharSequence, boolean, int, long)}, but decoding into the
+	 * given buffer, limited to the number of characters remaining in the buffer.
+	 * This allows callers to reuse the same buffer for decoding multiple messages.
+	 */
+	public static final void decode(CharSequence content, boolean base64, long maxTextBodySize, CharBuffer out) {
+		String bodySummary = decodeUntilSummary(content, base64, maxTextBodySize, out);
+		if ( bodySummary!=null ) {
+			put(out, bodySummary, 0, bodySummary.length());
+		}
+	}
+
+	/**
+	 * Decode the given HTTP message into the given buffer
+	 * @return Summary to be appended to the decoded headers if the body is binary or oversized,
+	 *         in which case the body is not decoded, or null otherwise
+	 */
+	private static final String decodeUntilSummary(CharSequence content, boolean base64, long maxTextBodySize, CharBuffer out) {
+		if ( !base64 ) {
+			return decodeChars(content, maxTextBodySize, out);
+		}
+		try ( InputStream is = BASE64_DECODER.wrap(new CharSequenceInputStream(content)) ) {
+			return decode(is, out, maxTextBodySize);
+		} catch ( IOException e ) {
+			// Only thrown for malformed Base64 data at the end of the content; we return what we've decoded so far
+			LOG.debug("Error decoding Base64 data", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Decode the HTTP message provided by the given {@link InputStream} into the given buffer
+	 * @return Summary to be appended to the decoded headers if the body is binary or oversized,
+	 *         in which case the body is not decoded, or null otherwise
+	 */
+	private static final String decode(InputStream is, CharBuffer out, long maxTextBodySize) throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		CharsetDecoder bodyDecoder = null;
+		int headerLineLength = 0;
+		boolean eof = false;
+		while ( out.hasRemaining() && !eof ) {
+			eof = read(is, in);
+			in.flip();
+			// Copy header bytes as ISO-8859-1 characters until we find the empty line that ends the headers
+			while ( bodyDecoder==null && in.hasRemaining() && out.hasRemaining() ) {
+				char c = (char)(in.get() & 0xff);
+				out.put(c);
+				if ( c=='\n' ) {
+					if ( headerLineLength==0 ) {
+						String headers = new String(out.array(), out.arrayOffset(), out.position());
+						eof = fillSample(is, in, eof);
+						HttpBodyClassifier classifier = new HttpBodyClassifier(headers);
+						if ( in.hasRemaining() && classifier.isBinary(in) ) {
+							// Without Content-Length, we only know the size if the whole body was read for sampling
+							long size = classifier.getContentLength()>=0 ? classifier.getContentLength() : eof ? in.remaining() : -1;
+							return classifier.getSummary(true, size);
+						} else if ( in.hasRemaining() && classifier.isOversized(maxTextBodySize) ) {
+							return classifier.getSummary(false, classifier.getContentLength());
+						}
+						bodyDecoder = createBodyDecoder(headers);
+					}
+					headerLineLength = 0;
+				} else if ( c!='\r' ) {
+					headerLineLength++;
+				}
+			}
+			if ( bodyDecoder!=null ) {
+				bodyDecoder.decode(in, out, eof);
+				if ( eof ) {
+					bodyDecoder.flush(out);
+				}
+			}
+			in.compact();
+		}
+		return null;
+	}
+
+	/**
+	 * Read from the given {@link InputStream} into the given buffer, which must be
+	 * in write mode.
+	 * @return true if the end of the stream has been reached
+	 */
+	private static final boolean read(InputStream is, ByteBuffer in) throws IOException {
+		int read = is.read(in.array(), in.position(), in.remaining());
+		if ( read>0 ) {
+			in.position(in.position()+read);
+		}
+		return read<0;
+	}
+
+	/**
+	 * Make sure that the given buffer, which must be in read mode and positioned
+	 * at the start of the body, contains at least {@link HttpBodyClassifier#SAMPLE_SIZE}
+	 * bytes, unless the end of the stream is reached first.
+	 * @return true if the end of the stream has been reached
+	 */
+	private static final boolean fillSample(InputStream is, ByteBuffer in, boolean eof) throws IOException {
+		if ( in.remaining()<HttpBodyClassifier.SAMPLE_SIZE && !eof ) {
+			in.compact();
+			while ( in.position()<HttpBodyClassifier.SAMPLE_SIZE && !eof ) {
+				eof = read(is, in);
+			}
+			in.flip();
+		}
+		return eof;
+	}
+
+	private static final String left(String value, int maxLength) {
+		return value.length()<=maxLength ? value : value.substring(0, maxLength);
+	}
+
+	/**
+	 * Put the given characters into the given buffer, up to the number of
+	 * characters remaining in the buffer.
+	 */
+	private static final void put(CharBuffer out, CharSequence value, int start, int end) {
+		end = Math.min(end, start+out.remaining());
+		for ( int i = start ; i < end ; i++ ) {
+			out.put(value.charAt(i));
+		}
+	}
+
+	/**
+	 * Decode an HTTP message stored as characters, rather than as Base64-encoded
+	 * bytes; see {@link #decodeUntilSummary(CharSequence, boolean, long, CharBuffer)}.
+	 */
+	private static final String decodeChars(CharSequence content, long maxTextBodySize, CharBuffer out) {
+		int bodyStart = getBodyStart(content, Math.min(content.length(), out.remaining()));
+		if ( bodyStart>0 && bodyStart<content.length() ) {
+			HttpBodyClassifier classifier = new HttpBodyClassifier(content.subSequence(0, bodyStart).toString());
+			boolean binary = classifier.isBinary(content, bodyStart);
+			if ( binary || classifier.isOversized(maxTextBodySize) ) {
+				// The content may have been truncated while reading, so we only trust Content-Length for the body size
+				put(out, content, 0, bodyStart);
+				return classifier.getSummary(binary, classifier.getContentLength());
+			}
+		}
+		put(out, content, 0, content.length());
+		return null;
+	}
+
+	/**
+	 * @return Index of the first character following the empty line that ends the
+	 *         headers, searching only the given number of characters, or -1 if not found
+	 */
+	private static final int getBodyStart(CharSequence content, int length) {
+		int headerLineLength = 0;
+		for ( int i = 0 ; i < length ; i++ ) {
+			char c = content.charAt(i);
+			if ( c=='\n' ) {
+				if ( headerLineLength==0 ) {
+					return i+1;
+				}
+				headerLineLength = 0;
+			} else if ( c!='\r' ) {
+				headerLineLength++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Create a {@link CharsetDecoder} for the message body, based on the charset
+	 * specified in the Content-Type header, if any, in the given headers.
+	 */
+	private static final CharsetDecoder createBodyDecoder(String headers) {
+		return getBodyCharset(headers).newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Get the charset specified in the Content-Type header in the given HTTP headers,
+	 * or {@link #DEFAULT_BODY_CHARSET} if not specified or not supported.
+	 */
+	static final Charset getBodyCharset(String headers) {
+		for ( String line : headers.split("\r?\n") ) {
+			String lowerCaseLine = line.toLowerCase(Locale.ROOT);
+			if ( lowerCaseLine.startsWith(CONTENT_TYPE_HEADER) ) {
+				int charsetIndex = lowerCaseLine.indexOf(CHARSET_PARAMETER);
+				if ( charsetIndex>0 ) {
+					return getCharset(line.substring(charsetIndex+CHARSET_PARAMETER.length()));
+				}
+			}
+		}
+		return DEFAULT_BODY_CHARSET;
+	}
+
+	private static final Charset getCharset(String value) {
+		int end = 0;
+		while ( end<value.length() && ";, \t".indexOf(value.charAt(end))<0 ) { end++; }
+		String name = value.substring(0, end).replace("\"", "").replace("'", "");
+		try {
+			return Charset.forName(name);
+		} catch ( IllegalCharsetNameException | UnsupportedCharsetException e ) {
+			LOG.debug("Unsupported charset {}, using {}", name, DEFAULT_BODY_CHARSET);
+			return DEFAULT_BODY_CHARSET;
+		}
+	}
+
+	/**
+	 * Get the number of characters of (optionally Base64-encoded) message content
+	 * that is sufficient to decode maxLength characters. This allows for up to
+	 * {@value #MAX_BYTES_PER_CHAR} bytes per character, the Base64 overhead of 4
+	 * characters per 3 bytes, and MIME line breaks every 76 characters.
+	 */
+	public static final int getMaxEncodedLength(int maxLength) {
+		long bytes = (long)maxLength*MAX_BYTES_PER_CHAR;
+		long base64 = (bytes+2)/3*4;
+		return (int)Math.min(Integer.MAX_VALUE, base64+(base64/76+1)*2);
+	}
+
+	/**
+	 * Each Base64 character encodes 6 bits, and no supported charset produces
+	 * more characters than bytes, so this gives an upper bound for the number
+	 * of characters that can be decoded from the given content.
+	 */
+	private static final long getMaxDecodedLength(CharSequence content) {
+		return (content.length()*3L)/4+3;
+	}
+}
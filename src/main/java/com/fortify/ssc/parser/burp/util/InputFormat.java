@@ -0,0 +1,43 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Supported input formats: Burp XML exports, and JSON issue exports as produced
+ * by Burp Suite Enterprise Edition and the Burp REST API.
+ */
+public enum InputFormat {
+	XML, JSON;
+
+	/** Maximum number of bytes to inspect for the first non-whitespace byte */
+	private static final int MAX_SNIFF_LENGTH = 4096;
+
+	/**
+	 * Detect the input format based on the first non-whitespace byte, ignoring
+	 * any UTF-8 byte order mark; '{' or '[' indicates JSON, anything else is
+	 * handled as XML, like previous plugin versions did. The given
+	 * {@link InputStream} must support mark/reset, and is reset to its
+	 * original position once the format has been detected.
+	 */
+	public static final InputFormat detect(InputStream is) throws IOException {
+		is.mark(MAX_SNIFF_LENGTH);
+		try {
+			for ( int i = 0 ; i < MAX_SNIFF_LENGTH ; i++ ) {
+				int b = is.read();
+				switch ( b ) {
+				case ' ': case '\t': case '\r': case '\n':
+				case 0xEF: case 0xBB: case 0xBF: // UTF-8 byte order mark
+					break;
+				case '{': case '[':
+					return JSON;
+				default:
+					return XML;
+				}
+			}
+			return XML;
+		} finally {
+			is.reset();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe, size-bounded cache that evicts the least recently used entries
+ * once the maximum number of entries, or the maximum total weight of all
+ * values, has been reached. Hits and misses are counted to allow for reporting
+ * the cache effectiveness. A cache with a maximum size of 0 doesn't store
+ * anything, and simply computes every requested value.
+ */
+public final class LruCache<K, V> {
+	private final int maxSize;
+	private final long maxWeight;
+	private final ToLongFunction<? super V> weigher;
+	private final Map<K, V> map;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private long weight;
+
+	public LruCache(final int maxSize) {
+		this(maxSize, Long.MAX_VALUE, value -> 0);
+	}
+
+	/**
+	 * @param maxWeight Maximum total weight of all cached values; values
+	 *        weighing more than this are not cached at all
+	 * @param weigher Calculates the weight of a value, like its retained size
+	 */
+	public LruCache(final int maxSize, final long maxWeight, final ToLongFunction<? super V> weigher) {
+		this.maxSize = maxSize;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.map = new LinkedHashMap<K, V>(16, 0.75f, true);
+	}
+
+	/**
+	 * Get the cached value for the given key, computing and caching the value
+	 * if not yet present. The value is computed outside of any lock, so the same
+	 * value may occasionally be computed concurrently by multiple threads.
+	 */
+	public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+		if ( maxSize<=0 ) {
+			misses.increment();
+			return mappingFunction.apply(key);
+		}
+		V value;
+		synchronized (map) {
+			value = map.get(key);
+		}
+		if ( value!=null ) {
+			hits.increment();
+		} else {
+			misses.increment();
+			value = mappingFunction.apply(key);
+			if ( value!=null ) {
+				put(key, value);
+			}
+		}
+		return value;
+	}
+
+	private void put(K key, V value) {
+		long valueWeight = weigher.applyAsLong(value);
+		if ( valueWeight>maxWeight ) { return; }
+		synchronized (map) {
+			V previous = map.put(key, value);
+			weight += valueWeight - (previous==null ? 0 : weigher.applyAsLong(previous));
+			Iterator<V> eldest = map.values().iterator();
+			while ( map.size()>maxSize || weight>maxWeight ) {
+				weight -= weigher.applyAsLong(eldest.next());
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return Total weight of all cached values
+	 */
+	public long getWeight() {
+		synchronized (map) {
+			return weight;
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return Percentage of requests that were served from the cache
+	 */
+	public double getHitRate() {
+		long hits = getHits(), total = hits+getMisses();
+		return total==0 ? 0 : hits*100.0/total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d hits, %d misses (%.1f%% hit rate)", getHits(), getMisses(), getHitRate());
+	}
+}
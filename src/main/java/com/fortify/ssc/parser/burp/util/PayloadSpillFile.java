@@ -0,0 +1,202 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Temporary file holding large HTTP message payloads while parsing. Payloads
+ * longer than the configured threshold are appended to this file, and replaced
+ * by a read-only, memory-mapped {@link CharSequence} view of the appended region.
+ * As such, the payloads of issues that have been read but not yet rendered are
+ * held outside of the Java heap, and are paged in by the operating system only
+ * while being decoded. Payloads consisting of ASCII characters only, like the
+ * Base64-encoded payloads in Burp exports, are stored as one byte per character;
+ * other payloads are stored as UTF-16 characters.
+ *
+ * The file is mapped in windows of {@value #DEFAULT_WINDOW_SIZE} bytes (or the
+ * payload size, if larger), and payloads are written to and sliced from the
+ * current window; a new window is mapped once a payload doesn't fit in the
+ * current window. This keeps the number of mappings proportional to the total
+ * size of the spilled payloads rather than to their number, as every mapping
+ * counts against the operating system's per-process mapping limit until it has
+ * been garbage collected.
+ *
+ * The file is created on the first payload to be spilled, and deleted on
+ * {@link #close()}. Mapped regions remain valid until they are garbage collected,
+ * even after the file has been deleted (on platforms that allow deleting files
+ * that are mapped into memory; on other platforms, deletion is retried on exit).
+ * This class is thread-safe.
+ *
+ * Bounds: space is not reclaimed until {@link #close()}, so the file grows to
+ * the total length of all spilled payloads; for Base64-encoded payloads this is
+ * at most the size of the input, rounded up to the window size. Payloads with
+ * non-ASCII characters take up two bytes per character.
+ */
+public final class PayloadSpillFile implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(PayloadSpillFile.class);
+	private static final int CHUNK_SIZE = 32*1024;
+	private static final int DEFAULT_WINDOW_SIZE = 64*1024*1024;
+	private final int threshold;
+	private final int windowSize;
+	private final char[] chars = new char[CHUNK_SIZE];
+	private Path file;
+	private FileChannel channel;
+	private MappedByteBuffer window;
+	/** File position of the current window */
+	private long windowPosition;
+	private long size;
+	private long count;
+	private long windows;
+
+	/**
+	 * @param threshold Payloads longer than this number of characters are spilled
+	 */
+	public PayloadSpillFile(int threshold) {
+		this(threshold, DEFAULT_WINDOW_SIZE);
+	}
+
+	PayloadSpillFile(int threshold, int windowSize) {
+		this.threshold = threshold;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Spill the current contents of the given {@link BoundedStringWriter} if
+	 * longer than the configured threshold.
+	 * @return Memory-mapped view of the spilled contents, or the contents as a
+	 *         {@link String} if not longer than the threshold
+	 */
+	public CharSequence spill(BoundedStringWriter writer) throws IOException {
+		int length = writer.length();
+		if ( length<=threshold ) {
+			return writer.toString();
+		}
+		synchronized (this) {
+			if ( channel==null ) { open(); }
+			boolean ascii = isAscii(writer, length);
+			int byteLength = ascii ? length : length*2;
+			if ( window==null || size+byteLength>windowPosition+window.capacity() ) {
+				windowPosition = size;
+				window = channel.map(FileChannel.MapMode.READ_WRITE, windowPosition, Math.max(windowSize, byteLength));
+				windows++;
+			}
+			ByteBuffer region = window.duplicate();
+			region.position((int)(size-windowPosition));
+			region.limit(region.position()+byteLength);
+			region = region.slice();
+			CharSequence result = ascii ? writeAscii(writer, length, region) : writeChars(writer, length, region);
+			size += byteLength;
+			count++;
+			return result;
+		}
+	}
+
+	private boolean isAscii(BoundedStringWriter writer, int length) {
+		for ( int offset = 0 ; offset < length ; offset += CHUNK_SIZE ) {
+			int chunkLength = Math.min(CHUNK_SIZE, length-offset);
+			writer.getChars(offset, offset+chunkLength, chars, 0);
+			for ( int i = 0 ; i < chunkLength ; i++ ) {
+				if ( chars[i]>=0x80 ) { return false; }
+			}
+		}
+		return true;
+	}
+
+	private CharSequence writeAscii(BoundedStringWriter writer, int length, ByteBuffer region) {
+		for ( int offset = 0 ; offset < length ; offset += CHUNK_SIZE ) {
+			int chunkLength = Math.min(CHUNK_SIZE, length-offset);
+			writer.getChars(offset, offset+chunkLength, chars, 0);
+			for ( int i = 0 ; i < chunkLength ; i++ ) {
+				region.put((byte)chars[i]);
+			}
+		}
+		region.flip();
+		return new AsciiCharSequence(region.asReadOnlyBuffer());
+	}
+
+	private CharSequence writeChars(BoundedStringWriter writer, int length, ByteBuffer region) {
+		CharBuffer result = region.asCharBuffer();
+		for ( int offset = 0 ; offset < length ; offset += CHUNK_SIZE ) {
+			int chunkLength = Math.min(CHUNK_SIZE, length-offset);
+			writer.getChars(offset, offset+chunkLength, chars, 0);
+			result.put(chars, 0, chunkLength);
+		}
+		result.flip();
+		return result.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return Number of windows mapped so far
+	 */
+	synchronized long getWindowCount() {
+		return windows;
+	}
+
+	private void open() throws IOException {
+		file = Files.createTempFile("burp-payloads-", ".bin");
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if ( channel!=null ) {
+			LOG.debug("Spilled {} payloads ({} bytes) to {} windows of {}", count, size, windows, file);
+			channel.close();
+			channel = null;
+			window = null;
+			try {
+				Files.deleteIfExists(file);
+			} catch ( IOException e ) {
+				LOG.debug("Unable to delete {}, deleting on exit", file, e);
+				file.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Read-only {@link CharSequence} view of a region holding one ASCII character per byte
+	 */
+	private static final class AsciiCharSequence implements CharSequence {
+		private final ByteBuffer bytes;
+
+		AsciiCharSequence(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int length() {
+			return bytes.limit();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char)bytes.get(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			ByteBuffer result = bytes.duplicate();
+			result.limit(end);
+			result.position(start);
+			return new AsciiCharSequence(result.slice());
+		}
+
+		@Override
+		public String toString() {
+			byte[] result = new byte[bytes.limit()];
+			bytes.duplicate().get(result);
+			return new String(result, StandardCharsets.US_ASCII);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link InputStream} that reads ahead from a source {@link InputStream} on a
+ * background thread, such that slow I/O, like reading from network-backed
+ * storage, overlaps with parsing. Data is read into a fixed ring of reusable
+ * buffers: the background thread fills free buffers and hands them over to
+ * the reading thread, which returns each buffer to the ring once consumed.
+ * If the source is a {@link FileInputStream}, buffers are filled through its
+ * {@link FileChannel}. Streams returned by {@link Files#newInputStream(Path, java.nio.file.OpenOption...)}
+ * for the default file system don't expose their channel, but already read
+ * directly from a {@link FileChannel}, so these are read as-is. For both, the
+ * number of bytes remaining in the file is included in {@link #available()}.
+ *
+ * The first buffer is filled by the reading thread using a single read, and
+ * the background thread is only started once that buffer has been consumed,
+ * so callers that only inspect the start of the input, like input format
+ * detection, don't start a thread or read more than necessary. The background
+ * thread hands over partially filled buffers if the reading thread is waiting
+ * for data, and otherwise fills buffers completely to minimize hand-overs.
+ *
+ * Instances must be read by a single thread, and must be closed to stop the
+ * background thread; closing also closes the source {@link InputStream}.
+ */
+public final class ReadAheadInputStream extends InputStream {
+	private static final Logger LOG = LoggerFactory.getLogger(ReadAheadInputStream.class);
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+	/** Class of the streams returned by {@link Files#newInputStream(Path, java.nio.file.OpenOption...)} for the default file system */
+	private static final String CHANNEL_INPUT_STREAM_CLASS_NAME = "sun.nio.ch.ChannelInputStream";
+	private final InputStream source;
+	private final FileChannel channel;
+	private final boolean channelSource;
+	private final BlockingQueue<Chunk> free;
+	private final BlockingQueue<Chunk> filled;
+	private Chunk current;
+	private Thread reader;
+	private volatile boolean consumerWaiting;
+	private volatile boolean closed;
+
+	/**
+	 * Buffer in the ring, together with the end-of-input or error state of the
+	 * source after filling this buffer
+	 */
+	private static final class Chunk {
+		private final ByteBuffer buffer;
+		private boolean eof;
+		private Throwable error;
+
+		Chunk(int size) {
+			this.buffer = ByteBuffer.allocate(size);
+		}
+	}
+
+	private ReadAheadInputStream(InputStream source, int buffers, int bufferSize) {
+		this.source = source;
+		this.channel = source instanceof FileInputStream ? ((FileInputStream)source).getChannel() : null;
+		this.channelSource = CHANNEL_INPUT_STREAM_CLASS_NAME.equals(source.getClass().getName());
+		this.free = new ArrayBlockingQueue<>(buffers);
+		this.filled = new ArrayBlockingQueue<>(buffers);
+		for ( int i = 0 ; i < buffers ; i++ ) {
+			free.add(new Chunk(bufferSize));
+		}
+	}
+
+	/**
+	 * Wrap the given {@link InputStream} to read ahead using the given number of
+	 * buffers of the given size, or return the given {@link InputStream} as-is if
+	 * less than two buffers are requested, as a single buffer cannot be filled
+	 * while being consumed.
+	 */
+	public static final InputStream wrap(InputStream source, int buffers, int bufferSize) {
+		return source==null || buffers<2 || bufferSize<=0 ? source : new ReadAheadInputStream(source, buffers, bufferSize);
+	}
+
+	@Override
+	public int read() throws IOException {
+		Chunk chunk = getCurrent();
+		return chunk==null ? -1 : chunk.buffer.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if ( len==0 ) { return 0; }
+		Chunk chunk = getCurrent();
+		if ( chunk==null ) { return -1; }
+		int result = Math.min(len, chunk.buffer.remaining());
+		chunk.buffer.get(b, off, result);
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while ( skipped<n ) {
+			Chunk chunk = getCurrent();
+			if ( chunk==null ) { break; }
+			int count = (int)Math.min(n-skipped, chunk.buffer.remaining());
+			chunk.buffer.position(chunk.buffer.position()+count);
+			skipped += count;
+		}
+		return skipped;
+	}
+
+	/**
+	 * @return Number of bytes that have been read ahead, plus the number of bytes
+	 *         remaining in the source file if the source is a file; see the class
+	 *         documentation
+	 */
+	@Override
+	public int available() throws IOException {
+		if ( closed ) { return 0; }
+		long result = current==null ? 0 : current.buffer.remaining();
+		for ( Chunk chunk : filled ) {
+			result += chunk.buffer.remaining();
+		}
+		if ( channel!=null ) {
+			result += Math.max(0, channel.size()-channel.position());
+		} else if ( channelSource ) {
+			result += source.available();
+		}
+		return (int)Math.min(Integer.MAX_VALUE, result);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( !closed ) {
+			closed = true;
+			if ( reader!=null ) {
+				reader.interrupt();
+			}
+			source.close();
+		}
+	}
+
+	/**
+	 * Get the chunk to read from, waiting for the next chunk if the current chunk
+	 * has been fully consumed.
+	 * @return Current chunk, or null if the end of the input has been reached
+	 */
+	private final Chunk getCurrent() throws IOException {
+		if ( closed ) { throw new IOException("Stream closed"); }
+		while ( current==null || !current.buffer.hasRemaining() ) {
+			if ( current!=null ) {
+				if ( current.error!=null ) { throw new IOException("Error reading input", current.error); }
+				if ( current.eof ) { return null; }
+				free.add(current);
+			}
+			current = current==null && reader==null ? readFirst() : takeFilled();
+		}
+		return current;
+	}
+
+	private final Chunk readFirst() throws IOException {
+		Chunk chunk = free.remove();
+		int read;
+		do {
+			read = read(chunk.buffer);
+		} while ( read==0 );
+		chunk.eof = read<0;
+		chunk.buffer.flip();
+		if ( !chunk.eof ) {
+			reader = new Thread(this::readAhead, "burp-read-ahead-"+THREAD_COUNTER.incrementAndGet());
+			reader.setDaemon(true);
+			reader.start();
+		}
+		return chunk;
+	}
+
+	private final Chunk takeFilled() throws IOException {
+		Chunk chunk = filled.poll();
+		if ( chunk!=null ) { return chunk; }
+		consumerWaiting = true;
+		try {
+			return filled.take();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for input");
+		} finally {
+			consumerWaiting = false;
+		}
+	}
+
+	/**
+	 * Background thread: fill free chunks until the end of the input is reached,
+	 * an error occurs, or this stream is closed. Any error, including unchecked
+	 * exceptions thrown by the source, is handed over to the reading thread, which
+	 * would otherwise wait for the next chunk forever. As the number of chunks is
+	 * fixed, adding a chunk to the filled queue never blocks.
+	 */
+	private final void readAhead() {
+		try {
+			while ( !closed ) {
+				Chunk chunk = free.take();
+				chunk.buffer.clear();
+				try {
+					while ( chunk.buffer.hasRemaining() && !closed ) {
+						if ( read(chunk.buffer)<0 ) {
+							chunk.eof = true;
+							break;
+						}
+						if ( consumerWaiting && chunk.buffer.position()>0 ) { break; }
+					}
+				} catch ( Throwable t ) {
+					chunk.error = t;
+				}
+				chunk.buffer.flip();
+				filled.add(chunk);
+				if ( chunk.eof || chunk.error!=null ) { return; }
+			}
+		} catch ( InterruptedException e ) {
+			LOG.trace("Read-ahead thread interrupted");
+		}
+	}
+
+	private final int read(ByteBuffer buffer) throws IOException {
+		if ( channel!=null ) {
+			return channel.read(buffer);
+		}
+		int result = source.read(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
+		if ( result>0 ) {
+			buffer.position(buffer.position()+result);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,249 @@
+package com.fortify.ssc.parser.burp.util;
+
+/**
+ * Lightweight, incremental scanner that recognizes XML element boundaries
+ * directly on the raw bytes of a document, without decoding characters or
+ * building any objects. The scanner properly skips comments, CDATA sections,
+ * processing instructions, the DOCTYPE declaration including its internal
+ * subset, and quoted attribute values, so markup-like content in any of these
+ * is never mistaken for an element.
+ *
+ * This only works for ASCII-compatible encodings like UTF-8 and ISO-8859-*,
+ * which covers all Burp exports. The scanner doesn't validate the document;
+ * callers should still use a proper XML parser to process the contents of
+ * the elements they are interested in.
+ */
+public final class XmlByteScanner {
+	/** Maximum number of element name bytes passed to the {@link Listener} */
+	public static final int MAX_NAME_LENGTH = 64;
+
+	/**
+	 * Listener for element boundaries; the name buffer is reused between
+	 * invocations and only the first nameLength bytes are valid.
+	 */
+	public interface Listener {
+		/**
+		 * Called when a start tag has been fully read
+		 * @param depth Depth of the element, with the root element at depth 1
+		 * @param startOffset Offset of the '&lt;' character that starts the start tag
+		 */
+		void startElement(int depth, byte[] name, int nameLength, long startOffset);
+
+		/**
+		 * Called when an end tag (or the end of an empty-element tag) has been read
+		 * @param depth Depth of the element, with the root element at depth 1
+		 * @param endOffset Offset directly after the '&gt;' character that ends the tag
+		 */
+		void endElement(int depth, byte[] name, int nameLength, long endOffset);
+	}
+
+	private enum State { TEXT, LT, BANG, COMMENT, CDATA, PI, DECL, START_NAME, END_NAME, IN_START_TAG, IN_END_TAG }
+
+	private static final byte[] CDATA_START = "[CDATA[".getBytes();
+
+	private final Listener listener;
+	private final byte[] name = new byte[MAX_NAME_LENGTH];
+	private State state = State.TEXT;
+	private int nameLength;
+	private int depth;
+	private long position;
+	private long tagStart;
+	private int matchCount;
+	private int declBracketDepth;
+	private byte quote;
+	private byte previous;
+
+	public XmlByteScanner(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return Number of bytes processed so far
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return Depth of the element currently being scanned, or 0 if the scanner
+	 *         is outside of the root element
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Process the next chunk of the document
+	 */
+	public void scan(byte[] buffer, int offset, int length) {
+		final int end = offset+length;
+		for ( int i = offset ; i < end ; i++ ) {
+			final byte b = buffer[i];
+			switch ( state ) {
+			case TEXT:
+				if ( b=='<' ) {
+					tagStart = position+(i-offset);
+					state = State.LT;
+				}
+				break;
+			case LT:
+				if ( b=='!' ) {
+					state = State.BANG;
+					matchCount = 0;
+				} else if ( b=='?' ) {
+					state = State.PI;
+				} else if ( b=='/' ) {
+					state = State.END_NAME;
+					nameLength = 0;
+				} else {
+					state = State.START_NAME;
+					nameLength = 0;
+					appendName(b);
+				}
+				break;
+			case BANG:
+				// Distinguish between '<!--', '<![CDATA[' and other declarations like '<!DOCTYPE'
+				if ( matchCount==0 && b=='-' ) {
+					matchCount = -1;
+				} else if ( matchCount==-1 && b=='-' ) {
+					state = State.COMMENT;
+					matchCount = 0;
+				} else if ( matchCount>=0 && b==CDATA_START[matchCount] ) {
+					if ( ++matchCount==CDATA_START.length ) {
+						state = State.CDATA;
+						matchCount = 0;
+					}
+				} else {
+					startDecl(b);
+				}
+				break;
+			case COMMENT:
+				// Look for '-->'
+				if ( b=='-' ) {
+					matchCount++;
+				} else {
+					if ( b=='>' && matchCount>=2 ) { state = State.TEXT; }
+					matchCount = 0;
+				}
+				break;
+			case CDATA:
+				// Look for ']]>'
+				if ( b==']' ) {
+					matchCount++;
+				} else {
+					if ( b=='>' && matchCount>=2 ) { state = State.TEXT; }
+					matchCount = 0;
+				}
+				break;
+			case PI:
+				if ( b=='>' && previous=='?' ) { state = State.TEXT; }
+				break;
+			case DECL:
+				processDecl(b);
+				break;
+			case START_NAME:
+				if ( isNameEnd(b) ) {
+					state = State.IN_START_TAG;
+					quote = 0;
+					processStartTag(b, i, offset);
+				} else {
+					appendName(b);
+				}
+				break;
+			case IN_START_TAG:
+				processStartTag(b, i, offset);
+				break;
+			case END_NAME:
+				if ( isNameEnd(b) ) {
+					state = State.IN_END_TAG;
+					processEndTag(b, i, offset);
+				} else {
+					appendName(b);
+				}
+				break;
+			case IN_END_TAG:
+				processEndTag(b, i, offset);
+				break;
+			}
+			previous = b;
+		}
+		position += length;
+	}
+
+	/**
+	 * Start processing a declaration after a partial match of '&lt;!--' or
+	 * '&lt;![CDATA[' failed on the given byte; the bytes matched so far are
+	 * processed as part of the declaration, such that a '[' is not lost.
+	 */
+	private void startDecl(byte b) {
+		state = State.DECL;
+		declBracketDepth = 0;
+		quote = 0;
+		for ( int j = 0 ; j < matchCount ; j++ ) {
+			processDecl(CDATA_START[j]);
+		}
+		matchCount = 0;
+		processDecl(b);
+	}
+
+	private void processDecl(byte b) {
+		if ( quote!=0 ) {
+			if ( b==quote ) { quote = 0; }
+		} else if ( b=='"' || b=='\'' ) {
+			quote = b;
+		} else if ( b=='[' ) {
+			declBracketDepth++;
+		} else if ( b==']' ) {
+			declBracketDepth--;
+		} else if ( b=='>' && declBracketDepth<=0 ) {
+			state = State.TEXT;
+		}
+	}
+
+	private void processStartTag(byte b, int i, int offset) {
+		if ( quote!=0 ) {
+			if ( b==quote ) { quote = 0; }
+		} else if ( b=='"' || b=='\'' ) {
+			quote = b;
+		} else if ( b=='>' ) {
+			depth++;
+			listener.startElement(depth, name, nameLength, tagStart);
+			if ( previous=='/' ) {
+				listener.endElement(depth, name, nameLength, position+(i-offset)+1);
+				depth--;
+			}
+			state = State.TEXT;
+		}
+	}
+
+	private void processEndTag(byte b, int i, int offset) {
+		if ( b=='>' ) {
+			listener.endElement(depth, name, nameLength, position+(i-offset)+1);
+			depth--;
+			state = State.TEXT;
+		}
+	}
+
+	private void appendName(byte b) {
+		if ( nameLength<MAX_NAME_LENGTH ) {
+			name[nameLength] = b;
+		}
+		nameLength++;
+	}
+
+	private static boolean isNameEnd(byte b) {
+		return b=='>' || b=='/' || b==' ' || b=='\t' || b=='\r' || b=='\n';
+	}
+
+	/**
+	 * Utility method for {@link Listener} implementations to check whether
+	 * the given element name equals the given expected name.
+	 */
+	public static boolean nameEquals(byte[] name, int nameLength, byte[] expected) {
+		if ( nameLength!=expected.length ) { return false; }
+		for ( int i = 0 ; i < nameLength ; i++ ) {
+			if ( name[i]!=expected[i] ) { return false; }
+		}
+		return true;
+	}
+}
@@ -0,0 +1,103 @@
+package com.fortify.ssc.parser.burp.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class provides the {@link XMLInputFactory} for a given XML backend name,
+ * which is either one of the names listed in {@link #BACKENDS}, or the fully
+ * qualified class name of an {@link XMLInputFactory} implementation. Factories
+ * are created and configured once per backend, and then cached; configured
+ * factories are thread-safe.
+ *
+ * As Burp exports are uploaded by users, DTD processing and external entities
+ * are always disabled; backends that don't allow these features to be disabled
+ * are rejected.
+ *
+ * Implementations are loaded directly through the plugin class loader rather
+ * than through the {@link XMLInputFactory#newFactory()} service lookup, as the
+ * latter returns whichever implementation happens to be found first if multiple
+ * implementations are available, and may not see the implementations bundled
+ * with the plugin, depending on the context class loader.
+ */
+public final class XmlInputFactories {
+	private static final Logger LOG = LoggerFactory.getLogger(XmlInputFactories.class);
+	/** Backend used by previous plugin versions, provided through the parser utility library */
+	public static final String WOODSTOX = "woodstox";
+	/** Aalto XML, a faster StAX implementation */
+	public static final String AALTO = "aalto";
+	/** Implementation selected through the standard {@link XMLInputFactory#newFactory()} lookup */
+	public static final String DEFAULT = "default";
+	/** Supported backend names, mapped to the class name of their {@link XMLInputFactory} implementation */
+	public static final Map<String, String> BACKENDS = createBackends();
+	private static final ConcurrentMap<String, XMLInputFactory> FACTORIES = new ConcurrentHashMap<>();
+
+	private XmlInputFactories() {}
+
+	/**
+	 * Get the configured {@link XMLInputFactory} for the given backend
+	 * @throws IllegalArgumentException if the given backend is not available, or
+	 *         doesn't allow DTD processing and external entities to be disabled
+	 */
+	public static final XMLInputFactory get(String backend) {
+		return FACTORIES.computeIfAbsent(backend, XmlInputFactories::create);
+	}
+
+	private static final XMLInputFactory create(String backend) {
+		XMLInputFactory factory = newFactory(backend);
+		// Without coalescing, large CDATA sections are reported in many small chunks that
+		// would need to be re-assembled, resulting in more rather than less allocation
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		disable(backend, factory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES);
+		disable(backend, factory, XMLInputFactory.SUPPORT_DTD);
+		LOG.info("Using XML backend {} ({})", backend, factory.getClass().getName());
+		return factory;
+	}
+
+	private static final XMLInputFactory newFactory(String backend) {
+		if ( DEFAULT.equals(backend) ) {
+			return XMLInputFactory.newFactory();
+		}
+		String className = BACKENDS.getOrDefault(backend, backend);
+		try {
+			return Class.forName(className, true, XmlInputFactories.class.getClassLoader())
+					.asSubclass(XMLInputFactory.class).getDeclaredConstructor().newInstance();
+		} catch ( ReflectiveOperationException | ClassCastException | LinkageError e ) {
+			throw new IllegalArgumentException(String.format("XML backend %s is not available; supported backends: %s, or the class name of an XMLInputFactory implementation", backend, BACKENDS.keySet()), e);
+		}
+	}
+
+	/**
+	 * Disable the given security-related feature, verifying that the implementation
+	 * actually accepted the new value
+	 * @throws IllegalArgumentException if the feature cannot be disabled
+	 */
+	private static final void disable(String backend, XMLInputFactory factory, String name) {
+		try {
+			if ( factory.isPropertySupported(name) ) {
+				factory.setProperty(name, false);
+				if ( Boolean.FALSE.equals(factory.getProperty(name)) ) { return; }
+			}
+		} catch ( IllegalArgumentException | IllegalStateException e ) {
+			LOG.debug("Error disabling {} for XML backend {}", name, backend, e);
+		}
+		throw new IllegalArgumentException(String.format("XML backend %s (%s) is not supported, as it doesn't allow %s to be disabled",
+				backend, factory.getClass().getName(), name));
+	}
+
+	private static final Map<String, String> createBackends() {
+		Map<String, String> result = new LinkedHashMap<>();
+		result.put(WOODSTOX, "com.ctc.wstx.stax.WstxInputFactory");
+		result.put(AALTO, "com.fasterxml.aalto.stax.InputFactoryImpl");
+		result.put(DEFAULT, null);
+		return Collections.unmodifiableMap(result);
+	}
+}
@@ -0,0 +1,78 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+import com.fortify.ssc.parser.burp.metrics.DefaultParserMetrics;
+
+/**
+ * Runs multiple parses of an export with 1 MB responses concurrently, with
+ * attribute limits that allow rendering full responses, to verify that the
+ * shared memory budget keeps heap usage bounded. Without the budget, every
+ * parse holds a full pipeline queue of multi-MB issues. This test only runs
+ * if the {@value #PARSES_PROPERTY} system property specifies the number of
+ * concurrent parses, and is meant to be run with a small heap; see the
+ * concurrentParseStressTest Gradle task.
+ */
+@EnabledIfSystemProperty(named = ConcurrentParseStressTest.PARSES_PROPERTY, matches = "\\d+")
+class ConcurrentParseStressTest {
+	static final String PARSES_PROPERTY = "com.fortify.ssc.parser.burp.test.concurrentParses";
+	private static final int ISSUE_COUNT = 32;
+	private static final int MEMORY_BUDGET_MEGABYTES = 16;
+
+	@Test
+	void testConcurrentParsesWithSmallHeap(@TempDir Path directory) throws Exception {
+		int parses = Integer.getInteger(PARSES_PROPERTY);
+		Path file = directory.resolve("export.xml");
+		LargeExportTest.generate(file, ISSUE_COUNT);
+		Map<CustomVulnAttribute, Integer> attributeMaxLengths = new EnumMap<>(CustomVulnAttribute.class);
+		attributeMaxLengths.put(CustomVulnAttribute.request, 2*1024*1024);
+		attributeMaxLengths.put(CustomVulnAttribute.response, 2*1024*1024);
+		BurpParserConfig config = BurpParserConfig.builder().attributeMaxLengths(attributeMaxLengths)
+				.pipelineThreads(2).pipelineQueueSize(16)
+				.memoryBudgetMegabytes(MEMORY_BUDGET_MEGABYTES).memoryBudgetWaitSeconds(1).build();
+		DefaultParserMetrics totals = new DefaultParserMetrics();
+		ExecutorService executor = Executors.newFixedThreadPool(parses);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for ( int i = 0 ; i < parses ; i++ ) {
+				DefaultParserMetrics metrics = new DefaultParserMetrics("parse-"+i, totals);
+				results.add(executor.submit(() -> {
+					AtomicInteger count = new AtomicInteger();
+					new VulnerabilitiesParser(StreamScanData.ofFile(file), instanceId -> {
+						count.incrementAndGet();
+						return (StaticVulnerabilityBuilder) Proxy.newProxyInstance(ConcurrentParseStressTest.class.getClassLoader(),
+								new Class[] { StaticVulnerabilityBuilder.class }, (proxy, method, args) -> null);
+					}, config, metrics).parse();
+					metrics.parseCompleted();
+					return count.get();
+				}));
+			}
+			for ( Future<Integer> result : results ) {
+				assertEquals(ISSUE_COUNT, result.get().intValue());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(0, MemoryBudget.SHARED.getReservedBytes());
+		assertTrue(totals.getPeakMemoryReservationBytes()<=MEMORY_BUDGET_MEGABYTES*1024L*1024L);
+	}
+}
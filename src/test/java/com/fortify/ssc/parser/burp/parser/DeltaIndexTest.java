@@ -0,0 +1,170 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fortify.plugin.api.BasicVulnerabilityBuilder.Priority;
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+import com.fortify.ssc.parser.burp.util.Fingerprint;
+
+class DeltaIndexTest {
+	private static final String HOST = "http://localhost";
+
+	@Test
+	void testUnchangedRecordsAreReused(@TempDir Path directory) throws Exception {
+		try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			assertNull(index.lookup(HOST, "1", 42));
+			index.store(HOST, record("1", "<b>Details</b>"), 42);
+			index.commit();
+		}
+		try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			VulnerabilityRecord record = index.lookup(HOST, "1", 42);
+			assertNotNull(record);
+			assertEquals("Cross-site scripting", record.getCategory());
+			assertEquals(Priority.High, record.getPriority());
+			assertEquals(record("1", "<b>Details</b>").getAttributes(), record.getAttributes());
+			assertNull(index.lookup(HOST, "1", 43)); // Changed issue
+			assertNull(index.lookup("http://otherhost", "1", 42));
+			assertEquals(1, index.getHits());
+			assertEquals(2, index.getMisses());
+		}
+	}
+
+	@Test
+	void testUncommittedGenerationIsDiscarded(@TempDir Path directory) throws Exception {
+		try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			index.store(HOST, record("1", "<b>Details</b>"), 42);
+		}
+		try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			assertNull(index.lookup(HOST, "1", 42));
+		}
+	}
+
+	@Test
+	void testRecordsExceedingMaximumSizeAreNotStored(@TempDir Path directory) throws Exception {
+		try ( DeltaIndex index = new DeltaIndex(directory, 200) ) {
+			index.store(HOST, record("1", "<b>Details</b>"), 42);
+			index.store(HOST, record("2", "<b>Details</b>"), 42);
+			index.commit();
+		}
+		try ( DeltaIndex index = new DeltaIndex(directory, 200) ) {
+			assertNotNull(index.lookup(HOST, "1", 42));
+			assertNull(index.lookup(HOST, "2", 42));
+		}
+	}
+
+	@Test
+	void testDataFileIsCompacted(@TempDir Path directory) throws Exception {
+		for ( long fingerprint = 1 ; fingerprint <= 3 ; fingerprint++ ) {
+			try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+				index.store(HOST, record("1", "<b>Details "+fingerprint+"</b>"), fingerprint);
+				index.commit();
+			}
+		}
+		try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			assertEquals("<b>Details 3</b>", index.lookup(HOST, "1", 3).getAttributes().get(CustomVulnAttribute.issue));
+		}
+		try ( Stream<Path> files = Files.list(directory) ) {
+			long dataFileSize = files.filter(file -> file.toString().endsWith(".dat")).mapToLong(file -> file.toFile().length()).sum();
+			assertTrue(dataFileSize<2*serializedLength(record("1", "<b>Details 3</b>")));
+		}
+	}
+
+	@Test
+	void testConcurrentImportDoesNotUpdateIndex(@TempDir Path directory) throws Exception {
+		try ( DeltaIndex first = new DeltaIndex(directory, Long.MAX_VALUE); DeltaIndex second = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			first.store(HOST, record("1", "<b>Details</b>"), 1);
+			second.store(HOST, record("2", "<b>Details</b>"), 2);
+			second.commit();
+			first.commit();
+		}
+		try ( DeltaIndex index = new DeltaIndex(directory, Long.MAX_VALUE) ) {
+			assertNotNull(index.lookup(HOST, "1", 1));
+			assertNull(index.lookup(HOST, "2", 2));
+		}
+	}
+
+	@Test
+	void testDeltaImportMatchesFullImport(@TempDir Path indexDirectory) throws Exception {
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(BurpParserConfig.DEFAULT);
+		BurpParserConfig config = BurpParserConfig.builder().deltaIndexDirectory(indexDirectory.toString()).build();
+		// First import renders all issues, later imports reuse the records stored in the index
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config.toBuilder().pipelineThreads(2).build()));
+		try ( Stream<Path> files = Files.list(indexDirectory) ) {
+			assertTrue(files.allMatch(file -> file.toString().endsWith(".idx") || file.toString().endsWith(".dat")));
+		}
+	}
+
+	@Test
+	void testDeltaImportOfMultipleEntries(@TempDir Path directory) throws Exception {
+		byte[] xml = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("sample.xml").toURI()));
+		// All entries report issues for the same host, so all threads store records in the same host index
+		ScanData scanData = new EntriesScanData().entry("a.xml", xml).entry("b.xml", xml).entry("c.xml", xml);
+		BurpParserConfig config = BurpParserConfig.builder().scanEntryThreads(3).build();
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(scanData, config);
+		BurpParserConfig deltaConfig = config.toBuilder().deltaIndexDirectory(directory.toString()).build();
+		assertEquals(expected, VulnerabilitiesParserTest.parse(scanData, deltaConfig));
+		long dataSize = getDataSize(directory);
+		assertTrue(dataSize>0);
+		// The first import stored all records, so the second import reuses all of them in place
+		assertEquals(expected, VulnerabilitiesParserTest.parse(scanData, deltaConfig));
+		assertEquals(dataSize, getDataSize(directory));
+	}
+
+	@Test
+	void testDeltaImportWithLimitedHostAttribute(@TempDir Path directory) throws Exception {
+		for ( int hostMaxLength : new int[] {0, 10} ) {
+			BurpParserConfig config = BurpParserConfig.builder()
+					.attributeMaxLengths(Collections.singletonMap(CustomVulnAttribute.host, hostMaxLength)).build();
+			Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(config);
+			BurpParserConfig deltaConfig = config.toBuilder().deltaIndexDirectory(directory.resolve("index-"+hostMaxLength).toString()).build();
+			assertEquals(expected, VulnerabilitiesParserTest.parse(deltaConfig));
+			assertEquals(expected, VulnerabilitiesParserTest.parse(deltaConfig));
+			// Records are stored under the issue host used for lookups, rather than the host attribute value
+			String sampleHost = "http://192.168.76.131";
+			try ( Stream<Path> files = Files.list(directory.resolve("index-"+hostMaxLength)) ) {
+				assertTrue(files.allMatch(file -> file.getFileName().toString().startsWith(Long.toHexString(Fingerprint.of(sampleHost))+".")));
+			}
+		}
+	}
+
+	private static final long getDataSize(Path directory) throws IOException {
+		try ( Stream<Path> files = Files.list(directory) ) {
+			return files.filter(file -> file.toString().endsWith(".dat")).mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	private static final int serializedLength(VulnerabilityRecord record) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		record.write(new DataOutputStream(bos));
+		return bos.size();
+	}
+
+	private static final VulnerabilityRecord record(String instanceId, String issueText) {
+		return new VulnerabilityRecord(instanceId, "Cross-site scripting", 2.5f, HOST+"/", Priority.High)
+			.attribute(CustomVulnAttribute.host, HOST)
+			.attribute(CustomVulnAttribute.path, "/")
+			.attribute(CustomVulnAttribute.issue, issueText)
+			.attribute(CustomVulnAttribute.request, null);
+	}
+}
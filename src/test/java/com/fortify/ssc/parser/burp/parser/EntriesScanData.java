@@ -0,0 +1,54 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * {@link ScanData} implementation that provides multiple named entries, like an
+ * upload bundling multiple Burp exports
+ */
+class EntriesScanData implements ScanData {
+	private final Map<String, byte[]> entries = new LinkedHashMap<>();
+
+	public EntriesScanData entry(String name, byte[] bytes) {
+		entries.put(name, bytes);
+		return this;
+	}
+
+	@Override
+	public String getSessionId() {
+		return UUID.randomUUID().toString();
+	}
+
+	@Override
+	public List<ScanEntry> getScanEntries() {
+		List<ScanEntry> result = new ArrayList<>();
+		entries.keySet().forEach(name -> result.add(() -> name));
+		return result;
+	}
+
+	@Override
+	public InputStream getInputStream(Predicate<String> matcher) throws IOException {
+		for ( Map.Entry<String, byte[]> entry : entries.entrySet() ) {
+			if ( matcher.test(entry.getKey()) ) {
+				return new ByteArrayInputStream(entry.getValue());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+		return new ByteArrayInputStream(entries.get(scanEntry.getEntryName()));
+	}
+}
@@ -0,0 +1,72 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+class HtmlRendererTest {
+	private static final String CODE = "<p title=\"a&b\">Caf\u00e9 &amp; cr\u00e8me</p>\n";
+	private static final String ESCAPED_CODE = "&lt;p title=\"a&amp;b\"&gt;Caf\u00e9 &amp;amp; cr\u00e8me&lt;/p&gt;\n";
+
+	@Test
+	void testSectionsAreRenderedAsIs() {
+		assertEquals("<b>Details</b><br/>\n<p>a &amp; b</p><br/>\n<b>References</b><br/>\n<ul></ul><br/>\n",
+				HtmlRenderer.get(20000).section("Details", "<p>a &amp; b</p>").section("Empty", " ").section("References", "<ul></ul>").toString());
+	}
+
+	@Test
+	void testSectionsAreAbbreviatedAsStringUtils() {
+		String text = StringUtils.repeat("<p>Lorem ipsum</p>", 10);
+		for ( int maxLength = 4 ; maxLength < 250 ; maxLength++ ) {
+			String expected = StringUtils.abbreviate("<b>Details</b><br/>\n"+text+"<br/>\n<hr/>\n", maxLength);
+			assertEquals(expected, HtmlRenderer.get(maxLength).section("Details", text).raw("<hr/>\n").toString());
+		}
+	}
+
+	@Test
+	void testCodeIsEscaped() {
+		assertEquals(HtmlRenderer.CODE_PREFIX+ESCAPED_CODE+HtmlRenderer.CODE_SUFFIX, HtmlRenderer.get(20000).code(CODE, false).toString());
+		assertEquals(HtmlRenderer.CODE_PREFIX+ESCAPED_CODE+"..."+HtmlRenderer.CODE_SUFFIX, HtmlRenderer.get(20000).code(CODE, true).toString());
+		assertEquals("", HtmlRenderer.get(20000).code(" \n", false).toString());
+	}
+
+	@Test
+	void testCodeIsAbbreviatedWithoutBreakingEscapes() {
+		int tags = HtmlRenderer.CODE_PREFIX.length()+HtmlRenderer.CODE_SUFFIX.length();
+		for ( int maxCodeLength = 4 ; maxCodeLength < ESCAPED_CODE.length()+5 ; maxCodeLength++ ) {
+			String rendered = HtmlRenderer.get(maxCodeLength+tags).code(CODE, false).toString();
+			String code = StringUtils.removeEnd(StringUtils.removeStart(rendered, HtmlRenderer.CODE_PREFIX), HtmlRenderer.CODE_SUFFIX);
+			String expected = StringUtils.abbreviate(ESCAPED_CODE, maxCodeLength);
+			assertTrue(code.length()<=maxCodeLength);
+			if ( !code.equals(expected) ) {
+				// Only allowed to differ if abbreviating would cut an escaped character
+				String prefix = StringUtils.removeEnd(code, "...");
+				assertTrue(expected.startsWith(prefix));
+				assertTrue(expected.substring(prefix.length()).startsWith("&"));
+				assertTrue(maxCodeLength-code.length()<"&amp;".length());
+			}
+		}
+	}
+
+	@Test
+	void testTruncationIsReported() {
+		int tags = HtmlRenderer.CODE_PREFIX.length()+HtmlRenderer.CODE_SUFFIX.length();
+		assertFalse(HtmlRenderer.get(ESCAPED_CODE.length()+tags).code(CODE, false).isTruncated());
+		assertTrue(HtmlRenderer.get(ESCAPED_CODE.length()+tags+3).code(CODE, true).isTruncated());
+		// Abbreviated just before an escaped character, so shorter than the maximum length
+		int maxCodeLength = ESCAPED_CODE.indexOf("&amp;b")+5;
+		HtmlRenderer renderer = HtmlRenderer.get(maxCodeLength+tags).code(CODE, false);
+		assertTrue(renderer.toString().length()<maxCodeLength+tags);
+		assertTrue(renderer.isTruncated());
+		assertFalse(HtmlRenderer.get(20000).section("Details", "text").isTruncated());
+	}
+
+	@Test
+	void testRendererIsReset() {
+		HtmlRenderer.get(10).raw("Lorem ipsum dolor sit amet");
+		assertEquals("<b>Details</b><br/>\ntext<br/>\n", HtmlRenderer.get(20000).section("Details", "text").toString());
+	}
+}
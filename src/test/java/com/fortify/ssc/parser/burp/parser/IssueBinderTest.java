@@ -0,0 +1,73 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.util.HttpMessageDecoder;
+
+class IssueBinderTest {
+	private static final String REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+	private static final String RESPONSE_HEADERS = "HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=utf-8\r\n\r\n";
+
+	@Test
+	void testOversizedElementsAreTruncatedWhileReading() throws Exception {
+		String detail = StringUtils.repeat("detail ", 100000);
+		String response = RESPONSE_HEADERS+StringUtils.repeat("\u00e9t\u00e9 ", 250000);
+		Issue issue = bind("<issue><serialNumber>1</serialNumber><name>Test</name>"
+				+"<issueDetail><![CDATA["+detail+"]]></issueDetail>"
+				+"<requestresponse>"
+				+"<request method=\"GET\" base64=\"true\"><![CDATA["+encode(REQUEST)+"]]></request>"
+				+"<response base64=\"true\"><![CDATA["+encode(response)+"]]></response>"
+				+"</requestresponse></issue>");
+
+		assertEquals("Test", issue.getName());
+		assertEquals(20001, issue.getIssueDetail().length());
+		assertTrue(issue.isTruncated("issueDetail"));
+		assertFalse(issue.isTruncated("name"));
+		assertFalse(issue.isTruncated("requestresponse/request"));
+		assertTrue(issue.isTruncated("requestresponse/response"));
+
+		String expectedResponse = VulnerabilitiesParser.getCodeAsHtml(response, 20000);
+		String actualResponse = VulnerabilitiesParser.getCodeAsHtml(issue.getRequestresponse().getResponse(), 20000, true);
+		assertEquals(expectedResponse, actualResponse);
+		assertTrue(actualResponse.endsWith("...</code></pre>"));
+		assertEquals(REQUEST, issue.getRequestresponse().getRequestDecoded());
+	}
+
+	@Test
+	void testTruncationMarkerOnlyAppliesToLastRequestResponse() throws Exception {
+		String response = encode(RESPONSE_HEADERS+StringUtils.repeat("x", 500000));
+		Issue issue = bind("<issue><serialNumber>1</serialNumber>"
+				+"<requestresponse><response base64=\"true\">"+response+"</response></requestresponse>"
+				+"<requestresponse><response base64=\"true\">"+encode(RESPONSE_HEADERS)+"</response></requestresponse>"
+				+"</issue>");
+		assertFalse(issue.isTruncated("requestresponse/response"));
+		assertEquals(RESPONSE_HEADERS, issue.getRequestresponse().getResponseDecoded());
+	}
+
+	@Test
+	void testMaxEncodedLengthCoversMultiByteCharacters() {
+		String body = StringUtils.repeat("\uD83D\uDE00", 1000);
+		String encoded = Base64.getMimeEncoder().encodeToString(body.getBytes(StandardCharsets.UTF_8));
+		int maxEncodedLength = HttpMessageDecoder.getMaxEncodedLength(body.length());
+		assertTrue(encoded.length()<=maxEncodedLength);
+	}
+
+	private static final Issue bind(String xml) throws Exception {
+		IssueXmlReader reader = new IssueXmlReader(new IssueBinder(VulnerabilitiesParser.getProjection()));
+		return reader.readSingle(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "UTF-8");
+	}
+
+	private static final String encode(String message) {
+		return Base64.getEncoder().encodeToString(message.getBytes(StandardCharsets.UTF_8));
+	}
+}
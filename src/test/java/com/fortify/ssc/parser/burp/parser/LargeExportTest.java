@@ -0,0 +1,79 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+
+/**
+ * Parses a generated multi-GB export, with 1 MB responses, to verify that heap
+ * usage doesn't depend on export or payload size. This test only runs if the
+ * {@value #SIZE_PROPERTY} system property specifies the export size in MB, and
+ * is meant to be run with a small heap; see the largeExportTest Gradle task.
+ */
+@EnabledIfSystemProperty(named = LargeExportTest.SIZE_PROPERTY, matches = "\\d+")
+class LargeExportTest {
+	static final String SIZE_PROPERTY = "com.fortify.ssc.parser.burp.test.largeExportMegabytes";
+	private static final int PAYLOAD_MEGABYTES = 1;
+	private static final String REQUEST = "GET / HTTP/1.1\r\nHost: large.example.com\r\n\r\n";
+	/** Response headers, padded to a multiple of 3 bytes such that the body can be encoded separately */
+	private static final String RESPONSE_HEADERS = "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\n\r\n ";
+	/** 57 bytes, encoding to a single 76-character MIME line */
+	private static final String BODY_LINE = "<p>Lorem ipsum dolor sit amet, consectetur adipiscing</p>";
+
+	@Test
+	void testLargeExportWithSmallHeap(@TempDir Path directory) throws Exception {
+		int issueCount = Integer.getInteger(SIZE_PROPERTY)/PAYLOAD_MEGABYTES;
+		Path file = directory.resolve("large-export.xml");
+		generate(file, issueCount);
+		BurpParserConfig config = BurpParserConfig.builder().pipelineThreads(2).payloadSpillThreshold(8192).build();
+		AtomicInteger count = new AtomicInteger();
+		new VulnerabilitiesParser(StreamScanData.ofFile(file), instanceId -> {
+			count.incrementAndGet();
+			return (StaticVulnerabilityBuilder) Proxy.newProxyInstance(LargeExportTest.class.getClassLoader(),
+					new Class[] { StaticVulnerabilityBuilder.class }, (proxy, method, args) -> null);
+		}, config).parse();
+		assertEquals(issueCount, count.get());
+	}
+
+	/**
+	 * Generate an export with the given number of issues, each with a 1 MB response
+	 */
+	static final void generate(Path file, int issueCount) throws IOException {
+		Base64.Encoder encoder = Base64.getEncoder();
+		String request = encoder.encodeToString(REQUEST.getBytes(StandardCharsets.ISO_8859_1));
+		String responseHeaders = encoder.encodeToString(RESPONSE_HEADERS.getBytes(StandardCharsets.ISO_8859_1));
+		String bodyLine = encoder.encodeToString(BODY_LINE.getBytes(StandardCharsets.ISO_8859_1))+"\r\n";
+		long bodyLines = PAYLOAD_MEGABYTES*1024L*1024L/bodyLine.length();
+		try ( Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), 64*1024) ) {
+			w.write("<?xml version=\"1.0\"?>\n<issues burpVersion=\"2023.1\" exportTime=\"Mon Jan 01 00:00:00 UTC 2024\">\n");
+			for ( int i = 0 ; i < issueCount ; i++ ) {
+				w.write("<issue><serialNumber>"+i+"</serialNumber><type>5245344</type><name>Cross-site scripting (reflected)</name>"
+						+"<host ip=\"127.0.0.1\">http://large.example.com</host><path>/page/"+i+"</path>"
+						+"<severity>High</severity><confidence>Certain</confidence><issueDetail>Issue "+i+"</issueDetail>"
+						+"<requestresponse><request method=\"GET\" base64=\"true\"><![CDATA["+request+"]]></request>"
+						+"<response base64=\"true\"><![CDATA["+responseHeaders);
+				for ( long line = 0 ; line < bodyLines ; line++ ) {
+					w.write(bodyLine);
+				}
+				w.write("]]></response></requestresponse></issue>\n");
+			}
+			w.write("</issues>\n");
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.metrics.DefaultParserMetrics;
+
+class MemoryBudgetTest {
+	private static final ToLongFunction<BurpParserConfig> ESTIMATE = config -> config.getParallelism()*100L;
+	private static final UnaryOperator<BurpParserConfig> REDUCE = config -> config.getParallelism()<=1 ? null : config.toBuilder().parallelism(config.getParallelism()/2).build();
+
+	@Test
+	void testReservationFallsBackToReducedConfiguration() throws Exception {
+		MemoryBudget budget = new MemoryBudget();
+		BurpParserConfig config = BurpParserConfig.builder().parallelism(8).build();
+		try ( MemoryBudget.Reservation other = budget.reserve("other", config, 1000, 0, c -> 600, REDUCE, ParseProgress.NOOP);
+				MemoryBudget.Reservation reservation = budget.reserve("test", config, 1000, 0, ESTIMATE, REDUCE, ParseProgress.NOOP) ) {
+			assertEquals(config, other.getConfig());
+			assertEquals(4, reservation.getConfig().getParallelism());
+			assertEquals(400, reservation.getBytes());
+			assertEquals(1000, budget.getReservedBytes());
+		}
+		assertEquals(0, budget.getReservedBytes());
+	}
+
+	@Test
+	void testReservationExceedingBudgetIsLimitedToBudget() throws Exception {
+		MemoryBudget budget = new MemoryBudget();
+		try ( MemoryBudget.Reservation reservation = budget.reserve("test", BurpParserConfig.DEFAULT, 1000, 0, c -> 5000, c -> null, ParseProgress.NOOP) ) {
+			assertEquals(1000, reservation.getBytes());
+			assertEquals(BurpParserConfig.DEFAULT, reservation.getConfig());
+		}
+	}
+
+	@Test
+	void testMemoryBudgetReducesSettingsWhenExhausted() throws Exception {
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(BurpParserConfig.DEFAULT);
+		BurpParserConfig config = BurpParserConfig.builder().memoryBudgetMegabytes(getMemoryBudgetMegabytes()).memoryBudgetWaitSeconds(0).build();
+		BurpParserConfig minimal = config;
+		for ( BurpParserConfig reduced = config ; reduced!=null ; reduced = VulnerabilitiesParser.reduceMemoryUsage(reduced) ) {
+			minimal = reduced;
+		}
+		// Another parse holds all budget apart from what's needed with the most reduced settings
+		DefaultParserMetrics totals = new DefaultParserMetrics();
+		DefaultParserMetrics metrics = new DefaultParserMetrics("test", totals);
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler();
+		MemoryBudget.Reservation other = reserve(config.getMemoryBudgetMegabytes()*1024L*1024L-VulnerabilitiesParser.getMaxPayloadBytes(minimal, 1));
+		try {
+			new VulnerabilitiesParser(StreamScanData.ofResource("sample.xml"), handler, config, metrics).parse();
+		} finally {
+			other.close();
+		}
+		metrics.parseCompleted();
+		assertEquals(expected.keySet(), handler.getVulnerabilities().keySet());
+		assertNotEquals(expected, handler.getVulnerabilities());
+		assertEquals(1, totals.getReducedSettingsParses());
+		// Once released, parses use the configured settings
+		assertEquals(0, MemoryBudget.SHARED.getReservedBytes());
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+	}
+
+	@Test
+	void testParseWaitsForMemoryBudget() throws Exception {
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(BurpParserConfig.DEFAULT);
+		BurpParserConfig config = BurpParserConfig.builder().memoryBudgetMegabytes(getMemoryBudgetMegabytes()).memoryBudgetWaitSeconds(60).build();
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler();
+		VulnerabilitiesParser parser = new VulnerabilitiesParser(StreamScanData.ofResource("sample.xml"), handler, config);
+		FutureTask<Void> task = new FutureTask<>(() -> { parser.parse(); return null; });
+		MemoryBudget.Reservation other = reserve(config.getMemoryBudgetMegabytes()*1024L*1024L-1);
+		try {
+			new Thread(task).start();
+			Thread.sleep(200);
+			assertFalse(task.isDone());
+			assertTrue(handler.getVulnerabilities().isEmpty());
+		} finally {
+			other.close();
+		}
+		task.get(30, TimeUnit.SECONDS);
+		assertEquals(expected, handler.getVulnerabilities());
+	}
+
+	/**
+	 * @return Smallest memory budget in megabytes that fits parsing with the default settings
+	 */
+	private static final int getMemoryBudgetMegabytes() {
+		return (int)(VulnerabilitiesParser.getMaxPayloadBytes(BurpParserConfig.DEFAULT, 1)/(1024*1024))+1;
+	}
+
+	/**
+	 * Reserve the given number of bytes of the shared memory budget, as if held by another parse
+	 */
+	private static final MemoryBudget.Reservation reserve(long bytes) throws ScanParsingException {
+		return MemoryBudget.SHARED.reserve("test", BurpParserConfig.DEFAULT, Long.MAX_VALUE, 0, config -> bytes, config -> null, ParseProgress.NOOP);
+	}
+}
@@ -0,0 +1,93 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fortify.plugin.api.BasicVulnerabilityBuilder.Priority;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+import com.fortify.ssc.parser.burp.metrics.DefaultParserMetrics;
+
+class ParseCacheTest {
+	@Test
+	void testParseCacheHitMatchesParsing(@TempDir Path cacheDirectory) throws Exception {
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(BurpParserConfig.DEFAULT);
+		BurpParserConfig config = BurpParserConfig.builder().parseCacheDirectory(cacheDirectory.toString()).build();
+		// First parse stores the records, second parse replays these without parsing any issues
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+		DefaultParserMetrics totals = new DefaultParserMetrics();
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler();
+		new VulnerabilitiesParser(StreamScanData.ofResource("sample.xml"), handler, config, new DefaultParserMetrics("test", totals)).parse();
+		assertEquals(expected, handler.getVulnerabilities());
+		assertEquals(0, totals.getIssues());
+		// Settings that affect the output result in a separate entry
+		assertEquals(VulnerabilitiesParserTest.parse(config.toBuilder().maxTextBodySize(100).build()), VulnerabilitiesParserTest.parse(BurpParserConfig.builder().maxTextBodySize(100).build()));
+		List<Path> entries;
+		try ( Stream<Path> files = Files.list(cacheDirectory) ) {
+			entries = files.collect(Collectors.toList());
+		}
+		assertEquals(2, entries.size());
+		assertTrue(entries.stream().allMatch(file -> file.toString().endsWith(".rec")));
+	}
+
+	@Test
+	void testCorruptParseCacheEntryIsIgnored(@TempDir Path cacheDirectory) throws Exception {
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(BurpParserConfig.DEFAULT);
+		BurpParserConfig config = BurpParserConfig.builder().parseCacheDirectory(cacheDirectory.toString()).build();
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+		Path entry;
+		try ( Stream<Path> files = Files.list(cacheDirectory) ) {
+			entry = files.findFirst().get();
+		}
+		byte[] bytes = Files.readAllBytes(entry);
+		bytes[bytes.length/2] ^= 0x55;
+		Files.write(entry, bytes);
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+		// The corrupt entry has been replaced
+		assertEquals(expected, VulnerabilitiesParserTest.parse(config));
+		assertFalse(Arrays.equals(bytes, Files.readAllBytes(entry)));
+	}
+
+	@Test
+	void testLeastRecentlyUsedEntryIsEvicted(@TempDir Path directory) throws Exception {
+		store(new ParseCache(directory, Long.MAX_VALUE), "a");
+		long entrySize = Files.size(directory.resolve("a.rec"));
+		// Room for two and a half entries
+		ParseCache cache = new ParseCache(directory, 2*entrySize+entrySize/2);
+		store(cache, "b");
+		long now = System.currentTimeMillis();
+		Files.setLastModifiedTime(directory.resolve("a.rec"), FileTime.fromMillis(now-20000));
+		Files.setLastModifiedTime(directory.resolve("b.rec"), FileTime.fromMillis(now-10000));
+		// Replaying a makes b the least recently used entry
+		List<VulnerabilityRecord> records = new ArrayList<>();
+		assertEquals(1, cache.replay("a", records::add));
+		assertEquals("1", records.get(0).getInstanceId());
+		assertEquals("<b>Details</b>", records.get(0).getAttributes().get(CustomVulnAttribute.issue));
+		store(cache, "c");
+		assertEquals(-1, cache.replay("b", record -> {}));
+		assertEquals(1, cache.replay("a", record -> {}));
+		assertEquals(1, cache.replay("c", record -> {}));
+	}
+
+	private static final void store(ParseCache cache, String key) {
+		try ( ParseCache.Writer writer = cache.createWriter(key) ) {
+			writer.accept(new VulnerabilityRecord("1", "Cross-site scripting", 2.5f, "http://localhost/", Priority.High)
+				.attribute(CustomVulnAttribute.issue, "<b>Details</b>"));
+			writer.commit();
+		}
+	}
+}
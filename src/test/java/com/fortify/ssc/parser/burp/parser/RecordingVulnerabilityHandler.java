@@ -0,0 +1,41 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+
+/**
+ * {@link VulnerabilityHandler} implementation that records all builder
+ * invocations per instance id, in the order in which vulnerabilities
+ * were started, allowing tests to compare the output of different
+ * parser configurations.
+ */
+class RecordingVulnerabilityHandler implements VulnerabilityHandler {
+	private final Map<String, List<String>> vulnerabilities = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	@Override
+	public StaticVulnerabilityBuilder startStaticVulnerability(String instanceId) {
+		List<String> invocations = new ArrayList<>();
+		if ( vulnerabilities.put(instanceId, invocations)!=null ) {
+			throw new IllegalStateException("Duplicate instance id "+instanceId);
+		}
+		return (StaticVulnerabilityBuilder) Proxy.newProxyInstance(
+			RecordingVulnerabilityHandler.class.getClassLoader(),
+			new Class[] { StaticVulnerabilityBuilder.class },
+			(proxy, method, args) -> {
+				invocations.add(method.getName()+": "+(args==null?null:Arrays.asList(args)));
+				return null;
+			});
+	}
+
+	public Map<String, List<String>> getVulnerabilities() {
+		return vulnerabilities;
+	}
+}
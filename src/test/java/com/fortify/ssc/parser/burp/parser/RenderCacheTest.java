@@ -0,0 +1,29 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+
+class RenderCacheTest {
+	@Test
+	void testSectionsAreOnlyReusedForEqualSources() {
+		RenderCache cache = new RenderCache(16);
+		AtomicInteger renders = new AtomicInteger();
+		assertEquals("<p>a</p>", cache.getSection(CustomVulnAttribute.remediation, "1", () -> render(renders, "a"), "a"));
+		assertEquals("<p>a</p>", cache.getSection(CustomVulnAttribute.remediation, "1", () -> render(renders, "a"), new String("a")));
+		assertEquals(1, renders.get());
+		// Same attribute and type, but other source texts, must never return the cached section
+		assertEquals("<p>b</p>", cache.getSection(CustomVulnAttribute.remediation, "1", () -> render(renders, "b"), "b"));
+		assertEquals("<p>a</p>", cache.getSection(CustomVulnAttribute.references, "1", () -> render(renders, "a"), "a", null));
+		assertEquals(3, renders.get());
+	}
+
+	private static final String render(AtomicInteger renders, String source) {
+		renders.incrementAndGet();
+		return "<p>"+source+"</p>";
+	}
+}
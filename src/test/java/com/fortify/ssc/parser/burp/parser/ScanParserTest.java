@@ -0,0 +1,141 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static com.fortify.ssc.parser.burp.parser.StreamScanData.readSample;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import com.fortify.plugin.api.ScanBuilder;
+import com.fortify.plugin.api.ScanData;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.metrics.DefaultParserMetrics;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
+
+class ScanParserTest {
+	private static final BurpParserConfig SCAN_SUMMARY = BurpParserConfig.builder().scanSummaryEnabled(true).build();
+
+	@Test
+	void testJsonInputMatchesXmlInput() throws Exception {
+		Map<String, String> expected = parse(StreamScanData.ofResource("sample.xml"));
+		assertEquals("[2020.5]", expected.get("setEngineVersion"));
+		assertEquals(expected, parse(StreamScanData.ofResource("sample.json")));
+		assertEquals(parse(StreamScanData.ofResource("sample.xml"), SCAN_SUMMARY), parse(StreamScanData.ofResource("sample.json"), SCAN_SUMMARY));
+	}
+
+	@Test
+	void testMultipleEntriesUseEarliestExportTime() throws Exception {
+		byte[] xml = readSample();
+		String sample = new String(xml, StandardCharsets.UTF_8);
+		byte[] earlier = sample.replace("exportTime=\"Wed Jun 10 23:14:56 CEST 2020\"", "exportTime=\"Tue Jun 09 08:00:00 CEST 2020\"").getBytes(StandardCharsets.UTF_8);
+		byte[] later = sample.replace("exportTime=\"Wed Jun 10 23:14:56 CEST 2020\"", "exportTime=\"Thu Jun 11 08:00:00 CEST 2020\"").getBytes(StandardCharsets.UTF_8);
+		Map<String, String> expected = parse(StreamScanData.ofBytes(earlier));
+		ScanData scanData = new EntriesScanData()
+				.entry("host-a.xml", xml)
+				.entry("host-b.xml", earlier)
+				.entry("host-c.xml", later);
+		assertEquals(expected, parse(scanData));
+		assertEquals("[2020.5]", expected.get("setEngineVersion"));
+	}
+
+	@Test
+	void testScanSummaryCountsIssuesAndHosts() throws Exception {
+		Map<String, String> invocations = parse(StreamScanData.ofResource("sample.xml"), SCAN_SUMMARY);
+		assertEquals("[1]", invocations.get("setNumFiles"));
+		assertEquals("[http://192.168.76.131]", invocations.get("setHostName"));
+		assertEquals("[Burp scan: 26 issues on 1 host]", invocations.get("setScanLabel"));
+		assertFalse(parse(StreamScanData.ofResource("sample.xml")).containsKey("setNumFiles"));
+
+		String sample = new String(readSample(), StandardCharsets.UTF_8);
+		ScanData scanData = new EntriesScanData()
+				.entry("host-a.xml", readSample())
+				.entry("host-b.xml", sample.replace("http://192.168.76.131<", "http://192.168.76.132<").getBytes(StandardCharsets.UTF_8));
+		invocations = parse(scanData, SCAN_SUMMARY);
+		assertEquals("[2]", invocations.get("setNumFiles"));
+		assertFalse(invocations.containsKey("setHostName"));
+		assertEquals("[Burp scan: 52 issues on 2 hosts]", invocations.get("setScanLabel"));
+	}
+
+	@Test
+	void testScanSummaryIgnoresCdataAndComments() throws Exception {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<!DOCTYPE issues [\n<!ELEMENT issue (host)>\n]>\n<issues burpVersion=\"2020.5\">\n");
+		for ( int i = 0 ; i < 100 ; i++ ) {
+			// Padding moves tags across the scanner's buffer boundaries
+			xml.append("<issue>\n<host ip=\"10.0.0.1\">http://a.example/?x=1&amp;y=").append(i%3).append("</host>\n")
+				.append("<!-- <issue><host>http://comment</host> -->\n")
+				.append("<request base64=\"false\"><![CDATA[GET / HTTP/1.1\r\n\r\n<issue><host>http://cdata</host>").append(StringUtils.repeat('x', i*97)).append("]]></request>\n")
+				.append("<host/>\n</issue>\n");
+		}
+		xml.append("</issues>\n");
+		Map<String, String> invocations = parse(StreamScanData.ofBytes(xml.toString().getBytes(StandardCharsets.UTF_8)), SCAN_SUMMARY);
+		assertEquals("[3]", invocations.get("setNumFiles"));
+		assertEquals("[Burp scan: 100 issues on 3 hosts]", invocations.get("setScanLabel"));
+	}
+
+	@Test
+	void testXmlBackendsProduceIdenticalMetadata() throws Exception {
+		Map<String, String> expected = parse(StreamScanData.ofResource("sample.xml"));
+		for ( String backend : XmlInputFactories.BACKENDS.keySet() ) {
+			BurpParserConfig config = BurpParserConfig.builder().xmlBackend(backend).build();
+			assertEquals(expected, parse(StreamScanData.ofResource("sample.xml"), config), backend);
+		}
+	}
+
+	private static final Map<String, String> parse(ScanData scanData) throws Exception {
+		return parse(scanData, BurpParserConfig.DEFAULT);
+	}
+
+	@Test
+	void testMetricsAreCollected() throws Exception {
+		DefaultParserMetrics totals = new DefaultParserMetrics();
+		DefaultParserMetrics metrics = new DefaultParserMetrics("test", totals);
+		new ScanParser(StreamScanData.ofResource("sample.xml"), createScanBuilder(new LinkedHashMap<>()), SCAN_SUMMARY, metrics).parse();
+		metrics.parseCompleted();
+		assertEquals(1, totals.getParses());
+		assertEquals(26, totals.getIssues());
+		assertTrue(totals.getBytesRead()>=readSample().length);
+	}
+
+	@Test
+	void testJsonMetadataParsingStopsAfterMetadata() throws Exception {
+		DefaultParserMetrics totals = new DefaultParserMetrics();
+		DefaultParserMetrics metrics = new DefaultParserMetrics("test", totals);
+		Map<String, String> invocations = new LinkedHashMap<>();
+		new ScanParser(StreamScanData.ofResource("sample.json"), createScanBuilder(invocations), BurpParserConfig.DEFAULT, metrics).parse();
+		metrics.parseCompleted();
+		// Without scan summary, only the start of the input is read, and issues are not counted
+		assertEquals("[2020.5]", invocations.get("setEngineVersion"));
+		assertEquals(0, totals.getIssues());
+		assertTrue(totals.getBytesRead()<64*1024, String.valueOf(totals.getBytesRead()));
+	}
+
+	/**
+	 * @return Last invocation arguments for every {@link ScanBuilder} method that was called
+	 */
+	private static final Map<String, String> parse(ScanData scanData, BurpParserConfig config) throws Exception {
+		Map<String, String> invocations = new LinkedHashMap<>();
+		new ScanParser(scanData, createScanBuilder(invocations), config).parse();
+		return invocations;
+	}
+
+	/**
+	 * @return {@link ScanBuilder} that records the last invocation arguments for every method in the given map
+	 */
+	private static final ScanBuilder createScanBuilder(Map<String, String> invocations) {
+		return (ScanBuilder) Proxy.newProxyInstance(
+			ScanParserTest.class.getClassLoader(),
+			new Class[] { ScanBuilder.class },
+			(proxy, method, args) -> {
+				invocations.put(method.getName(), args==null ? null : Arrays.asList(args).toString());
+				return null;
+			});
+	}
+}
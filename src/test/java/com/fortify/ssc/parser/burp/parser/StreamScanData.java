@@ -0,0 +1,101 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * {@link ScanData} implementation that provides the contents of a single stream,
+ * opened through the given {@link Callable} whenever the input is requested.
+ * This class also provides helper methods for reading the sample exports.
+ */
+class StreamScanData implements ScanData {
+	static final String SAMPLE_RESOURCE_NAME = "sample.xml";
+	private final Callable<InputStream> streamSupplier;
+
+	public StreamScanData(Callable<InputStream> streamSupplier) {
+		this.streamSupplier = streamSupplier;
+	}
+
+	/**
+	 * @return {@link StreamScanData} instance that provides the contents of the given file
+	 */
+	static final StreamScanData ofFile(Path file) {
+		return new StreamScanData(() -> Files.newInputStream(file));
+	}
+
+	/**
+	 * @return {@link StreamScanData} instance that provides the contents of the given byte array
+	 */
+	static final StreamScanData ofBytes(byte[] bytes) {
+		return new StreamScanData(() -> new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * @return {@link StreamScanData} instance that provides the contents of the given class path resource
+	 */
+	static final StreamScanData ofResource(String resourceName) {
+		return new StreamScanData(() -> ClassLoader.getSystemResourceAsStream(resourceName));
+	}
+
+	/**
+	 * @return Contents of the sample XML export
+	 */
+	static final byte[] readSample() throws IOException {
+		return readResource(SAMPLE_RESOURCE_NAME);
+	}
+
+	/**
+	 * @return Contents of the given class path resource
+	 */
+	static final byte[] readResource(String resourceName) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try ( InputStream is = ClassLoader.getSystemResourceAsStream(resourceName) ) {
+			byte[] buffer = new byte[8192];
+			for ( int read = is.read(buffer) ; read>=0 ; read = is.read(buffer) ) {
+				result.write(buffer, 0, read);
+			}
+		}
+		return result.toByteArray();
+	}
+
+	@Override
+	public String getSessionId() {
+		return UUID.randomUUID().toString();
+	}
+
+	@Override
+	public List<ScanEntry> getScanEntries() {
+		return null;
+	}
+
+	@Override
+	public InputStream getInputStream(Predicate<String> matcher) throws IOException {
+		return openStream();
+	}
+
+	@Override
+	public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+		return openStream();
+	}
+
+	private InputStream openStream() throws IOException {
+		try {
+			return streamSupplier.call();
+		} catch ( IOException | RuntimeException e ) {
+			throw e;
+		} catch ( Exception e ) {
+			throw new IOException("Error opening input stream", e);
+		}
+	}
+}
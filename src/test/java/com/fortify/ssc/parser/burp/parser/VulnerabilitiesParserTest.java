@@ -0,0 +1,352 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static com.fortify.ssc.parser.burp.parser.StreamScanData.readResource;
+import static com.fortify.ssc.parser.burp.parser.StreamScanData.readSample;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+import com.fortify.ssc.parser.burp.domain.Issue;
+import com.fortify.ssc.parser.burp.metrics.DefaultParserMetrics;
+import com.fortify.ssc.parser.burp.metrics.ParserMetrics.Phase;
+import com.fortify.ssc.parser.burp.util.XmlInputFactories;
+
+class VulnerabilitiesParserTest {
+	private static final String TEST_RESOURCE_NAME = "sample.xml";
+	/** Burp REST API style JSON export containing the same issues as {@link #TEST_RESOURCE_NAME} */
+	private static final String JSON_RESOURCE_NAME = "sample.json";
+	private static final int SAMPLE_ISSUE_COUNT = 26;
+
+	@Test
+	void testParallelParsingMatchesSequentialParsing() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		assertEquals(SAMPLE_ISSUE_COUNT, expected.size());
+		for ( int parallelism : new int[] {2, 4, 16} ) {
+			Map<String, List<String>> actual = parse(BurpParserConfig.builder().parallelism(parallelism).build());
+			assertIterableEquals(expected.keySet(), actual.keySet());
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	void testTruncatedExportIsRejected() throws Exception {
+		String sample = new String(readSample(), StandardCharsets.UTF_8);
+		String[] truncated = {
+				sample.substring(0, sample.lastIndexOf("</issue>")),
+				sample.substring(0, sample.lastIndexOf("</issues>"))
+		};
+		for ( String xml : truncated ) {
+			ScanData scanData = StreamScanData.ofBytes(xml.getBytes(StandardCharsets.UTF_8));
+			assertThrows(ScanParsingException.class, () -> parse(scanData, BurpParserConfig.DEFAULT));
+			ScanParsingException e = assertThrows(ScanParsingException.class, () -> parse(scanData, BurpParserConfig.builder().parallelism(2).build()));
+			assertTrue(e.getMessage().contains("may have been truncated"), e.getMessage());
+		}
+	}
+
+	@Test
+	void testPipelinedParsingMatchesSequentialParsing() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		for ( int threads : new int[] {1, 4} ) {
+			BurpParserConfig config = BurpParserConfig.builder().pipelineThreads(threads).pipelineQueueSize(2).build();
+			Map<String, List<String>> actual = parse(config);
+			assertIterableEquals(expected.keySet(), actual.keySet());
+			assertEquals(expected, actual);
+			actual = parse(config.toBuilder().parallelism(2).build());
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	void testPipelineStopsBinderWhenEmittingFails() throws Exception {
+		AtomicBoolean binderStopped = new AtomicBoolean();
+		AtomicInteger emitted = new AtomicInteger();
+		RenderPipeline.IssueSource source = consumer -> {
+			try {
+				while ( true ) { consumer.accept(new Issue()); }
+			} finally {
+				binderStopped.set(true);
+			}
+		};
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> new RenderPipeline(2, 2).run(source, issue -> null, record -> {
+			if ( emitted.incrementAndGet()==3 ) { throw new IllegalStateException("Emitter failure"); }
+		}));
+		assertEquals("Emitter failure", e.getMessage());
+		assertTrue(binderStopped.get());
+	}
+
+	@Test
+	void testRenderCacheDoesNotChangeOutput() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.builder().renderCacheSize(0).build());
+		for ( int renderCacheSize : new int[] {1, 1024} ) {
+			assertEquals(expected, parse(BurpParserConfig.builder().renderCacheSize(renderCacheSize).build()));
+		}
+	}
+
+	@Test
+	void testCompressedInputMatchesPlainInput() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		byte[] xml = readSample();
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try ( OutputStream os = new GZIPOutputStream(gzip) ) {
+			os.write(xml);
+		}
+		assertEquals(expected, parse(StreamScanData.ofBytes(gzip.toByteArray()), BurpParserConfig.DEFAULT));
+
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		try ( ZipOutputStream zos = new ZipOutputStream(zip) ) {
+			zos.putNextEntry(new ZipEntry("readme.txt"));
+			zos.write("Not a Burp export".getBytes(StandardCharsets.UTF_8));
+			zos.putNextEntry(new ZipEntry("export/"+TEST_RESOURCE_NAME));
+			zos.write(xml);
+		}
+		assertEquals(expected, parse(StreamScanData.ofBytes(zip.toByteArray()), BurpParserConfig.builder().parallelism(2).build()));
+	}
+
+	@Test
+	void testZipWithMultipleExportsIsRejected() throws Exception {
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		try ( ZipOutputStream zos = new ZipOutputStream(zip) ) {
+			zos.putNextEntry(new ZipEntry("first/"+TEST_RESOURCE_NAME));
+			zos.write(readSample());
+			zos.putNextEntry(new ZipEntry("second/"+JSON_RESOURCE_NAME));
+			zos.write(readResource(JSON_RESOURCE_NAME));
+		}
+		IOException e = assertThrows(IOException.class, () -> parse(StreamScanData.ofBytes(zip.toByteArray()), BurpParserConfig.DEFAULT));
+		assertTrue(e.getMessage().contains("second/"+JSON_RESOURCE_NAME), e.getMessage());
+	}
+
+	@Test
+	void testMetricsAreCollected() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		DefaultParserMetrics totals = new DefaultParserMetrics();
+		DefaultParserMetrics metrics = new DefaultParserMetrics("test", totals);
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler();
+		new VulnerabilitiesParser(StreamScanData.ofResource(TEST_RESOURCE_NAME), handler, BurpParserConfig.DEFAULT, metrics).parse();
+		metrics.parseCompleted();
+
+		assertEquals(expected, handler.getVulnerabilities());
+		assertEquals(1, totals.getParses());
+		assertEquals(SAMPLE_ISSUE_COUNT, totals.getIssues());
+		assertEquals(readSample().length, totals.getBytesRead());
+		assertTrue(totals.getDecodedChars()>0);
+		assertTrue(totals.getPeakIssuePayloadLength()>0);
+		assertTrue(totals.getPhaseTimeMillis(Phase.RENDER)>=totals.getPhaseTimeMillis(Phase.DECODE));
+	}
+
+	@Test
+	void testPayloadSpillingDoesNotChangeOutput() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		BurpParserConfig config = BurpParserConfig.builder().payloadSpillThreshold(16).build();
+		assertEquals(expected, parse(config));
+		assertEquals(expected, parse(config.toBuilder().pipelineThreads(2).parallelism(2).build()));
+	}
+
+	@Test
+	void testJsonInputMatchesXmlInput() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		assertEquals(expected, parse(StreamScanData.ofResource(JSON_RESOURCE_NAME), BurpParserConfig.DEFAULT));
+		assertEquals(expected, parse(StreamScanData.ofResource(JSON_RESOURCE_NAME), BurpParserConfig.builder().payloadSpillThreshold(16).pipelineThreads(2).build()));
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try ( OutputStream os = new GZIPOutputStream(gzip) ) {
+			os.write(readResource(JSON_RESOURCE_NAME));
+		}
+		assertEquals(expected, parse(StreamScanData.ofBytes(gzip.toByteArray()), BurpParserConfig.DEFAULT));
+	}
+
+	@Test
+	void testMultipleEntriesAreParsedWithUniqueInstanceIds() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		byte[] xml = readSample();
+		// Same issues as the sample, but with serial numbers that don't occur in any other entry
+		byte[] renumbered = new String(xml, StandardCharsets.UTF_8)
+				.replaceAll("<serialNumber>(\\d+)</serialNumber>", "<serialNumber>9$1</serialNumber>").getBytes(StandardCharsets.UTF_8);
+		ScanData scanData = new EntriesScanData()
+				.entry("host-b.xml", xml)
+				.entry("host-a.json", readResource(JSON_RESOURCE_NAME))
+				.entry("host-c.xml", renumbered)
+				.entry("readme.txt", "Not a Burp export".getBytes(StandardCharsets.UTF_8));
+		for ( int threads : new int[] {1, 3} ) {
+			Map<String, List<String>> actual = parse(scanData, BurpParserConfig.builder().scanEntryThreads(threads).pipelineThreads(threads-1).build());
+			assertEquals(3*SAMPLE_ISSUE_COUNT, actual.size());
+			for ( Map.Entry<String, List<String>> entry : expected.entrySet() ) {
+				// Colliding serial numbers are qualified with the entry name, unique serial numbers are kept as-is
+				assertEquals(entry.getValue(), actual.get(entry.getKey()+"@host-a.json"));
+				assertEquals(entry.getValue(), actual.get(entry.getKey()+"@host-b.xml"));
+				assertEquals(entry.getValue(), actual.get("9"+entry.getKey()));
+			}
+		}
+	}
+
+	@Test
+	void testAttributesCanBeLimitedOrDisabled() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		Map<CustomVulnAttribute, Integer> attributeMaxLengths = new EnumMap<>(CustomVulnAttribute.class);
+		attributeMaxLengths.put(CustomVulnAttribute.request, 0);
+		attributeMaxLengths.put(CustomVulnAttribute.response, 0);
+		attributeMaxLengths.put(CustomVulnAttribute.issue, 100);
+		BurpParserConfig config = BurpParserConfig.builder().attributeMaxLengths(attributeMaxLengths).build();
+		Map<String, Integer> projection = VulnerabilitiesParser.getProjection(config);
+		assertFalse(projection.containsKey("requestresponse/request"));
+		assertFalse(projection.containsKey("requestresponse/response"));
+		assertEquals(101, projection.get("issueDetail"));
+
+		Map<String, List<String>> actual = parse(config);
+		assertIterableEquals(expected.keySet(), actual.keySet());
+		for ( Map.Entry<String, List<String>> entry : actual.entrySet() ) {
+			List<String> invocations = entry.getValue();
+			assertNull(getInvocation(invocations, "setStringCustomAttributeValue: [request, "));
+			assertNull(getInvocation(invocations, "setStringCustomAttributeValue: [response, "));
+			String issue = getInvocation(invocations, "setStringCustomAttributeValue: [issue, ");
+			String expectedIssue = getInvocation(expected.get(entry.getKey()), "setStringCustomAttributeValue: [issue, ");
+			assertEquals(StringUtils.abbreviate(expectedIssue.substring(0, expectedIssue.length()-1), 100)+"]", issue);
+			assertEquals(getInvocation(expected.get(entry.getKey()), "setStringCustomAttributeValue: [references, "),
+					getInvocation(invocations, "setStringCustomAttributeValue: [references, "));
+		}
+	}
+
+	@Test
+	void testXmlBackendsProduceIdenticalOutput() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.DEFAULT);
+		for ( String backend : XmlInputFactories.BACKENDS.keySet() ) {
+			BurpParserConfig config = BurpParserConfig.builder().xmlBackend(backend).build();
+			assertEquals(expected, parse(config), backend);
+			assertEquals(expected, parse(config.toBuilder().parallelism(4).build()), backend);
+		}
+	}
+
+	@Test
+	void testReadAheadDoesNotChangeOutput() throws Exception {
+		Map<String, List<String>> expected = parse(BurpParserConfig.builder().readAheadBuffers(0).build());
+		BurpParserConfig config = BurpParserConfig.builder().readAheadBuffers(3).readAheadBufferSize(4096).build();
+		assertEquals(expected, parse(config));
+		assertEquals(expected, parse(StreamScanData.ofResource(JSON_RESOURCE_NAME), config));
+	}
+
+	@Test
+	void testInterruptedParsingIsAborted() throws Exception {
+		BurpParserConfig config = BurpParserConfig.builder().progressCheckInterval(1).build();
+		Thread.currentThread().interrupt();
+		try {
+			ScanParsingException e = assertThrows(ScanParsingException.class, () -> parse(config));
+			assertTrue(e.getMessage().contains("interrupted after processing 1 issues"), e.getMessage());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	void testParsingIsAbortedAfterTimeout() throws Exception {
+		BurpParserConfig config = BurpParserConfig.builder().parseTimeoutSeconds(1).progressCheckInterval(1).build();
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler() {
+			@Override
+			public StaticVulnerabilityBuilder startStaticVulnerability(String instanceId) {
+				try {
+					Thread.sleep(100);
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+				return super.startStaticVulnerability(instanceId);
+			}
+		};
+		VulnerabilitiesParser parser = new VulnerabilitiesParser(StreamScanData.ofResource(TEST_RESOURCE_NAME), handler, config);
+		ScanParsingException e = assertThrows(ScanParsingException.class, parser::parse);
+		assertTrue(e.getMessage().contains("exceeded the time limit of 1 seconds"), e.getMessage());
+		assertTrue(handler.getVulnerabilities().size()<SAMPLE_ISSUE_COUNT);
+	}
+
+	@Test
+	void testSerialNumberPassIsAbortedAfterTimeout() throws Exception {
+		BurpParserConfig config = BurpParserConfig.builder().parseTimeoutSeconds(1).progressCheckInterval(1).build();
+		byte[] xml = readSample();
+		// Slow input, taking several seconds to read every entry
+		ScanData scanData = new EntriesScanData() {
+			@Override
+			public InputStream getInputStream(ScanEntry scanEntry) throws IOException {
+				return new FilterInputStream(super.getInputStream(scanEntry)) {
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						try {
+							Thread.sleep(20);
+						} catch ( InterruptedException e ) {
+							Thread.currentThread().interrupt();
+						}
+						return super.read(b, off, Math.min(len, 8192));
+					}
+				};
+			}
+		}.entry("host-a.xml", xml).entry("host-b.xml", xml);
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler();
+		ScanParsingException e = assertThrows(ScanParsingException.class, () -> new VulnerabilitiesParser(scanData, handler, config).parse());
+		assertTrue(e.getMessage().contains("exceeded the time limit of 1 seconds"), e.getMessage());
+		assertTrue(handler.getVulnerabilities().isEmpty());
+	}
+
+	@Test
+	void testParallelSpoolingIsAbortedAfterTimeout() throws Exception {
+		BurpParserConfig config = BurpParserConfig.builder().parallelism(2).parseTimeoutSeconds(1).progressCheckInterval(1).build();
+		// Slow input, taking about seven seconds to read
+		byte[] xml = readSample();
+		ScanData scanData = new StreamScanData(() -> new FilterInputStream(new ByteArrayInputStream(xml)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				try {
+					Thread.sleep(50);
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+				return super.read(b, off, Math.min(len, 8192));
+			}
+		});
+		long start = System.nanoTime();
+		ScanParsingException e = assertThrows(ScanParsingException.class, () -> parse(scanData, config));
+		assertTrue(e.getMessage().contains("exceeded the time limit of 1 seconds"), e.getMessage());
+		// The time limit must be checked while spooling, not only once the full input has been read
+		assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()-start)<4);
+	}
+
+	static final String getInvocation(List<String> invocations, String prefix) {
+		return invocations.stream().filter(invocation -> invocation.startsWith(prefix))
+				.map(invocation -> invocation.substring(prefix.length())).findFirst().orElse(null);
+	}
+
+	static final Map<String, List<String>> parse(BurpParserConfig config) throws Exception {
+		return parse(StreamScanData.ofResource(TEST_RESOURCE_NAME), config);
+	}
+
+	static final Map<String, List<String>> parse(ScanData scanData, BurpParserConfig config) throws Exception {
+		RecordingVulnerabilityHandler handler = new RecordingVulnerabilityHandler();
+		new VulnerabilitiesParser(scanData, handler, config).parse();
+		return handler.getVulnerabilities();
+	}
+}
@@ -0,0 +1,99 @@
+package com.fortify.ssc.parser.burp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.fortify.plugin.api.BasicVulnerabilityBuilder.Priority;
+import com.fortify.ssc.parser.burp.BurpParserConfig;
+import com.fortify.ssc.parser.burp.CustomVulnAttribute;
+
+class VulnerabilityAggregatorTest {
+	@Test
+	void testSpilledGroupsAreMergedByKey() throws Exception {
+		List<String> groups = new ArrayList<>();
+		try ( VulnerabilityAggregator aggregator = new VulnerabilityAggregator(Arrays.asList("name", "host"), 1) ) {
+			aggregator.add(record("1", "XSS", "http://b", "/1"));
+			aggregator.add(record("2", "XSS", "http://a", "/2"));
+			aggregator.add(record("3", "XSS", "http://b", "/3"));
+			aggregator.add(record("4", "SQLi", "http://b", "/1"));
+			aggregator.add(record("5", "XSS", "http://b", "/1"));
+			aggregator.emit(group -> groups.add(group.getRepresentative().getInstanceId()+" "+group.getCount()+" "+group.getPaths()));
+		}
+		// Groups are emitted in key order, with the first record as representative and distinct paths in order of occurrence
+		assertEquals(Arrays.asList("4 1 [/1]", "2 1 [/2]", "1 3 [/1, /3]"), groups);
+	}
+
+	@Test
+	void testSpilledGroupsAreMergedInPasses() throws Exception {
+		int hosts = VulnerabilityAggregator.MERGE_FAN_IN*2+10;
+		List<String> groups = new ArrayList<>();
+		try ( VulnerabilityAggregator aggregator = new VulnerabilityAggregator(Arrays.asList("name", "host"), 1) ) {
+			for ( int i = 0 ; i < hosts*2 ; i++ ) {
+				aggregator.add(record(String.valueOf(i), "XSS", String.format("http://%03d", i%hosts), "/"+i));
+			}
+			aggregator.emit(group -> groups.add(group.getRepresentative().getInstanceId()+" "+group.getCount()+" "+group.getPaths()));
+		}
+		// Spilling every record requires intermediate merge passes, which must preserve key order, representatives and path order
+		assertEquals(hosts, groups.size());
+		for ( int i = 0 ; i < hosts ; i++ ) {
+			assertEquals(i+" 2 [/"+i+", /"+(i+hosts)+"]", groups.get(i));
+		}
+	}
+
+	@Test
+	void testAggregationGroupsIssuesByKey() throws Exception {
+		Set<String> expectedKeys = new HashSet<>();
+		for ( List<String> invocations : VulnerabilitiesParserTest.parse(BurpParserConfig.DEFAULT).values() ) {
+			expectedKeys.add(VulnerabilitiesParserTest.getInvocation(invocations, "setCategory: [")+"|"+VulnerabilitiesParserTest.getInvocation(invocations, "setStringCustomAttributeValue: [host, "));
+		}
+		BurpParserConfig config = BurpParserConfig.builder().aggregationKey(Arrays.asList("name", "host")).build();
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(config);
+		assertEquals(expectedKeys.size(), expected.size());
+		assertTrue(expected.size()<26);
+		for ( List<String> invocations : expected.values() ) {
+			assertTrue(VulnerabilitiesParserTest.getInvocation(invocations, "setStringCustomAttributeValue: [issue, ").startsWith("<b>Affected Paths ("));
+		}
+		// Spilling every group to disk, and pipelined rendering, must not change the output
+		Map<String, List<String>> actual = VulnerabilitiesParserTest.parse(config.toBuilder().aggregationMaxGroups(1).pipelineThreads(2).build());
+		assertIterableEquals(expected.keySet(), actual.keySet());
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testAggregationIgnoresAttributeMaxLengths() throws Exception {
+		BurpParserConfig config = BurpParserConfig.builder().aggregationKey(Arrays.asList("name", "host")).build();
+		Map<String, List<String>> expected = VulnerabilitiesParserTest.parse(config);
+		for ( int maxLength : new int[] {0, 8} ) {
+			Map<CustomVulnAttribute, Integer> attributeMaxLengths = new EnumMap<>(CustomVulnAttribute.class);
+			attributeMaxLengths.put(CustomVulnAttribute.host, maxLength);
+			attributeMaxLengths.put(CustomVulnAttribute.path, maxLength);
+			Map<String, List<String>> actual = VulnerabilitiesParserTest.parse(config.toBuilder().attributeMaxLengths(attributeMaxLengths).build());
+			// Disabling or shortening the host and path attributes must not change the groups, nor the affected paths
+			assertIterableEquals(expected.keySet(), actual.keySet());
+			for ( Map.Entry<String, List<String>> entry : expected.entrySet() ) {
+				assertEquals(VulnerabilitiesParserTest.getInvocation(entry.getValue(), "setStringCustomAttributeValue: [issue, "),
+						VulnerabilitiesParserTest.getInvocation(actual.get(entry.getKey()), "setStringCustomAttributeValue: [issue, "));
+			}
+		}
+	}
+
+	private static final VulnerabilityRecord record(String instanceId, String category, String host, String path) {
+		VulnerabilityRecord result = new VulnerabilityRecord(instanceId, category, 2.5f, host+path, Priority.High)
+			.attribute(CustomVulnAttribute.host, host)
+			.attribute(CustomVulnAttribute.path, path);
+		result.setIssueHost(host);
+		result.setIssuePath(path);
+		return result;
+	}
+}
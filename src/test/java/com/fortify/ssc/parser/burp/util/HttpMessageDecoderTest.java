@@ -0,0 +1,99 @@
+package com.fortify.ssc.parser.burp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class HttpMessageDecoderTest {
+	private static final String HEADERS = "HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=ISO-8859-1\r\n\r\n";
+	private static final String BODY = "<p>Caf\u00e9 cr\u00e8me</p>";
+
+	@Test
+	void testDecodeUsesContentTypeCharset() {
+		String message = HEADERS+BODY;
+		assertEquals(message, decode(message, StandardCharsets.ISO_8859_1, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void testDecodeDefaultsToUtf8() {
+		String message = "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\n\r\n"+BODY;
+		assertEquals(message, decode(message, StandardCharsets.UTF_8, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void testDecodeIsBounded() {
+		String message = HEADERS+BODY;
+		assertEquals(message.substring(0, 10), decode(message, StandardCharsets.ISO_8859_1, 10));
+		assertEquals(message.substring(0, HEADERS.length()+5), decode(message, StandardCharsets.ISO_8859_1, HEADERS.length()+5));
+	}
+
+	@Test
+	void testDecodeNonBase64() {
+		String message = HEADERS+BODY;
+		assertEquals(message, HttpMessageDecoder.decode(message, false, Integer.MAX_VALUE));
+		assertEquals(message.substring(0, 10), HttpMessageDecoder.decode(message, false, 10));
+	}
+
+	@Test
+	void testBinaryBodyIsSummarized() {
+		String headers = "HTTP/1.1 200 OK\r\nContent-Type: image/png\r\nContent-Length: 123456\r\n\r\n";
+		assertEquals(headers+"[Binary body omitted: image/png, 123456 bytes]", decode(headers+"PNG data", StandardCharsets.ISO_8859_1, Integer.MAX_VALUE));
+		assertEquals(headers+"[Binary body omitted: image/png, 123456 bytes]", HttpMessageDecoder.decode(headers+"PNG data", false, Integer.MAX_VALUE));
+		assertEquals(headers.substring(0, 10), decode(headers+"PNG data", StandardCharsets.ISO_8859_1, 10));
+	}
+
+	@Test
+	void testBinaryBodyIsDetectedBySampling() {
+		String headers = "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n\r\n";
+		byte[] body = new byte[20000];
+		body[100] = 0;
+		Arrays.fill(body, 0, 100, (byte)'a');
+		byte[] message = concat(headers.getBytes(StandardCharsets.ISO_8859_1), body);
+		assertEquals(headers+"[Binary body omitted: text/plain, unknown size]", HttpMessageDecoder.decode(Base64.getEncoder().encodeToString(message), true, Integer.MAX_VALUE));
+
+		String gzipHeaders = "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Encoding: gzip\r\n\r\n";
+		assertEquals(gzipHeaders+"[Binary body omitted: text/html, gzip encoded, 4 bytes]", decode(gzipHeaders+"data", StandardCharsets.ISO_8859_1, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void testOversizedTextBodyIsSummarized() {
+		String headers = "HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=ISO-8859-1\r\nContent-Length: 2000000\r\n\r\n";
+		assertEquals(headers+BODY, HttpMessageDecoder.decode(Base64.getEncoder().encodeToString((headers+BODY).getBytes(StandardCharsets.ISO_8859_1)), true, Integer.MAX_VALUE, 0));
+		assertEquals(headers+"[Large body omitted: text/html, 2000000 bytes]", HttpMessageDecoder.decode(Base64.getEncoder().encodeToString((headers+BODY).getBytes(StandardCharsets.ISO_8859_1)), true, Integer.MAX_VALUE, 1000000));
+	}
+
+	@Test
+	void testTextBodyIsNotSummarized() {
+		String utf16Headers = "HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=UTF-16BE\r\n\r\n";
+		byte[] message = concat(utf16Headers.getBytes(StandardCharsets.ISO_8859_1), BODY.getBytes(StandardCharsets.UTF_16BE));
+		assertEquals(utf16Headers+BODY, HttpMessageDecoder.decode(Base64.getEncoder().encodeToString(message), true, Integer.MAX_VALUE, 1));
+		String svgHeaders = "HTTP/1.1 200 OK\r\nContent-Type: image/svg+xml\r\n\r\n";
+		assertEquals(svgHeaders+"<svg/>", decode(svgHeaders+"<svg/>", StandardCharsets.UTF_8, Integer.MAX_VALUE));
+		String emptyBody = "HTTP/1.1 304 Not Modified\r\nContent-Type: image/png\r\nContent-Length: 1234\r\n\r\n";
+		assertEquals(emptyBody, decode(emptyBody, StandardCharsets.UTF_8, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void testGetBodyCharset() {
+		assertEquals(StandardCharsets.UTF_8, HttpMessageDecoder.getBodyCharset("GET / HTTP/1.1\r\n"));
+		assertEquals(StandardCharsets.UTF_8, HttpMessageDecoder.getBodyCharset("content-type: text/plain; charset=\"utf-8\"\r\n"));
+		assertEquals(StandardCharsets.UTF_8, HttpMessageDecoder.getBodyCharset("Content-Type: text/plain; charset=unknown\r\n"));
+		assertEquals(StandardCharsets.ISO_8859_1, HttpMessageDecoder.getBodyCharset("Content-Type: text/plain;charset=iso-8859-1;x=y\r\n"));
+	}
+
+	private static final byte[] concat(byte[] a, byte[] b) {
+		byte[] result = Arrays.copyOf(a, a.length+b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	private static final String decode(String message, Charset charset, int maxLength) {
+		String encoded = Base64.getEncoder().encodeToString(message.getBytes(charset));
+		return HttpMessageDecoder.decode(encoded, true, maxLength);
+	}
+}
@@ -0,0 +1,60 @@
+package com.fortify.ssc.parser.burp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class LruCacheTest {
+	@Test
+	void testLeastRecentlyUsedEntryIsEvicted() {
+		AtomicInteger computations = new AtomicInteger();
+		LruCache<String, String> cache = new LruCache<>(2);
+		cache.get("a", k -> k+computations.incrementAndGet());
+		cache.get("b", k -> k+computations.incrementAndGet());
+		assertEquals("a1", cache.get("a", k -> k+computations.incrementAndGet()));
+		cache.get("c", k -> k+computations.incrementAndGet()); // Evicts b
+		assertEquals("a1", cache.get("a", k -> k+computations.incrementAndGet()));
+		assertEquals("b4", cache.get("b", k -> k+computations.incrementAndGet()));
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		assertEquals(100.0/3, cache.getHitRate(), 0.001);
+	}
+
+	@Test
+	void testPoolingReturnsFirstInstance() {
+		LruCache<String, String> pool = new LruCache<>(16);
+		String first = new String("High");
+		assertSame(first, pool.get(first, v -> v));
+		assertSame(first, pool.get(new String("High"), v -> v));
+	}
+
+	@Test
+	void testEntriesAreEvictedByWeight() {
+		LruCache<String, String> cache = new LruCache<>(16, 10, String::length);
+		cache.get("a", k -> "aaaa");
+		cache.get("b", k -> "bbbb");
+		cache.get("a", k -> "aaaa");
+		cache.get("c", k -> "cccccc"); // Evicts b, the least recently used entry
+		assertEquals(10, cache.getWeight());
+		assertEquals("aaaa", cache.get("a", k -> "a2"));
+		assertEquals("b2", cache.get("b", k -> "b2"));
+		// Values weighing more than the maximum weight are not cached
+		cache.get("d", k -> "ddddddddddd");
+		assertEquals("d2", cache.get("d", k -> "d2"));
+		assertTrue(cache.getWeight()<=10);
+	}
+
+	@Test
+	void testZeroSizeDisablesCaching() {
+		AtomicInteger computations = new AtomicInteger();
+		LruCache<String, Integer> cache = new LruCache<>(0);
+		cache.get("a", k -> computations.incrementAndGet());
+		cache.get("a", k -> computations.incrementAndGet());
+		assertEquals(2, computations.get());
+		assertEquals(0, cache.getHits());
+	}
+}
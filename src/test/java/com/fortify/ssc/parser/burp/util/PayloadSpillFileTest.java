@@ -0,0 +1,55 @@
+package com.fortify.ssc.parser.burp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+class PayloadSpillFileTest {
+	@Test
+	void testPayloadsAreSpilledToSharedWindows() throws Exception {
+		List<String> expected = new ArrayList<>();
+		List<CharSequence> actual = new ArrayList<>();
+		try ( PayloadSpillFile spillFile = new PayloadSpillFile(10, 4096) ) {
+			BoundedStringWriter writer = new BoundedStringWriter();
+			for ( int i = 0 ; i < 100 ; i++ ) {
+				// Some payloads don't fit in the remainder of the current window, every 50th payload doesn't fit in any window
+				String payload = i+":"+StringUtils.repeat((char)('a'+i%26), i%50==49 ? 5000 : (i*37)%600);
+				writer.reset(Integer.MAX_VALUE).write(payload);
+				expected.add(payload);
+				actual.add(spillFile.spill(writer));
+			}
+			for ( int i = 0 ; i < expected.size() ; i++ ) {
+				assertEquals(expected.get(i), actual.get(i).toString());
+			}
+			// Short payloads are not spilled; spilled payloads share windows
+			assertEquals(String.class, actual.get(0).getClass());
+			assertTrue(spillFile.getWindowCount()>1);
+			assertTrue(spillFile.getWindowCount()<actual.size()/2, "Mapped "+spillFile.getWindowCount()+" windows");
+		}
+	}
+
+	@Test
+	void testAsciiAndNonAsciiPayloadsAreSpilled() throws Exception {
+		try ( PayloadSpillFile spillFile = new PayloadSpillFile(10, 4096) ) {
+			BoundedStringWriter writer = new BoundedStringWriter();
+			String ascii = StringUtils.repeat("R0VUIC8gSFRUUC8xLjENCg==", 100);
+			String nonAscii = StringUtils.repeat("Caf\u00e9 cr\u00e8me \u20ac", 40);
+			writer.reset(Integer.MAX_VALUE).write(ascii);
+			CharSequence spilledAscii = spillFile.spill(writer);
+			writer.reset(Integer.MAX_VALUE).write(nonAscii);
+			CharSequence spilledNonAscii = spillFile.spill(writer);
+			assertEquals(ascii, spilledAscii.toString());
+			assertEquals(ascii.length(), spilledAscii.length());
+			assertEquals(ascii.charAt(ascii.length()-1), spilledAscii.charAt(ascii.length()-1));
+			assertEquals(ascii.substring(24, 48), spilledAscii.subSequence(24, 48).toString());
+			assertEquals(nonAscii, spilledNonAscii.toString());
+			// ASCII payloads take one byte per character, so both payloads fit in a single window
+			assertEquals(1, spillFile.getWindowCount());
+		}
+	}
+}
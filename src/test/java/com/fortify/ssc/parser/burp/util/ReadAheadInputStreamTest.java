@@ -0,0 +1,132 @@
+package com.fortify.ssc.parser.burp.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReadAheadInputStreamTest {
+	private static final byte[] DATA = createData(1024*1024+17);
+
+	@Test
+	void testStreamContentsAreUnchanged() throws Exception {
+		// Source returns at most 1000 bytes per read, resulting in partially filled buffers
+		try ( InputStream is = ReadAheadInputStream.wrap(new ChunkedInputStream(new ByteArrayInputStream(DATA), 1000), 3, 64*1024) ) {
+			assertArrayEquals(DATA, readAll(is));
+			assertEquals(-1, is.read());
+		}
+	}
+
+	@Test
+	void testFileContentsAreUnchanged(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("data.bin");
+		Files.write(file, DATA);
+		try ( InputStream is = ReadAheadInputStream.wrap(new FileInputStream(file.toFile()), 4, 64*1024) ) {
+			assertEquals(DATA.length, is.available());
+			assertEquals(DATA[0] & 0xff, is.read());
+			assertEquals(DATA.length-1, is.available());
+			assertEquals(100000, is.skip(100000));
+			byte[] rest = readAll(is);
+			assertEquals(DATA.length-100001, rest.length);
+			assertEquals(DATA[100001], rest[0]);
+			assertEquals(DATA[DATA.length-1], rest[rest.length-1]);
+		}
+	}
+
+	@Test
+	void testLocalFileContentsAreUnchanged(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("data.bin");
+		Files.write(file, DATA);
+		try ( InputStream is = ReadAheadInputStream.wrap(Files.newInputStream(file), 4, 64*1024) ) {
+			// Files.newInputStream doesn't return a FileInputStream, but must still be handled as a local file
+			assertEquals(DATA.length, is.available());
+			assertEquals(DATA[0] & 0xff, is.read());
+			assertArrayEquals(Arrays.copyOfRange(DATA, 1, DATA.length), readAll(is));
+			assertEquals(0, is.available());
+		}
+	}
+
+	@Test
+	void testSourceErrorIsRethrown() throws Exception {
+		InputStream source = new ChunkedInputStream(new ByteArrayInputStream(DATA), 64*1024) {
+			private int reads;
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if ( ++reads>3 ) { throw new IOException("Simulated error"); }
+				return super.read(b, off, len);
+			}
+		};
+		try ( InputStream is = ReadAheadInputStream.wrap(source, 2, 64*1024) ) {
+			IOException e = assertThrows(IOException.class, () -> readAll(is));
+			assertEquals("Simulated error", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	void testUncheckedSourceErrorIsRethrown() throws Exception {
+		InputStream source = new ChunkedInputStream(new ByteArrayInputStream(DATA), 64*1024) {
+			private int reads;
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if ( ++reads>3 ) { throw new IllegalStateException("Simulated error"); }
+				return super.read(b, off, len);
+			}
+		};
+		try ( InputStream is = ReadAheadInputStream.wrap(source, 2, 64*1024) ) {
+			// Without handing over the error, the reading thread would wait for the next buffer forever
+			IOException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, () -> readAll(is)));
+			assertEquals("Simulated error", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	void testSingleBufferDisablesReadAhead() {
+		InputStream source = new ByteArrayInputStream(DATA);
+		assertSame(source, ReadAheadInputStream.wrap(source, 1, 64*1024));
+	}
+
+	private static final byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8191];
+		for ( int read = is.read(buffer) ; read>=0 ; read = is.read(buffer) ) {
+			result.write(buffer, 0, read);
+		}
+		return result.toByteArray();
+	}
+
+	private static final byte[] createData(int length) {
+		byte[] result = new byte[length];
+		new Random(42).nextBytes(result);
+		return result;
+	}
+
+	private static class ChunkedInputStream extends FilterInputStream {
+		private final int maxRead;
+
+		ChunkedInputStream(InputStream in, int maxRead) {
+			super(in);
+			this.maxRead = maxRead;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return super.read(b, off, Math.min(len, maxRead));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.fortify.ssc.parser.burp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class XmlByteScannerTest {
+	@Test
+	void testDoctypeWithInternalSubsetIsSkipped() {
+		String xml = "<?xml version=\"1.0\"?>\n"
+				+ "<!DOCTYPE issues [\n"
+				+ "<!ELEMENT issues (issue*)>\n"
+				+ "<!ATTLIST issues burpVersion CDATA \"]>\">\n"
+				+ "<!ENTITY example '<issue>[x]</issue>'>\n"
+				+ "]>\n"
+				+ "<!-- <issue> -->\n"
+				+ "<issues><issue><host><![CDATA[<issue>]]></host></issue><issue/></issues>\n";
+		List<String> expected = new ArrayList<>();
+		expected.add("start issues 1 "+xml.indexOf("<issues>"));
+		expected.add("start issue 2 "+xml.indexOf("<issue><host>"));
+		expected.add("start host 3 "+xml.indexOf("<host>"));
+		expected.add("end host 3 "+(xml.indexOf("</host>")+7));
+		expected.add("end issue 2 "+(xml.indexOf("</issue><issue/>")+8));
+		expected.add("start issue 2 "+xml.indexOf("<issue/>"));
+		expected.add("end issue 2 "+(xml.indexOf("<issue/>")+8));
+		expected.add("end issues 1 "+(xml.indexOf("</issues>")+9));
+		byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+		// Scanning in single bytes verifies that state is kept across chunk boundaries
+		for ( int chunkSize : new int[] {1, 7, bytes.length} ) {
+			assertEquals(expected, scan(bytes, chunkSize), "Chunk size "+chunkSize);
+		}
+	}
+
+	@Test
+	void testFailedCdataMatchKeepsBracketDepth() {
+		// The '[' of a '<![' that doesn't start a CDATA section counts towards the declaration's bracket depth
+		String xml = "<![X[ ] > <other/> ]><root/>";
+		List<String> expected = new ArrayList<>();
+		expected.add("start root 1 "+xml.indexOf("<root/>"));
+		expected.add("end root 1 "+xml.length());
+		assertEquals(expected, scan(xml.getBytes(StandardCharsets.UTF_8), 1));
+	}
+
+	private static final List<String> scan(byte[] bytes, int chunkSize) {
+		List<String> result = new ArrayList<>();
+		XmlByteScanner scanner = new XmlByteScanner(new XmlByteScanner.Listener() {
+			@Override
+			public void startElement(int depth, byte[] name, int nameLength, long startOffset) {
+				result.add("start "+new String(name, 0, nameLength, StandardCharsets.UTF_8)+" "+depth+" "+startOffset);
+			}
+
+			@Override
+			public void endElement(int depth, byte[] name, int nameLength, long endOffset) {
+				result.add("end "+new String(name, 0, nameLength, StandardCharsets.UTF_8)+" "+depth+" "+endOffset);
+			}
+		});
+		for ( int offset = 0 ; offset < bytes.length ; offset += chunkSize ) {
+			scanner.scan(bytes, offset, Math.min(chunkSize, bytes.length-offset));
+		}
+		return result;
+	}
+}
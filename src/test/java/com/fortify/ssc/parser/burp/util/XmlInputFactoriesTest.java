@@ -0,0 +1,38 @@
+package com.fortify.ssc.parser.burp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+
+class XmlInputFactoriesTest {
+	@Test
+	void testBackendsAreHardened() {
+		for ( String backend : XmlInputFactories.BACKENDS.keySet() ) {
+			XMLInputFactory factory = XmlInputFactories.get(backend);
+			assertEquals(Boolean.FALSE, factory.getProperty(XMLInputFactory.SUPPORT_DTD), backend);
+			assertEquals(Boolean.FALSE, factory.getProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES), backend);
+		}
+	}
+
+	@Test
+	void testBackendWithoutDtdSettingIsRejected() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> XmlInputFactories.get(DtdOnlyInputFactory.class.getName()));
+		assertTrue(e.getMessage().contains(XMLInputFactory.SUPPORT_DTD), e.getMessage());
+	}
+
+	/**
+	 * {@link XMLInputFactory} implementation that doesn't allow DTD processing to be configured
+	 */
+	public static final class DtdOnlyInputFactory extends WstxInputFactory {
+		@Override
+		public boolean isPropertySupported(String name) {
+			return !XMLInputFactory.SUPPORT_DTD.equals(name) && super.isPropertySupported(name);
+		}
+	}
+}